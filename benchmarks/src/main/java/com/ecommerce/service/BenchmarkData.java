@@ -0,0 +1,180 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.model.Cart;
+import com.ecommerce.domain.model.CartItem;
+import com.ecommerce.domain.model.Category;
+import com.ecommerce.domain.model.Coupon;
+import com.ecommerce.domain.model.DiscountType;
+import com.ecommerce.domain.model.InventoryAnalytics;
+import com.ecommerce.domain.model.Product;
+import com.ecommerce.domain.model.ProductImage;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic generators for benchmark data. Distributions follow what the
+ * catalog and order tables look like in production: a few hundred categories,
+ * mostly cheap products with a long tail, one to six images per product and
+ * small carts.
+ */
+final class BenchmarkData {
+
+    private static final long SEED = 42L;
+    private static final int CATEGORIES = 250;
+    private static final String[] WORDS = {
+        "classic", "wireless", "organic", "leather", "compact", "deluxe", "smart", "vintage",
+        "portable", "ergonomic", "chair", "lamp", "headphones", "backpack", "kettle", "jacket",
+        "notebook", "speaker", "sneakers", "watch"
+    };
+
+    private BenchmarkData() {
+    }
+
+    static List<Product> products(int count) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<Category> categories = new ArrayList<>(CATEGORIES);
+        for (int i = 0; i < CATEGORIES; i++) {
+            Category category = new Category();
+            category.setId((long) i + 1);
+            category.setName("Category " + (i + 1));
+            categories.add(category);
+        }
+
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Product product = new Product();
+            product.setId((long) i + 1);
+            product.setName(words(random, 3));
+            product.setDescription(words(random, 24));
+            product.setPrice(price(random));
+            product.setStockQuantity(random.nextInt(10) == 0 ? 0 : random.nextInt(1, 500));
+            product.setAverageRating(random.nextInt(5) == 0 ? null : 1 + random.nextDouble() * 4);
+            product.setActive(true);
+            product.setCategory(categories.get(random.nextInt(CATEGORIES)));
+
+            // The image's back reference is left unset: the entities' generated hashCode
+            // would otherwise recurse through product -> images -> product
+            int images = random.nextInt(1, 7);
+            for (int j = 0; j < images; j++) {
+                ProductImage image = new ProductImage();
+                image.setId((long) i * 8 + j);
+                image.setImageUrl("https://cdn.example.com/products/" + (i + 1) + "/" + j + ".jpg");
+                image.setIsCover(j == 0);
+                product.getImages().add(image);
+            }
+            products.add(product);
+        }
+        return products;
+    }
+
+    // Carts of one to twenty items holding roughly the requested number of items overall
+    static List<Cart> carts(int items) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<Cart> carts = new ArrayList<>();
+        int created = 0;
+        while (created < items) {
+            Cart cart = new Cart();
+            cart.setId((long) carts.size() + 1);
+            cart.setUserId("user-" + (carts.size() + 1));
+            int size = Math.min(items - created, random.nextInt(1, 21));
+            for (int j = 0; j < size; j++) {
+                CartItem item = new CartItem();
+                item.setQuantity(random.nextInt(1, 5));
+                item.setPrice(price(random));
+                item.setSubtotal(item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+                cart.getItems().add(item);
+            }
+            created += size;
+            carts.add(cart);
+        }
+        return carts;
+    }
+
+    static List<Coupon> coupons(int count) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        LocalDateTime now = LocalDateTime.now();
+        List<Coupon> coupons = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Coupon coupon = new Coupon();
+            coupon.setId((long) i + 1);
+            coupon.setCode("SAVE" + (i + 1));
+            if (random.nextBoolean()) {
+                coupon.setDiscountType(DiscountType.PERCENTAGE);
+                coupon.setDiscountValue(BigDecimal.valueOf(random.nextInt(1, 13) * 5L));
+            } else {
+                coupon.setDiscountType(DiscountType.FIXED_AMOUNT);
+                coupon.setDiscountValue(BigDecimal.valueOf(random.nextInt(5, 51)));
+            }
+            if (random.nextInt(3) > 0) {
+                coupon.setMaximumDiscount(BigDecimal.valueOf(random.nextInt(20, 101)));
+            }
+            coupon.setStartDate(now.minusDays(30));
+            coupon.setEndDate(now.plusDays(30));
+            coupon.setUsageLimit(1000);
+            coupons.add(coupon);
+        }
+        return coupons;
+    }
+
+    static List<BigDecimal> cartTotals(int count) {
+        SplittableRandom random = new SplittableRandom(SEED + 1);
+        List<BigDecimal> totals = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            BigDecimal total = BigDecimal.ZERO;
+            int items = random.nextInt(1, 21);
+            for (int j = 0; j < items; j++) {
+                total = total.add(price(random));
+            }
+            totals.add(total);
+        }
+        return totals;
+    }
+
+    // One row per day for a single product, ending today
+    static List<InventoryAnalytics> dailyAnalytics(int days) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        LocalDate first = LocalDate.now().minusDays(days - 1L);
+        List<InventoryAnalytics> rows = new ArrayList<>(days);
+        int stock = 200;
+        for (int i = 0; i < days; i++) {
+            InventoryAnalytics row = new InventoryAnalytics();
+            row.setId((long) i + 1);
+            row.setDate(first.plusDays(i));
+            int sales = Math.min(stock, random.nextInt(0, 40));
+            int returns = random.nextInt(10) == 0 ? random.nextInt(1, 4) : 0;
+            int restock = stock - sales < 50 ? 1 : 0;
+            row.setStartingStock(stock);
+            stock = stock - sales + returns + restock * 300;
+            row.setEndingStock(stock);
+            row.setSalesCount(sales);
+            row.setReturnsCount(returns);
+            row.setRestockCount(restock);
+            row.setTurnoverRate(sales / ((row.getStartingStock() + stock) / 2.0 + 1));
+            row.setDaysOutOfStock(stock == 0 ? 1 : 0);
+            row.setLowStockIncidents(stock < 50 ? 1 : 0);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    // Log-normal-ish: most products are cheap, a few are expensive
+    private static BigDecimal price(SplittableRandom random) {
+        double price = Math.exp(random.nextDouble(1.0, 7.0));
+        return BigDecimal.valueOf(Math.round(price * 100), 2);
+    }
+
+    private static String words(SplittableRandom random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+}
\ No newline at end of file
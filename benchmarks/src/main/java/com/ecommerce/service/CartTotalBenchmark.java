@@ -0,0 +1,59 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.model.Cart;
+import com.ecommerce.domain.model.CartItem;
+import com.ecommerce.domain.model.Money;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Totalling carts in minor units, as CartStore does for every cart it returns
+ * or writes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class CartTotalBenchmark {
+
+    // Cart items across all carts
+    @Param({"10000", "100000", "1000000"})
+    int items;
+
+    private List<CartStore.Contents> carts;
+
+    @Setup
+    public void setUp() {
+        carts = new ArrayList<>();
+        for (Cart cart : BenchmarkData.carts(items)) {
+            CartStore.Contents contents = new CartStore.Contents();
+            long productId = 0;
+            for (CartItem item : cart.getItems()) {
+                contents.add(++productId, null, Money.of(item.getPrice()), item.getQuantity());
+            }
+            carts.add(contents);
+        }
+    }
+
+    @Benchmark
+    public void totalCarts(Blackhole blackhole) {
+        for (CartStore.Contents contents : carts) {
+            blackhole.consume(contents.total());
+        }
+    }
+}
\ No newline at end of file
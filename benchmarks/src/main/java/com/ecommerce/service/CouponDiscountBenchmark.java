@@ -0,0 +1,56 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.model.CartItem;
+import com.ecommerce.domain.model.Coupon;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Discount calculation for a mix of percentage and fixed coupons, with and
+ * without a maximum discount.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class CouponDiscountBenchmark {
+
+    private static final int COUPONS = 500;
+
+    // Checkouts evaluated per invocation
+    @Param({"10000", "100000", "1000000"})
+    int checkouts;
+
+    private List<Coupon> coupons;
+    private List<BigDecimal> totals;
+    private final List<CartItem> items = List.of();
+
+    @Setup
+    public void setUp() {
+        coupons = BenchmarkData.coupons(COUPONS);
+        totals = BenchmarkData.cartTotals(checkouts);
+    }
+
+    @Benchmark
+    public void calculateDiscounts(Blackhole blackhole) {
+        for (int i = 0; i < totals.size(); i++) {
+            Coupon coupon = coupons.get(i % COUPONS);
+            blackhole.consume(CouponService.calculateApplicableDiscount(coupon, totals.get(i), items));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.model.InventoryAnalytics;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The stream reductions behind getProductAnalytics, over the daily rows the
+ * repository returns for a date range.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ProductAnalyticsBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    int rows;
+
+    private List<InventoryAnalytics> analytics;
+
+    @Setup
+    public void setUp() {
+        analytics = BenchmarkData.dailyAnalytics(rows);
+    }
+
+    @Benchmark
+    public Map<String, Object> summarize() {
+        return InventoryAnalyticsService.summarizeProductAnalytics(analytics);
+    }
+}
\ No newline at end of file
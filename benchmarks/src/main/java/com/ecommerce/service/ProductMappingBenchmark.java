@@ -0,0 +1,48 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.dto.ProductWithImagesDTO;
+import com.ecommerce.domain.model.Product;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Entity-to-DTO mapping as done for every product on a full catalog load.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ProductMappingBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    int products;
+
+    private List<Product> catalog;
+
+    @Setup
+    public void setUp() {
+        catalog = BenchmarkData.products(products);
+    }
+
+    @Benchmark
+    public void mapCatalog(Blackhole blackhole) {
+        for (Product product : catalog) {
+            ProductWithImagesDTO dto = ProductService.mapToProductWithImagesDTO(product);
+            blackhole.consume(dto);
+        }
+    }
+}
\ No newline at end of file
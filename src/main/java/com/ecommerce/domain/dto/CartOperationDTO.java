@@ -0,0 +1,23 @@
+package com.ecommerce.domain.dto;
+
+import lombok.Data;
+import jakarta.validation.constraints.NotNull;
+
+// One change in a batch cart update
+@Data
+public class CartOperationDTO {
+    @NotNull(message = "Operation type is required")
+    private Type type;
+    
+    @NotNull(message = "Product ID is required")
+    private Long productId;
+    
+    // Units to add for ADD, the new quantity for UPDATE_QUANTITY (0 removes); unused for REMOVE
+    private Integer quantity;
+    
+    public enum Type {
+        ADD,
+        UPDATE_QUANTITY,
+        REMOVE
+    }
+}
\ No newline at end of file
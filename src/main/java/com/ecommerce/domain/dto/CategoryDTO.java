@@ -2,6 +2,7 @@ package com.ecommerce.domain.dto;
 
 import lombok.Data;
 import jakarta.validation.constraints.NotBlank;
+import java.time.LocalDateTime;
 
 @Data
 public class CategoryDTO {
@@ -13,4 +14,5 @@ public class CategoryDTO {
     private String description;
     private Long parentId;
     private Boolean active;
+    private LocalDateTime updatedAt;
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.ecommerce.domain.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.BitSet;
+
+/**
+ * One value per day, written as {"2024-01-31": 12, ...} straight from a slice of
+ * a primitive column. Days not set in present are left out; MISSING is written
+ * as null.
+ */
+@JsonSerialize(using = DailyTrendDTO.Serializer.class)
+public class DailyTrendDTO {
+    
+    public static final int MISSING = Integer.MIN_VALUE;
+    
+    private final long firstDay;
+    private final int[] values;
+    private final BitSet present;
+    
+    public DailyTrendDTO(long firstDay, int[] values, BitSet present) {
+        this.firstDay = firstDay;
+        this.values = values;
+        this.present = present;
+    }
+    
+    public static class Serializer extends StdSerializer<DailyTrendDTO> {
+        
+        public Serializer() {
+            super(DailyTrendDTO.class);
+        }
+        
+        @Override
+        public void serialize(DailyTrendDTO trend, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeStartObject();
+            for (int i = trend.present.nextSetBit(0); i >= 0 && i < trend.values.length; i = trend.present.nextSetBit(i + 1)) {
+                generator.writeFieldName(LocalDate.ofEpochDay(trend.firstDay + i).toString());
+                if (trend.values[i] == MISSING) {
+                    generator.writeNull();
+                } else {
+                    generator.writeNumber(trend.values[i]);
+                }
+            }
+            generator.writeEndObject();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.ecommerce.domain.dto;
+
+import lombok.Data;
+
+@Data
+public class FacetCountDTO {
+    private String value;
+    private String label;
+    private long count;
+    
+    public FacetCountDTO(String value, String label, long count) {
+        this.value = value;
+        this.label = label;
+        this.count = count;
+    }
+}
\ No newline at end of file
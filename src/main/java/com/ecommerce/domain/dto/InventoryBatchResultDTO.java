@@ -0,0 +1,11 @@
+package com.ecommerce.domain.dto;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class InventoryBatchResultDTO {
+    private int accepted;
+    private int rejected;
+    private List<InventoryLineResultDTO> lines;
+}
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.ecommerce.domain.dto;
+
+import lombok.Data;
+
+@Data
+public class InventoryLineResultDTO {
+    // 1-based position in the submitted array or NDJSON body
+    private int line;
+    private Long productId;
+    private boolean accepted;
+    private String error;
+    
+    public InventoryLineResultDTO(int line, Long productId, boolean accepted, String error) {
+        this.line = line;
+        this.productId = productId;
+        this.accepted = accepted;
+        this.error = error;
+    }
+}
\ No newline at end of file
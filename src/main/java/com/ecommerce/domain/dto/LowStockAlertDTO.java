@@ -0,0 +1,23 @@
+package com.ecommerce.domain.dto;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+// One product in a low-stock digest, with its stock when the digest went out
+@Data
+public class LowStockAlertDTO {
+    private Long productId;
+    private String productName;
+    private int stockQuantity;
+    private int threshold;
+    // When a digest first found stock under the threshold
+    private LocalDateTime crossedAt;
+    
+    public LowStockAlertDTO(Long productId, String productName, int stockQuantity, int threshold, LocalDateTime crossedAt) {
+        this.productId = productId;
+        this.productName = productName;
+        this.stockQuantity = stockQuantity;
+        this.threshold = threshold;
+        this.crossedAt = crossedAt;
+    }
+}
\ No newline at end of file
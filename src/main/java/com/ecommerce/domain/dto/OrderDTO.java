@@ -0,0 +1,19 @@
+package com.ecommerce.domain.dto;
+
+import com.ecommerce.domain.model.OrderStatus;
+import com.ecommerce.domain.model.ShippingAddress;
+import lombok.Data;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class OrderDTO {
+    private Long id;
+    private LocalDateTime orderDate;
+    private OrderStatus status;
+    private BigDecimal totalAmount;
+    private ShippingAddress shippingAddress;
+    private String paymentIntentId;
+    private List<OrderItemDTO> items;
+}
\ No newline at end of file
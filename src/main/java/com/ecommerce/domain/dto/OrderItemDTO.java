@@ -0,0 +1,12 @@
+package com.ecommerce.domain.dto;
+
+import lombok.Data;
+import java.math.BigDecimal;
+
+@Data
+public class OrderItemDTO {
+    private Long productId;
+    private Integer quantity;
+    private BigDecimal price;
+    private BigDecimal subtotal;
+}
\ No newline at end of file
@@ -1,7 +1,9 @@
 package com.ecommerce.domain.dto;
 
 import lombok.Data;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 
 @Data
 public class PageDTO<T> {
@@ -12,6 +14,7 @@ public class PageDTO<T> {
     private int pageSize;
     private boolean hasNext;
     private boolean hasPrevious;
+    private String nextCursor;
     
     public PageDTO(List<T> content, long totalElements, int page, int size) {
         this.content = content;
@@ -22,4 +25,24 @@ public class PageDTO<T> {
         this.hasNext = page < totalPages - 1;
         this.hasPrevious = page > 0;
     }
+    
+    public PageDTO(List<T> content, long totalElements, int size, String nextCursor, boolean hasPrevious) {
+        this.content = content;
+        this.totalElements = totalElements;
+        this.pageSize = size;
+        this.totalPages = (int) Math.ceil((double) totalElements / size);
+        this.nextCursor = nextCursor;
+        this.hasNext = nextCursor != null;
+        this.hasPrevious = hasPrevious;
+    }
+    
+    public <R> PageDTO<R> map(Function<? super T, ? extends R> mapper) {
+        List<R> mapped = new ArrayList<>(content.size());
+        content.forEach(item -> mapped.add(mapper.apply(item)));
+        PageDTO<R> page = new PageDTO<>(mapped, totalElements, pageSize, nextCursor, hasPrevious);
+        page.setCurrentPage(currentPage);
+        page.setTotalPages(totalPages);
+        page.setHasNext(hasNext);
+        return page;
+    }
 }
\ No newline at end of file
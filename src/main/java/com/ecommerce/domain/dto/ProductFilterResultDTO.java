@@ -0,0 +1,13 @@
+package com.ecommerce.domain.dto;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class ProductFilterResultDTO {
+    private PageDTO<ProductSummaryDTO> products;
+    private List<FacetCountDTO> categories;
+    private List<FacetCountDTO> priceRanges;
+    private List<FacetCountDTO> tags;
+    private List<FacetCountDTO> ratings;
+}
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.ecommerce.domain.dto;
+
+import lombok.Data;
+import java.math.BigDecimal;
+
+@Data
+public class ProductSummaryDTO {
+    private Long id;
+    private String name;
+    private BigDecimal price;
+    private String coverImageUrl;
+    private Double averageRating;
+    private boolean inStock;
+    
+    public ProductSummaryDTO(Long id, String name, BigDecimal price, String coverImageUrl,
+                             Double averageRating, boolean inStock) {
+        this.id = id;
+        this.name = name;
+        this.price = price;
+        this.coverImageUrl = coverImageUrl;
+        this.averageRating = averageRating;
+        this.inStock = inStock;
+    }
+}
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.ecommerce.domain.dto;
 import lombok.Data;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Set;
 
 @Data
 public class ProductWithImagesDTO {
@@ -17,4 +18,5 @@ public class ProductWithImagesDTO {
     private Long categoryId;
     private String categoryName;
     private Boolean active;
+    private Set<String> tags;
 }
\ No newline at end of file
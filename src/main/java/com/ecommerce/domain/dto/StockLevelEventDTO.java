@@ -0,0 +1,28 @@
+package com.ecommerce.domain.dto;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+// A committed stock change, as sent on the inventory stream
+@Data
+public class StockLevelEventDTO {
+    private Long productId;
+    private int stockQuantity;
+    private int threshold;
+    // CRITICAL, HIGH, MEDIUM or LOW at or under the threshold, NONE above it
+    private String riskLevel;
+    // The level before this change, or before the first of the changes it conflates;
+    // differs from riskLevel on a transition and is null when not known
+    private String previousRiskLevel;
+    private LocalDateTime changedAt;
+    
+    public StockLevelEventDTO(Long productId, int stockQuantity, int threshold,
+                              String riskLevel, String previousRiskLevel, LocalDateTime changedAt) {
+        this.productId = productId;
+        this.stockQuantity = stockQuantity;
+        this.threshold = threshold;
+        this.riskLevel = riskLevel;
+        this.previousRiskLevel = previousRiskLevel;
+        this.changedAt = changedAt;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.ecommerce.domain.dto;
+
+import lombok.Data;
+
+@Data
+public class SuggestionDTO {
+    private String text;
+    private String type;
+    private Long id;
+    
+    public SuggestionDTO(String text, String type, Long id) {
+        this.text = text;
+        this.type = type;
+        this.id = id;
+    }
+}
\ No newline at end of file
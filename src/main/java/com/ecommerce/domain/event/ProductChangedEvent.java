@@ -0,0 +1,28 @@
+package com.ecommerce.domain.event;
+
+public class ProductChangedEvent {
+
+    // Marks a change that must always be reloaded, e.g. a delete, or an image edit
+    // seen before the version its trigger bumped is known
+    public static final long UNVERSIONED = Long.MAX_VALUE;
+
+    private final Long productId;
+    private final long version;
+
+    public ProductChangedEvent(Long productId, long version) {
+        this.productId = productId;
+        this.version = version;
+    }
+
+    public static ProductChangedEvent unversioned(Long productId) {
+        return new ProductChangedEvent(productId, UNVERSIONED);
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,6 @@
+package com.ecommerce.domain.model;
+
+public enum AnalyticsGranularity {
+    WEEK,
+    MONTH
+}
\ No newline at end of file
@@ -0,0 +1,6 @@
+package com.ecommerce.domain.model;
+
+public enum CheckoutStatus {
+    ORDER_CREATED,
+    PAYMENT_CREATED
+}
\ No newline at end of file
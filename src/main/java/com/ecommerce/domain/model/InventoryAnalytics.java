@@ -26,6 +26,7 @@ public class InventoryAnalytics extends PanacheEntityBase {
     private Integer startingStock;
     private Integer endingStock;
     private Integer salesCount;
+    private Integer unitsSold;
     private Integer restockCount;
     private Integer returnsCount;
     private Double turnoverRate;
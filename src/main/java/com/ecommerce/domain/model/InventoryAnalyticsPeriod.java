@@ -0,0 +1,48 @@
+package com.ecommerce.domain.model;
+
+import io.quarkus.hibernate.reactive.panache.PanacheEntityBase;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+// Daily inventory_analytics rows summed over a week (from Monday) or a calendar month
+@Data
+@Entity
+@EqualsAndHashCode(callSuper = true)
+@Table(name = "inventory_analytics_periods")
+public class InventoryAnalyticsPeriod extends PanacheEntityBase {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private AnalyticsGranularity granularity;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id")
+    private Product product;
+    
+    @Column(nullable = false)
+    private LocalDate periodStart;
+    
+    @Column(nullable = false)
+    private LocalDate periodEnd;
+    
+    private Integer startingStock;
+    private Integer endingStock;
+    private Integer salesCount;
+    private Integer unitsSold;
+    private Integer restockCount;
+    private Integer returnsCount;
+    private Integer daysOutOfStock;
+    private Integer lowStockIncidents;
+    
+    // Days with a turnover rate, and the sum, minimum and maximum of those rates
+    private Integer turnoverDays;
+    private Double turnoverSum;
+    private Double minTurnover;
+    private Double maxTurnover;
+}
\ No newline at end of file
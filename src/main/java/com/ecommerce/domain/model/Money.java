@@ -0,0 +1,144 @@
+package com.ecommerce.domain.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+/**
+ * An amount as a whole number of the currency's minor units (cents for USD), so
+ * totals are summed and multiplied as longs. Entities and JSON keep BigDecimal;
+ * convert with of and toBigDecimal where an amount enters or leaves a calculation.
+ *
+ * Sums and products are exact, as with BigDecimal. A percentage is rounded half
+ * up to the minor unit, the rounding the DECIMAL(10,2) columns apply on write.
+ * Overflow throws ArithmeticException instead of wrapping.
+ */
+public final class Money implements Comparable<Money> {
+    
+    public static final Currency DEFAULT_CURRENCY = Currency.getInstance("USD");
+    
+    private static final long[] POWERS_OF_TEN = new long[19];
+    
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+    
+    private final long minorUnits;
+    private final Currency currency;
+    
+    private Money(long minorUnits, Currency currency) {
+        this.minorUnits = minorUnits;
+        this.currency = currency;
+    }
+    
+    public static Money ofMinor(long minorUnits, Currency currency) {
+        return new Money(minorUnits, currency);
+    }
+    
+    public static Money zero(Currency currency) {
+        return new Money(0, currency);
+    }
+    
+    public static Money of(BigDecimal amount) {
+        return of(amount, DEFAULT_CURRENCY);
+    }
+    
+    // Amounts finer than the minor unit are rejected rather than rounded
+    public static Money of(BigDecimal amount, Currency currency) {
+        try {
+            return new Money(amount.setScale(currency.getDefaultFractionDigits(), RoundingMode.UNNECESSARY)
+                .unscaledValue().longValueExact(), currency);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Not a valid " + currency + " amount: " + amount);
+        }
+    }
+    
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+    
+    public Currency getCurrency() {
+        return currency;
+    }
+    
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, currency.getDefaultFractionDigits());
+    }
+    
+    public Money plus(Money other) {
+        return new Money(Math.addExact(minorUnits, sameCurrency(other).minorUnits), currency);
+    }
+    
+    public Money minus(Money other) {
+        return new Money(Math.subtractExact(minorUnits, sameCurrency(other).minorUnits), currency);
+    }
+    
+    public Money times(int quantity) {
+        return new Money(Math.multiplyExact(minorUnits, (long) quantity), currency);
+    }
+    
+    /**
+     * This amount times percent / 100, rounded half up to the minor unit. The
+     * percent is taken as its unscaled value over a power of ten, so 12.5 becomes
+     * minorUnits * 125 / 1000, divided once.
+     */
+    public Money percent(BigDecimal percent) {
+        if (percent.scale() < 0) {
+            percent = percent.setScale(0);
+        }
+        int exponent = percent.scale() + 2;
+        if (exponent >= POWERS_OF_TEN.length) {
+            throw new ArithmeticException("Percentage has too many decimal places: " + percent);
+        }
+        long numerator = Math.multiplyExact(minorUnits, percent.unscaledValue().longValueExact());
+        return new Money(divideHalfUp(numerator, POWERS_OF_TEN[exponent]), currency);
+    }
+    
+    public boolean isGreaterThan(Money other) {
+        return compareTo(other) > 0;
+    }
+    
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, sameCurrency(other).minorUnits);
+    }
+    
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof Money)) {
+            return false;
+        }
+        Money money = (Money) other;
+        return minorUnits == money.minorUnits && currency.equals(money.currency);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits) * 31 + currency.hashCode();
+    }
+    
+    @Override
+    public String toString() {
+        return currency.getCurrencyCode() + " " + toBigDecimal().toPlainString();
+    }
+    
+    // Halves round away from zero, as RoundingMode.HALF_UP does
+    private static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (Math.abs(remainder) >= divisor - Math.abs(remainder)) {
+            quotient += Long.signum(dividend);
+        }
+        return quotient;
+    }
+    
+    private Money sameCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Cannot combine " + currency + " and " + other.currency);
+        }
+        return other;
+    }
+}
\ No newline at end of file
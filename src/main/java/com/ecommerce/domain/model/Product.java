@@ -12,6 +12,7 @@ import java.util.Set;
 @Data
 @Entity
 @EqualsAndHashCode(callSuper = true)
+@EntityListeners(ProductEntityListener.class)
 @Table(name = "products")
 public class Product extends PanacheEntityBase {
     @Id
@@ -30,6 +31,9 @@ public class Product extends PanacheEntityBase {
     @Column(nullable = false)
     private Integer stockQuantity;
     
+    @Column(nullable = false)
+    private Integer lowStockThreshold = 10;
+    
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id")
     private Category category;
@@ -40,6 +44,14 @@ public class Product extends PanacheEntityBase {
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL)
     private Set<Review> reviews = new HashSet<>();
     
+    @ManyToMany
+    @JoinTable(
+        name = "product_tags",
+        joinColumns = @JoinColumn(name = "product_id"),
+        inverseJoinColumns = @JoinColumn(name = "tag_id")
+    )
+    private Set<Tag> tags = new HashSet<>();
+    
     private Double averageRating;
     
     @Column(nullable = false)
@@ -0,0 +1,37 @@
+package com.ecommerce.domain.model;
+
+import com.ecommerce.domain.event.ProductChangedEvent;
+import jakarta.enterprise.inject.spi.CDI;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+public class ProductEntityListener {
+
+    @PostPersist
+    @PostUpdate
+    void onSave(Object entity) {
+        if (entity instanceof Product product) {
+            fire(product.getVersion() != null
+                ? new ProductChangedEvent(product.getId(), product.getVersion())
+                : ProductChangedEvent.unversioned(product.getId()));
+        } else if (entity instanceof ProductImage image && image.getProduct() != null) {
+            fire(ProductChangedEvent.unversioned(image.getProduct().getId()));
+        }
+    }
+
+    @PostRemove
+    void onRemove(Object entity) {
+        if (entity instanceof Product product) {
+            fire(ProductChangedEvent.unversioned(product.getId()));
+        } else if (entity instanceof ProductImage image && image.getProduct() != null) {
+            fire(ProductChangedEvent.unversioned(image.getProduct().getId()));
+        }
+    }
+
+    private void fire(ProductChangedEvent event) {
+        CDI.current().getBeanManager().getEvent()
+            .select(ProductChangedEvent.class)
+            .fire(event);
+    }
+}
\ No newline at end of file
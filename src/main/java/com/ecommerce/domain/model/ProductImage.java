@@ -9,6 +9,7 @@ import jakarta.persistence.*;
 @Data
 @Entity
 @EqualsAndHashCode(callSuper = true)
+@EntityListeners(ProductEntityListener.class)
 @Table(name = "product_images")
 public class ProductImage extends PanacheEntityBase {
     @Id
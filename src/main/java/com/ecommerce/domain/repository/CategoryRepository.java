@@ -4,6 +4,8 @@ import com.ecommerce.domain.model.Category;
 import io.quarkus.hibernate.reactive.panache.PanacheRepository;
 import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @ApplicationScoped
@@ -21,8 +23,27 @@ public class CategoryRepository implements PanacheRepository<Category> {
         return list("active", true);
     }
     
+    // Moves with every insert and delete, and with every update since each one bumps updated_at
+    public Uni<String> findStamp() {
+        return getSession().chain(session -> session.createNativeQuery(
+                "SELECT COUNT(*) || '-' || COALESCE(SUM(EXTRACT(EPOCH FROM updated_at)), 0) FROM categories",
+                String.class)
+            .getSingleResult());
+    }
+    
+    // Null when the category does not exist
+    public Uni<LocalDateTime> findUpdatedAt(Long id) {
+        return find("select c.updatedAt from Category c where c.id = ?1", id)
+            .firstResult();
+    }
+    
     public Uni<Boolean> hasProducts(Long categoryId) {
         return find("select count(p) > 0 from Product p where p.category.id = ?1", categoryId)
             .firstResult();
     }
+    
+    public Uni<Boolean> hasProducts(Collection<Long> categoryIds) {
+        return find("select count(p) > 0 from Product p where p.category.id in ?1", categoryIds)
+            .firstResult();
+    }
 }
\ No newline at end of file
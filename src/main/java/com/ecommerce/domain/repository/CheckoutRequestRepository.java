@@ -0,0 +1,21 @@
+package com.ecommerce.domain.repository;
+
+import com.ecommerce.domain.model.CheckoutRequest;
+import com.ecommerce.domain.model.CheckoutStatus;
+import io.quarkus.hibernate.reactive.panache.PanacheRepository;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.time.LocalDateTime;
+
+@ApplicationScoped
+public class CheckoutRequestRepository implements PanacheRepository<CheckoutRequest> {
+    
+    public Uni<CheckoutRequest> findByKey(String userId, String idempotencyKey) {
+        return find("userId = ?1 and idempotencyKey = ?2", userId, idempotencyKey).firstResult();
+    }
+    
+    public Uni<Integer> markPaymentCreated(String userId, String idempotencyKey, String paymentIntentId) {
+        return update("status = ?1, paymentIntentId = ?2, updatedAt = ?3 where userId = ?4 and idempotencyKey = ?5",
+            CheckoutStatus.PAYMENT_CREATED, paymentIntentId, LocalDateTime.now(), userId, idempotencyKey);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.ecommerce.domain.repository;
+
+import com.ecommerce.domain.model.AnalyticsGranularity;
+import com.ecommerce.domain.model.InventoryAnalyticsPeriod;
+import io.quarkus.hibernate.reactive.panache.PanacheRepository;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.time.LocalDate;
+import java.util.List;
+
+@ApplicationScoped
+public class InventoryAnalyticsPeriodRepository implements PanacheRepository<InventoryAnalyticsPeriod> {
+    
+    public Uni<List<InventoryAnalyticsPeriod>> findByProductAndPeriods(
+            Long productId, AnalyticsGranularity granularity, List<LocalDate> periodStarts) {
+        if (periodStarts.isEmpty()) {
+            return Uni.createFrom().item(List.of());
+        }
+        return list(
+            "product.id = ?1 and granularity = ?2 and periodStart in ?3 order by periodStart",
+            productId, granularity, periodStarts
+        );
+    }
+}
\ No newline at end of file
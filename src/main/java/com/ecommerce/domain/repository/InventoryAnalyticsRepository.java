@@ -5,7 +5,10 @@ import io.quarkus.hibernate.reactive.panache.PanacheRepository;
 import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @ApplicationScoped
 public class InventoryAnalyticsRepository implements PanacheRepository<InventoryAnalytics> {
@@ -18,15 +21,40 @@ public class InventoryAnalyticsRepository implements PanacheRepository<Inventory
         );
     }
     
-    public Uni<List<InventoryAnalytics>> findTopSellingProducts(
+    public Uni<List<InventoryAnalytics>> findByProductAndDates(Long productId, List<LocalDate> dates) {
+        if (dates.isEmpty()) {
+            return Uni.createFrom().item(List.of());
+        }
+        return list("product.id = ?1 and date in ?2 order by date", productId, dates);
+    }
+    
+    // productId, productName, total sales, average turnover and average stock; best sellers first
+    public Uni<List<Object[]>> findTopSellingProducts(
             LocalDate startDate, LocalDate endDate, int limit) {
-        return find(
-            "select a from InventoryAnalytics a " +
-            "where a.date between ?1 and ?2 " +
-            "group by a.product.id " +
-            "order by sum(a.salesCount) desc",
-            startDate, endDate
-        ).page(0, limit).list();
+        return getSession().chain(session -> session.createQuery(
+                "select a.product.id, a.product.name, sum(a.salesCount), avg(a.turnoverRate), " +
+                "avg((a.startingStock + a.endingStock) / 2.0) from InventoryAnalytics a " +
+                "where a.date between ?1 and ?2 " +
+                "group by a.product.id, a.product.name " +
+                "order by sum(a.salesCount) desc, a.product.id", Object[].class)
+            .setParameter(1, startDate)
+            .setParameter(2, endDate)
+            .setMaxResults(limit)
+            .getResultList());
+    }
+    
+    // productId, productName, average turnover and average stock of the given products
+    public Uni<List<Object[]>> findSalesDetails(
+            Collection<Long> productIds, LocalDate startDate, LocalDate endDate) {
+        return getSession().chain(session -> session.createQuery(
+                "select p.id, p.name, avg(a.turnoverRate), avg((a.startingStock + a.endingStock) / 2.0) " +
+                "from Product p left join InventoryAnalytics a " +
+                "on a.product.id = p.id and a.date between ?2 and ?3 " +
+                "where p.id in ?1 group by p.id, p.name", Object[].class)
+            .setParameter(1, productIds)
+            .setParameter(2, startDate)
+            .setParameter(3, endDate)
+            .getResultList());
     }
     
     public Uni<Double> calculateAverageTurnoverRate(
@@ -37,4 +65,21 @@ public class InventoryAnalyticsRepository implements PanacheRepository<Inventory
             productId, startDate, endDate
         ).firstResult();
     }
+    
+    public Uni<Map<Long, Long>> sumSalesByProductSince(LocalDate since) {
+        return getSession().chain(session -> session.createQuery(
+                "select a.product.id, sum(a.salesCount) from InventoryAnalytics a " +
+                "where a.date >= ?1 group by a.product.id", Object[].class)
+            .setParameter(1, since)
+            .getResultList())
+            .map(rows -> {
+                Map<Long, Long> totals = new HashMap<>();
+                for (Object[] row : rows) {
+                    if (row[1] != null) {
+                        totals.put((Long) row[0], ((Number) row[1]).longValue());
+                    }
+                }
+                return totals;
+            });
+    }
 }
\ No newline at end of file
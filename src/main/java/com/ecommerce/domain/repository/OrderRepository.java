@@ -4,6 +4,7 @@ import com.ecommerce.domain.model.Order;
 import io.quarkus.hibernate.reactive.panache.PanacheRepository;
 import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
+import org.hibernate.reactive.mutiny.Mutiny;
 import java.util.List;
 
 @ApplicationScoped
@@ -12,4 +13,21 @@ public class OrderRepository implements PanacheRepository<Order> {
     public Uni<List<Order>> findByUserId(String userId) {
         return list("userId", userId);
     }
+    
+    public Uni<List<Long>> findIdsByUserIdAfter(String userId, Long afterId, int limit) {
+        return getSession().chain(session -> session.createQuery(
+                "select o.id from Order o where o.userId = ?1 and o.id > ?2 order by o.id", Long.class)
+            .setParameter(1, userId)
+            .setParameter(2, afterId)
+            .setMaxResults(limit)
+            .getResultList());
+    }
+    
+    public Uni<List<Order>> findWithItemsByIds(List<Long> ids) {
+        return list("select distinct o from Order o left join fetch o.items where o.id in ?1 order by o.id", ids);
+    }
+    
+    public Uni<Void> detachAll() {
+        return getSession().invoke(Mutiny.Session::clear).replaceWithVoid();
+    }
 }
\ No newline at end of file
@@ -1,13 +1,15 @@
 package com.ecommerce.domain.repository;
 
 import com.ecommerce.domain.model.Product;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
@@ -29,22 +31,29 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
            "WHERE p.id = :id AND p.active = true")
     Optional<Product> findProductWithImagesById(Long id);
     
+    @Query("SELECT p FROM Product p " +
+           "LEFT JOIN FETCH p.images " +
+           "LEFT JOIN FETCH p.category " +
+           "WHERE p.id = :id")
+    Optional<Product> findProductDetailsWithImages(Long id);
+    
     @Query("SELECT DISTINCT p FROM Product p " +
-           "LEFT JOIN FETCH p.images img " +
-           "WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%')) " +
-           "AND p.active = true " +
-           "ORDER BY CASE WHEN img.isCover = true THEN 0 ELSE 1 END")
-    List<Product> findProductsWithImagesByName(String name);
+           "LEFT JOIN FETCH p.images " +
+           "LEFT JOIN FETCH p.category " +
+           "WHERE p.id IN :ids")
+    List<Product> findProductsWithImagesByIds(Collection<Long> ids);
     
-    @Query("SELECT p FROM Product p " +
-           "LEFT JOIN p.images img " +
-           "WHERE p.active = true " +
-           "AND img.isCover = true")
-    Page<Product> findProductsWithCoverImage(Pageable pageable);
+    @Query("SELECT p.id, t.name FROM Product p JOIN p.tags t WHERE p.active = true")
+    List<Object[]> findActiveProductTagNames();
     
+    @Query("SELECT p.id, t.name FROM Product p JOIN p.tags t WHERE p.id IN :ids")
+    List<Object[]> findProductTagNamesByIds(Collection<Long> ids);
+    
+    // Forward-only cursor for exports; ordered by id so each product's image rows are adjacent
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
     @Query("SELECT p FROM Product p " +
            "LEFT JOIN FETCH p.images " +
            "LEFT JOIN FETCH p.category " +
-           "WHERE p.id = :id")
-    Optional<Product> findProductDetailsWithImages(Long id);
+           "ORDER BY p.id")
+    Stream<Product> streamAllWithImages();
 }
\ No newline at end of file
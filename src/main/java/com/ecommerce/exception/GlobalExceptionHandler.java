@@ -15,6 +15,18 @@ public class GlobalExceptionHandler implements ExceptionMapper<Exception> {
                 .build();
         }
         
+        if (exception instanceof BadRequestException) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(new ErrorResponse(exception.getMessage()))
+                .build();
+        }
+        
+        if (exception instanceof ConflictException) {
+            return Response.status(Response.Status.CONFLICT)
+                .entity(new ErrorResponse(exception.getMessage()))
+                .build();
+        }
+        
         return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
             .entity(new ErrorResponse("An unexpected error occurred"))
             .build();
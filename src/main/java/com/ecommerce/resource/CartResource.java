@@ -1,11 +1,14 @@
 package com.ecommerce.resource;
 
+import com.ecommerce.domain.dto.CartOperationDTO;
 import com.ecommerce.service.CartService;
 import io.smallrye.mutiny.Uni;
 import jakarta.inject.Inject;
+import jakarta.validation.Valid;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import java.util.List;
 
 @Path("/api/cart")
 @Produces(MediaType.APPLICATION_JSON)
@@ -30,4 +33,13 @@ public class CartResource {
         return cartService.addToCart(userId, productId, quantity)
             .onItem().transform(cart -> Response.ok(cart).build());
     }
+    
+    // Adds, re-quantifies and removes items in one request, e.g. to sync a cart edited offline
+    @PATCH
+    public Uni<Response> updateCart(
+            @HeaderParam("X-User-Id") String userId,
+            @Valid List<CartOperationDTO> operations) {
+        return cartService.updateCart(userId, operations)
+            .onItem().transform(cart -> Response.ok(cart).build());
+    }
 }
\ No newline at end of file
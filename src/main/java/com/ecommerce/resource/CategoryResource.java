@@ -2,12 +2,17 @@ package com.ecommerce.resource;
 
 import com.ecommerce.domain.dto.CategoryDTO;
 import com.ecommerce.service.CategoryService;
+import com.ecommerce.service.ETags;
 import io.smallrye.mutiny.Uni;
 import jakarta.inject.Inject;
 import jakarta.validation.Valid;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import java.util.List;
 
 @Path("/api/categories")
 @Produces(MediaType.APPLICATION_JSON)
@@ -18,30 +23,50 @@ public class CategoryResource {
     CategoryService categoryService;
     
     @GET
-    public Uni<Response> getAllCategories() {
+    public Uni<Response> getAllCategories(@Context Request request) {
         return categoryService.getAllCategories()
-            .onItem().transform(categories -> Response.ok(categories).build());
+            .onItem().transform(categories -> conditional(request, categories));
     }
     
     @GET
     @Path("/root")
-    public Uni<Response> getRootCategories() {
+    public Uni<Response> getRootCategories(@Context Request request) {
         return categoryService.getRootCategories()
-            .onItem().transform(categories -> Response.ok(categories).build());
+            .onItem().transform(categories -> conditional(request, categories));
     }
     
     @GET
     @Path("/{id}/subcategories")
-    public Uni<Response> getSubcategories(@PathParam("id") Long id) {
+    public Uni<Response> getSubcategories(@PathParam("id") Long id, @Context Request request) {
         return categoryService.getSubcategories(id)
-            .onItem().transform(categories -> Response.ok(categories).build());
+            .onItem().transform(categories -> conditional(request, categories));
+    }
+    
+    @GET
+    @Path("/{id}/breadcrumbs")
+    public Uni<Response> getBreadcrumbs(@PathParam("id") Long id, @Context Request request) {
+        return categoryService.getBreadcrumbs(id)
+            .onItem().transform(categories -> conditional(request, categories));
     }
     
     @GET
     @Path("/{id}")
-    public Uni<Response> getCategory(@PathParam("id") Long id) {
-        return categoryService.getCategory(id)
-            .onItem().transform(category -> Response.ok(category).build());
+    public Uni<Response> getCategory(@PathParam("id") Long id, @Context Request request) {
+        // A matching tag answers 304 from the row's updated_at without loading the category
+        return categoryService.getCategoryETag(id)
+            .chain(etag -> {
+                if (etag != null) {
+                    Response.ResponseBuilder notModified =
+                        request.evaluatePreconditions(new EntityTag(etag));
+                    if (notModified != null) {
+                        return Uni.createFrom().item(notModified.build());
+                    }
+                }
+                return categoryService.getCategory(id)
+                    .onItem().transform(category -> Response.ok(category)
+                        .tag(new EntityTag(ETags.of(category)))
+                        .build());
+            });
     }
     
     @POST
@@ -68,4 +93,13 @@ public class CategoryResource {
                 deleted ? Response.noContent().build() 
                        : Response.status(Response.Status.NOT_FOUND).build());
     }
+    
+    private Response conditional(Request request, List<CategoryDTO> categories) {
+        EntityTag tag = new EntityTag(ETags.ofCategories(categories));
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) {
+            return notModified.build();
+        }
+        return Response.ok(categories).tag(tag).build();
+    }
 }
\ No newline at end of file
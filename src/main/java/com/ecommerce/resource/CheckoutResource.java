@@ -20,8 +20,9 @@ public class CheckoutResource {
     @Path("/initiate")
     public Uni<Response> initiateCheckout(
             @HeaderParam("X-User-Id") String userId,
+            @HeaderParam("Idempotency-Key") String idempotencyKey,
             ShippingAddress shippingAddress) {
-        return checkoutService.initiateCheckout(userId, shippingAddress)
+        return checkoutService.initiateCheckout(userId, idempotencyKey, shippingAddress)
             .onItem().transform(order ->
                 Response.status(Response.Status.CREATED).entity(order).build());
     }
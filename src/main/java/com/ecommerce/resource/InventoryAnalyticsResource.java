@@ -1,12 +1,14 @@
 package com.ecommerce.resource;
 
 import com.ecommerce.service.InventoryAnalyticsService;
+import com.ecommerce.service.InventoryRollupService;
 import io.smallrye.mutiny.Uni;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import java.time.LocalDate;
+import java.util.Map;
 
 @Path("/api/inventory/analytics")
 @Produces(MediaType.APPLICATION_JSON)
@@ -16,6 +18,9 @@ public class InventoryAnalyticsResource {
     @Inject
     InventoryAnalyticsService analyticsService;
     
+    @Inject
+    InventoryRollupService rollupService;
+    
     @GET
     @Path("/product/{productId}")
     public Uni<Response> getProductAnalytics(
@@ -49,4 +54,20 @@ public class InventoryAnalyticsResource {
         return analyticsService.getInventoryHealth()
             .onItem().transform(health -> Response.ok(health).build());
     }
+    
+    // Checks the running health totals against the products table and rebuilds them if they drifted
+    @POST
+    @Path("/health/reconcile")
+    public Uni<Response> reconcileInventoryHealth() {
+        return analyticsService.reconcileInventoryHealth()
+            .onItem().transform(health -> Response.ok(health).build());
+    }
+    
+    // Runs the scheduled rollup now, e.g. after a backfill; safe to repeat
+    @POST
+    @Path("/rollup")
+    public Uni<Response> rollup() {
+        return rollupService.rollup()
+            .onItem().transform(processed -> Response.ok(Map.of("processed", processed)).build());
+    }
 }
\ No newline at end of file
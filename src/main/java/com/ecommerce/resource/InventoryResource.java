@@ -2,13 +2,18 @@ package com.ecommerce.resource;
 
 import com.ecommerce.domain.dto.InventoryTransactionDTO;
 import com.ecommerce.domain.dto.StockAlertDTO;
+import com.ecommerce.domain.dto.StockLevelEventDTO;
 import com.ecommerce.service.InventoryService;
+import com.ecommerce.service.InventoryStreamService;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 import jakarta.inject.Inject;
 import jakarta.validation.Valid;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import java.util.List;
+import org.jboss.resteasy.reactive.RestStreamElementType;
 
 @Path("/api/inventory")
 @Produces(MediaType.APPLICATION_JSON)
@@ -18,6 +23,9 @@ public class InventoryResource {
     @Inject
     InventoryService inventoryService;
     
+    @Inject
+    InventoryStreamService streamService;
+    
     @POST
     @Path("/transactions")
     public Uni<Response> recordTransaction(@Valid InventoryTransactionDTO transactionDTO) {
@@ -28,6 +36,24 @@ public class InventoryResource {
                     .build());
     }
     
+    // Lines are validated and applied one by one; the response reports each of them
+    @POST
+    @Path("/transactions/bulk")
+    public Uni<Response> recordTransactions(List<InventoryTransactionDTO> transactions) {
+        return inventoryService.recordTransactions(transactions)
+            .onItem().transform(result -> 
+                Response.ok(result).build());
+    }
+    
+    @POST
+    @Path("/transactions/bulk")
+    @Consumes("application/x-ndjson")
+    public Uni<Response> recordTransactionsNdjson(String body) {
+        return inventoryService.recordTransactions(body)
+            .onItem().transform(result -> 
+                Response.ok(result).build());
+    }
+    
     @GET
     @Path("/transactions/product/{productId}")
     public Uni<Response> getProductTransactions(@PathParam("productId") Long productId) {
@@ -44,6 +70,16 @@ public class InventoryResource {
                 Response.ok(products).build());
     }
     
+    // Stock changes as they are recorded, with risk level transitions; a client that
+    // reads slowly gets the latest level of each product that changed
+    @GET
+    @Path("/stream")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    public Multi<StockLevelEventDTO> streamStockLevels() {
+        return streamService.subscribe();
+    }
+    
     @POST
     @Path("/alerts")
     public Uni<Response> createStockAlert(@Valid StockAlertDTO alertDTO) {
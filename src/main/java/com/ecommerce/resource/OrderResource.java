@@ -1,13 +1,16 @@
 package com.ecommerce.resource;
 
+import com.ecommerce.domain.dto.OrderDTO;
 import com.ecommerce.domain.model.OrderStatus;
 import com.ecommerce.domain.model.ShippingAddress;
 import com.ecommerce.service.OrderService;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import org.jboss.resteasy.reactive.RestStreamElementType;
 
 @Path("/api/orders")
 @Produces(MediaType.APPLICATION_JSON)
@@ -23,6 +26,14 @@ public class OrderResource {
             .onItem().transform(orders -> Response.ok(orders).build());
     }
     
+    @GET
+    @Path("/export")
+    @Produces("application/x-ndjson")
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    public Multi<OrderDTO> exportUserOrders(@HeaderParam("X-User-Id") String userId) {
+        return orderService.streamUserOrders(userId);
+    }
+    
     @GET
     @Path("/{orderId}")
     public Uni<Response> getOrder(@PathParam("orderId") Long orderId) {
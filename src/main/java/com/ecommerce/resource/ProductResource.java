@@ -1,63 +1,174 @@
 package com.ecommerce.resource;
 
+import com.ecommerce.domain.dto.PageDTO;
+import com.ecommerce.domain.dto.ProductFilterDTO;
+import com.ecommerce.domain.dto.ProductFilterResultDTO;
 import com.ecommerce.domain.dto.ProductWithImagesDTO;
+import com.ecommerce.service.CategoryService;
 import com.ecommerce.service.ProductService;
+import com.ecommerce.service.SuggestService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import java.util.List;
+import jakarta.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
 @Path("/api/products")
 @Produces(MediaType.APPLICATION_JSON)
 public class ProductResource {
 
+    private static final String FULL_VIEW = "full";
+
     @Inject
     private ProductService productService;
 
+    @Inject
+    private SuggestService suggestService;
+
+    @Inject
+    private CategoryService categoryService;
+
+    @Inject
+    private ObjectMapper objectMapper;
+
     @GET
-    public Response getAllProducts() {
-        List<ProductWithImagesDTO> products = productService.getAllActiveProducts();
-        return Response.ok(products).build();
+    public Response getAllProducts(
+            @QueryParam("cursor") String cursor,
+            @QueryParam("size") @DefaultValue("20") int size,
+            @QueryParam("sort") @DefaultValue("id") String sort,
+            @QueryParam("direction") @DefaultValue("asc") String direction,
+            @QueryParam("view") @DefaultValue("summary") String view,
+            @Context Request request) {
+        PageDTO<ProductWithImagesDTO> products = productService.getActiveProductsPage(
+            cursor, size, sort, direction);
+        return page(request, products, view);
     }
 
     @GET
     @Path("/category/{categoryId}")
-    public Response getProductsByCategory(@PathParam("categoryId") Long categoryId) {
-        List<ProductWithImagesDTO> products = productService.getProductsByCategory(categoryId);
-        return Response.ok(products).build();
+    public Uni<Response> getProductsByCategory(
+            @PathParam("categoryId") Long categoryId,
+            @QueryParam("cursor") String cursor,
+            @QueryParam("size") @DefaultValue("20") int size,
+            @QueryParam("sort") @DefaultValue("id") String sort,
+            @QueryParam("direction") @DefaultValue("asc") String direction,
+            @QueryParam("view") @DefaultValue("summary") String view,
+            @Context Request request) {
+        // Includes the products of every subcategory
+        return categoryService.getSubtreeIds(categoryId)
+            .emitOn(Infrastructure.getDefaultWorkerPool())
+            .map(categoryIds -> productService.getProductsByCategoriesPage(
+                categoryIds, cursor, size, sort, direction))
+            .onItem().transform(products -> page(request, products, view));
+    }
+
+    @GET
+    @Path("/export")
+    @Produces("application/x-ndjson")
+    public Response exportProducts() {
+        // One JSON document per line, written while the export query is still being read
+        StreamingOutput stream = output -> productService.exportProducts(product -> {
+            try {
+                output.write(objectMapper.writeValueAsBytes(product));
+                output.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return Response.ok(stream).build();
     }
 
     @GET
     @Path("/{id}")
-    public Response getProduct(@PathParam("id") Long id) {
+    public Response getProduct(@PathParam("id") Long id, @Context Request request) {
         ProductWithImagesDTO product = productService.getProductById(id);
-        return Response.ok(product).build();
+        return conditional(request, productService.getETag(product), product);
     }
 
     @GET
     @Path("/search")
-    public Response searchProducts(@QueryParam("name") String name) {
-        List<ProductWithImagesDTO> products = productService.searchProductsByName(name);
-        return Response.ok(products).build();
+    public Response searchProducts(
+            @QueryParam("name") String name,
+            @QueryParam("cursor") String cursor,
+            @QueryParam("size") @DefaultValue("20") int size,
+            @QueryParam("sort") @DefaultValue("relevance") String sort,
+            @QueryParam("direction") @DefaultValue("asc") String direction,
+            @QueryParam("view") @DefaultValue("summary") String view,
+            @Context Request request) {
+        PageDTO<ProductWithImagesDTO> products = productService.searchProductsPage(
+            name, cursor, size, sort, direction);
+        return page(request, products, view);
+    }
+
+    @POST
+    @Path("/filter")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response filterProducts(ProductFilterDTO filter) {
+        ProductFilterResultDTO result = productService.filterProducts(filter);
+        return Response.ok(result).build();
+    }
+
+    @GET
+    @Path("/suggest")
+    public Uni<Response> suggest(
+            @QueryParam("q") String query,
+            @QueryParam("limit") @DefaultValue("10") int limit) {
+        return suggestService.suggest(query, limit)
+            .onItem().transform(suggestions -> Response.ok(suggestions).build());
     }
 
     @GET
     @Path("/with-cover")
     public Response getProductsWithCover(
-            @QueryParam("page") @DefaultValue("0") int page,
-            @QueryParam("size") @DefaultValue("20") int size) {
-        Page<ProductWithImagesDTO> products = productService.getProductsWithCoverImage(
-            PageRequest.of(page, size));
-        return Response.ok(products).build();
+            @QueryParam("cursor") String cursor,
+            @QueryParam("size") @DefaultValue("20") int size,
+            @QueryParam("sort") @DefaultValue("id") String sort,
+            @QueryParam("direction") @DefaultValue("asc") String direction,
+            @QueryParam("view") @DefaultValue("summary") String view,
+            @Context Request request) {
+        PageDTO<ProductWithImagesDTO> products = productService.getProductsWithCoverImagePage(
+            cursor, size, sort, direction);
+        return page(request, products, view);
     }
 
     @GET
     @Path("/{id}/details")
-    public Response getProductDetails(@PathParam("id") Long id) {
+    public Response getProductDetails(@PathParam("id") Long id, @Context Request request) {
+        // A matching tag from the version index skips the details query entirely
+        String indexed = productService.getProductETag(id);
+        if (indexed != null) {
+            Response.ResponseBuilder notModified = request.evaluatePreconditions(new EntityTag(indexed));
+            if (notModified != null) {
+                return notModified.build();
+            }
+        }
         ProductWithImagesDTO product = productService.getProductDetails(id);
-        return Response.ok(product).build();
+        return conditional(request, productService.getETag(product), product);
+    }
+
+    // Lists return slim summaries unless the full representation is asked for
+    private Response page(Request request, PageDTO<ProductWithImagesDTO> products, String view) {
+        String etag = productService.getPageETag(products);
+        if (FULL_VIEW.equalsIgnoreCase(view)) {
+            return conditional(request, etag, products);
+        }
+        return conditional(request, etag + "-summary", productService.summarize(products));
+    }
+
+    private Response conditional(Request request, String etag, Object entity) {
+        EntityTag tag = new EntityTag(etag);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) {
+            return notModified.build();
+        }
+        return Response.ok(entity).tag(tag).build();
     }
 }
\ No newline at end of file
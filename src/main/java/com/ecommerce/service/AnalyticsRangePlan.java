@@ -0,0 +1,71 @@
+package com.ecommerce.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a date range into the fewest analytics rows that cover it: whole months,
+ * then whole weeks (from Monday) in what is left at either end, then single days.
+ * Only periods that ended before today are taken from the cube, since the current
+ * ones are still being refreshed.
+ */
+final class AnalyticsRangePlan {
+
+    private final List<LocalDate> months = new ArrayList<>();
+    private final List<LocalDate> weeks = new ArrayList<>();
+    private final List<LocalDate> days = new ArrayList<>();
+
+    private AnalyticsRangePlan() {
+    }
+
+    static AnalyticsRangePlan of(LocalDate start, LocalDate end, LocalDate today) {
+        AnalyticsRangePlan plan = new AnalyticsRangePlan();
+        LocalDate settled = end.isBefore(today) ? end : today.minusDays(1);
+
+        LocalDate month = start.getDayOfMonth() == 1 ? start : start.with(TemporalAdjusters.firstDayOfNextMonth());
+        while (!month.plusMonths(1).minusDays(1).isAfter(settled)) {
+            plan.months.add(month);
+            month = month.plusMonths(1);
+        }
+
+        if (plan.months.isEmpty()) {
+            plan.cover(start, end, settled);
+        } else {
+            plan.cover(start, plan.months.get(0).minusDays(1), settled);
+            plan.cover(month, end, settled);
+        }
+        return plan;
+    }
+
+    List<LocalDate> getMonths() {
+        return months;
+    }
+
+    List<LocalDate> getWeeks() {
+        return weeks;
+    }
+
+    List<LocalDate> getDays() {
+        return days;
+    }
+
+    // Whole settled weeks of [from, to], and the days either side of them
+    private void cover(LocalDate from, LocalDate to, LocalDate settled) {
+        LocalDate day = from;
+        LocalDate week = from.with(TemporalAdjusters.nextOrSame(DayOfWeek.MONDAY));
+        while (!week.plusDays(6).isAfter(to) && !week.plusDays(6).isAfter(settled)) {
+            for (; day.isBefore(week); day = day.plusDays(1)) {
+                days.add(day);
+            }
+            weeks.add(week);
+            week = week.plusWeeks(1);
+            day = week;
+        }
+        for (; !day.isAfter(to); day = day.plusDays(1)) {
+            days.add(day);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.ecommerce.service;
+
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import java.util.function.Supplier;
+
+/**
+ * Blocking work, such as JDBC or a remote API call, inside a reactive chain. The
+ * work runs on the worker pool and its result comes back on the Vert.x context
+ * the Uni was created on, where the chain's reactive Panache session lives.
+ */
+final class Blocking {
+
+    private Blocking() {
+    }
+
+    static <T> Uni<T> call(Supplier<T> work) {
+        Context context = Vertx.currentContext();
+        Uni<T> uni = Uni.createFrom().item(work).runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+        // Outside a request there is no context to return to
+        return context == null ? uni : uni.emitOn(command -> context.runOnContext(ignored -> command.run()));
+    }
+
+    static Uni<Void> run(Runnable work) {
+        return call(() -> {
+            work.run();
+            return null;
+        });
+    }
+}
\ No newline at end of file
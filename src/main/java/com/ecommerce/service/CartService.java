@@ -1,81 +1,103 @@
 package com.ecommerce.service;
 
+import com.ecommerce.domain.dto.CartOperationDTO;
 import com.ecommerce.domain.model.Cart;
-import com.ecommerce.domain.model.CartItem;
-import com.ecommerce.domain.model.Product;
-import com.ecommerce.domain.repository.CartRepository;
-import com.ecommerce.domain.repository.ProductRepository;
+import com.ecommerce.exception.BadRequestException;
 import com.ecommerce.exception.ResourceNotFoundException;
 import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
-import jakarta.transaction.Transactional;
-import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 @ApplicationScoped
 public class CartService {
     
+    static final int MAX_OPERATIONS = 500;
+    
     @Inject
-    CartRepository cartRepository;
+    CartStore cartStore;
     
     @Inject
-    ProductRepository productRepository;
+    ProductPriceCache priceCache;
     
+    // Carts live in the write-behind store; a user without one gets an empty cart and no row
     public Uni<Cart> getCart(String userId) {
-        return cartRepository.findByUserId(userId)
-            .onItem().ifNull().switchTo(() -> createCart(userId));
+        return Uni.createFrom().item(() -> cartStore.get(userId))
+            .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
     }
     
-    @Transactional
     public Uni<Cart> addToCart(String userId, Long productId, Integer quantity) {
-        return Uni.combine().all().unis(
-            getCart(userId),
-            productRepository.findById(productId)
-        ).asTuple()
-        .chain(tuple -> {
-            Cart cart = tuple.getItem1();
-            Product product = tuple.getItem2();
-            
-            if (product == null) {
-                return Uni.createFrom().failure(
-                    new ResourceNotFoundException("Product not found"));
-            }
-            
-            CartItem cartItem = findOrCreateCartItem(cart, product);
-            cartItem.setQuantity(cartItem.getQuantity() + quantity);
-            cartItem.setPrice(product.getPrice());
-            cartItem.setSubtotal(product.getPrice().multiply(
-                BigDecimal.valueOf(cartItem.getQuantity())));
-            
-            updateCartTotal(cart);
-            
-            return cartRepository.persist(cart);
-        });
+        CartOperationDTO add = new CartOperationDTO();
+        add.setType(CartOperationDTO.Type.ADD);
+        add.setProductId(productId);
+        add.setQuantity(quantity);
+        return updateCart(userId, List.of(add));
+    }
+    
+    /**
+     * Applies the operations in order as one change to the cart: prices come from
+     * the price cache, which reads any it lacks in a single query, and the cart is
+     * totalled and stored once. If any operation is invalid or adds a product that
+     * is unknown or unavailable, none is applied.
+     */
+    public Uni<Cart> updateCart(String userId, List<CartOperationDTO> operations) {
+        return Uni.createFrom().item(() -> applyOperations(userId, operations))
+            .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
     }
     
-    private CartItem findOrCreateCartItem(Cart cart, Product product) {
-        return cart.getItems().stream()
-            .filter(item -> item.getProduct().getId().equals(product.getId()))
-            .findFirst()
-            .orElseGet(() -> {
-                CartItem newItem = new CartItem();
-                newItem.setCart(cart);
-                newItem.setProduct(product);
-                newItem.setQuantity(0);
-                cart.getItems().add(newItem);
-                return newItem;
-            });
+    private Cart applyOperations(String userId, List<CartOperationDTO> operations) {
+        if (operations == null || operations.size() > MAX_OPERATIONS) {
+            throw new BadRequestException("Between 0 and " + MAX_OPERATIONS + " operations are allowed");
+        }
+        // Removing needs no product, so a product deleted since it was added can still be removed
+        Set<Long> productIds = new HashSet<>();
+        for (CartOperationDTO operation : operations) {
+            validate(operation);
+            if (!removes(operation)) {
+                productIds.add(operation.getProductId());
+            }
+        }
+        PriceTable prices = productIds.isEmpty() ? new PriceTable(0) : priceCache.lookup(productIds);
+        for (Long productId : productIds) {
+            if (!prices.contains(productId)) {
+                throw new ResourceNotFoundException("Product not found: " + productId);
+            }
+            if (!prices.available(productId)) {
+                throw new BadRequestException("Product is not available: " + productId);
+            }
+        }
+        return cartStore.update(userId, contents -> {
+            for (CartOperationDTO operation : operations) {
+                long productId = operation.getProductId();
+                if (removes(operation)) {
+                    contents.remove(productId);
+                } else if (operation.getType() == CartOperationDTO.Type.ADD) {
+                    contents.add(productId, prices.name(productId), prices.price(productId), operation.getQuantity());
+                } else {
+                    contents.setQuantity(productId, prices.name(productId), prices.price(productId), operation.getQuantity());
+                }
+            }
+        });
     }
     
-    private void updateCartTotal(Cart cart) {
-        cart.setTotalAmount(cart.getItems().stream()
-            .map(CartItem::getSubtotal)
-            .reduce(BigDecimal.ZERO, BigDecimal::add));
+    private static boolean removes(CartOperationDTO operation) {
+        return operation.getType() == CartOperationDTO.Type.REMOVE
+            || operation.getType() == CartOperationDTO.Type.UPDATE_QUANTITY && operation.getQuantity() == 0;
     }
     
-    private Uni<Cart> createCart(String userId) {
-        Cart cart = new Cart();
-        cart.setUserId(userId);
-        return cartRepository.persist(cart);
+    private static void validate(CartOperationDTO operation) {
+        if (operation == null || operation.getType() == null || operation.getProductId() == null) {
+            throw new BadRequestException("Each operation needs a type and a product ID");
+        }
+        Integer quantity = operation.getQuantity();
+        if (operation.getType() == CartOperationDTO.Type.ADD && (quantity == null || quantity <= 0)) {
+            throw new BadRequestException("Quantity to add must be positive");
+        }
+        if (operation.getType() == CartOperationDTO.Type.UPDATE_QUANTITY && (quantity == null || quantity < 0)) {
+            throw new BadRequestException("Quantity must not be negative");
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,540 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.model.Cart;
+import com.ecommerce.domain.model.CartItem;
+import com.ecommerce.domain.model.Money;
+import com.ecommerce.domain.model.Product;
+import com.ecommerce.exception.BadRequestException;
+import com.ecommerce.exception.ConflictException;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.smallrye.mutiny.subscription.Cancellable;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.Session;
+
+/**
+ * Write-behind store for shopping carts. Active carts live in memory, striped by
+ * userId, and every change is made there; a cart is written to the carts and
+ * cart_items tables once its oldest unwritten change is FLUSH_DELAY old, together
+ * with every other cart that is due, so a burst of edits costs one write. A cart
+ * is also written straight away at checkout.
+ *
+ * A cart gets a row only once it has items: reading the cart of a user who never
+ * added anything creates nothing. Written carts that stay idle for IDLE_TIMEOUT
+ * are dropped from memory and read back on their next use.
+ *
+ * Requests for one user may reach any instance, so the row is the authority:
+ * carts.user_id is unique and every write checks carts.version. Each use of a
+ * cart held here first reads the row's version, one indexed lookup, and reads
+ * the cart again if another instance wrote it since. A write that finds the
+ * version moved writes nothing for that cart; the cart is read again, its
+ * unwritten changes are replayed over it, and it is written on the next tick.
+ */
+@ApplicationScoped
+public class CartStore {
+    
+    private static final int STRIPES = 64;
+    private static final Duration FLUSH_TICK = Duration.ofMillis(500);
+    private static final long IDLE_TIMEOUT_MS = Duration.ofMinutes(30).toMillis();
+    private static final int BATCH_SIZE = 500;
+    // Writes of the due carts at checkout and shutdown, each after reading conflicting carts again
+    private static final int MAX_ATTEMPTS = 3;
+    
+    private static final String LOAD_CART =
+        "SELECT c.id, c.version, i.product_id, i.quantity, i.price, p.name FROM carts c " +
+        "LEFT JOIN cart_items i ON i.cart_id = c.id LEFT JOIN products p ON p.id = i.product_id " +
+        "WHERE c.user_id = ? ORDER BY i.id";
+    private static final String READ_VERSION = "SELECT version FROM carts WHERE user_id = ?";
+    // Returns nothing when another instance created the user's cart first
+    private static final String INSERT_CART =
+        "INSERT INTO carts (user_id, total_amount) VALUES (?, ?) ON CONFLICT (user_id) DO NOTHING RETURNING id";
+    // Matches nothing when another instance wrote the cart since it was read
+    private static final String UPDATE_CART =
+        "UPDATE carts SET total_amount = ?, version = version + 1 WHERE id = ? AND version = ?";
+    private static final String DELETE_ITEMS = "DELETE FROM cart_items WHERE cart_id = ANY(?)";
+    private static final String INSERT_ITEM =
+        "INSERT INTO cart_items (cart_id, product_id, quantity, price, subtotal) VALUES (?, ?, ?, ?, ?)";
+    
+    @Inject
+    EntityManager entityManager;
+    
+    @ConfigProperty(name = "cart.write-behind.delay", defaultValue = "2s")
+    Duration flushDelay;
+    
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    // One write at a time, so a cart never gets two rows
+    private final ReentrantLock writing = new ReentrantLock();
+    private volatile Cancellable flusher;
+    
+    public CartStore() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+    
+    void onStart(@Observes StartupEvent event) {
+        flusher = Multi.createFrom().ticks().every(FLUSH_TICK)
+            .emitOn(Infrastructure.getDefaultWorkerPool())
+            .subscribe().with(tick -> flushDue(), Throwable::printStackTrace);
+    }
+    
+    void onStop(@Observes ShutdownEvent event) {
+        if (flusher != null) {
+            flusher.cancel();
+        }
+        flushRetrying(null);
+    }
+    
+    // Blocking: a cart not in memory is read from the database first
+    public Cart get(String userId) {
+        if (userId == null) {
+            return emptyCart(null);
+        }
+        Stripe stripe = stripe(userId);
+        CartState state = state(userId);
+        synchronized (stripe) {
+            return state.toCart();
+        }
+    }
+    
+    /**
+     * Applies the change to the user's cart in memory and returns the cart as it
+     * is now; the change is written on a later tick.
+     */
+    public Cart update(String userId, Consumer<Contents> change) {
+        if (userId == null) {
+            throw new BadRequestException("User ID is required");
+        }
+        Stripe stripe = stripe(userId);
+        CartState state = state(userId);
+        synchronized (stripe) {
+            change.accept(state.contents);
+            state.unwritten.add(change);
+            if (state.dirtySince == 0) {
+                state.dirtySince = System.currentTimeMillis();
+            }
+            return state.toCart();
+        }
+    }
+    
+    // Writes the user's cart now if it has unwritten changes, e.g. at checkout; throws if that fails
+    public void flush(String userId) {
+        if (userId != null && !flushRetrying(userId)) {
+            throw new ConflictException("The cart is being changed elsewhere, try again");
+        }
+    }
+    
+    // Carts another instance wrote meanwhile are read again and written once more
+    private boolean flushRetrying(String userId) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (flush(Long.MAX_VALUE, userId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    void flushDue() {
+        if (!writing.tryLock()) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            flush(now - flushDelay.toMillis(), null);
+            evictIdle(now);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        } finally {
+            writing.unlock();
+        }
+    }
+    
+    // Copies of the carts whose changes are older than dueBefore; only the user's when userId is set
+    private List<Snapshot> pending(long dueBefore, String userId) {
+        List<Snapshot> due = new ArrayList<>();
+        for (Stripe stripe : userId != null ? new Stripe[] {stripe(userId)} : stripes) {
+            synchronized (stripe) {
+                for (CartState state : stripe.carts.values()) {
+                    if (state.dirtySince != 0 && state.dirtySince <= dueBefore
+                            && (userId == null || userId.equals(state.userId))) {
+                        state.writing = true;
+                        due.add(new Snapshot(state));
+                    }
+                }
+            }
+        }
+        return due;
+    }
+    
+    /**
+     * Writes the due carts in one transaction and returns false if another instance
+     * had written any of them first; those are read again and stay due. A cart
+     * changed again while it was being written stays due; on failure every cart
+     * stays due and is retried.
+     */
+    private boolean flush(long dueBefore, String userId) {
+        writing.lock();
+        try {
+            // Copied under the write lock, so a cart written by a concurrent flush already has its id
+            List<Snapshot> due = pending(dueBefore, userId);
+            if (due.isEmpty()) {
+                return true;
+            }
+            List<Snapshot> conflicts = null;
+            try {
+                conflicts = store(due);
+            } finally {
+                for (Snapshot snapshot : due) {
+                    boolean written = conflicts != null && !conflicts.contains(snapshot);
+                    Stripe stripe = stripe(snapshot.state.userId);
+                    synchronized (stripe) {
+                        CartState state = snapshot.state;
+                        state.writing = false;
+                        if (written) {
+                            state.cartId = snapshot.cartId;
+                            state.storedVersion = snapshot.storedVersion;
+                            state.unwritten.subList(0, snapshot.changes).clear();
+                            if (state.unwritten.isEmpty()) {
+                                state.dirtySince = 0;
+                            }
+                        }
+                    }
+                }
+            }
+            conflicts.forEach(snapshot -> refresh(snapshot.state));
+            return conflicts.isEmpty();
+        } finally {
+            writing.unlock();
+        }
+    }
+    
+    // Returns the snapshots left unwritten because another instance wrote their cart first
+    List<Snapshot> store(List<Snapshot> due) {
+        return QuarkusTransaction.requiringNew().call(() ->
+            entityManager.unwrap(Session.class).doReturningWork(connection -> write(connection, due)));
+    }
+    
+    // Sets the id and version each written cart now has on its snapshot
+    private List<Snapshot> write(Connection connection, List<Snapshot> due) throws SQLException {
+        List<Snapshot> conflicts = new ArrayList<>();
+        List<Snapshot> written = new ArrayList<>();
+        List<Snapshot> updated = new ArrayList<>();
+        List<Long> cartIds = new ArrayList<>();
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_CART);
+             PreparedStatement update = connection.prepareStatement(UPDATE_CART)) {
+            for (Snapshot snapshot : due) {
+                if (snapshot.cartId == null) {
+                    if (snapshot.items.isEmpty()) {
+                        // Never stored and still empty: nothing to write
+                        continue;
+                    }
+                    insert.setString(1, snapshot.state.userId);
+                    insert.setBigDecimal(2, snapshot.total.toBigDecimal());
+                    try (ResultSet result = insert.executeQuery()) {
+                        if (result.next()) {
+                            snapshot.cartId = result.getLong(1);
+                            snapshot.storedVersion = 0;
+                            written.add(snapshot);
+                        } else {
+                            conflicts.add(snapshot);
+                        }
+                    }
+                } else {
+                    update.setBigDecimal(1, snapshot.total.toBigDecimal());
+                    update.setLong(2, snapshot.cartId);
+                    update.setLong(3, snapshot.storedVersion);
+                    update.addBatch();
+                    updated.add(snapshot);
+                }
+            }
+            int[] counts = update.executeBatch();
+            for (int i = 0; i < counts.length; i++) {
+                Snapshot snapshot = updated.get(i);
+                if (counts[i] == 0) {
+                    conflicts.add(snapshot);
+                } else {
+                    snapshot.storedVersion++;
+                    written.add(snapshot);
+                    cartIds.add(snapshot.cartId);
+                }
+            }
+        }
+        
+        if (!cartIds.isEmpty()) {
+            try (PreparedStatement delete = connection.prepareStatement(DELETE_ITEMS)) {
+                delete.setArray(1, connection.createArrayOf("bigint", cartIds.toArray()));
+                delete.executeUpdate();
+            }
+        }
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_ITEM)) {
+            int batched = 0;
+            for (Snapshot snapshot : written) {
+                for (Line item : snapshot.items) {
+                    insert.setLong(1, snapshot.cartId);
+                    insert.setLong(2, item.productId);
+                    insert.setInt(3, item.quantity);
+                    insert.setBigDecimal(4, item.price.toBigDecimal());
+                    insert.setBigDecimal(5, item.subtotal().toBigDecimal());
+                    insert.addBatch();
+                    if (++batched % BATCH_SIZE == 0) {
+                        insert.executeBatch();
+                    }
+                }
+            }
+            insert.executeBatch();
+        }
+        return conflicts;
+    }
+    
+    private void evictIdle(long now) {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.carts.values().removeIf(state ->
+                    state.dirtySince == 0 && now - state.lastUsed > IDLE_TIMEOUT_MS);
+            }
+        }
+    }
+    
+    // The user's cart, read from the database outside the stripe's lock if not in memory
+    // or if another instance wrote it since it was read
+    private CartState state(String userId) {
+        Stripe stripe = stripe(userId);
+        CartState state;
+        synchronized (stripe) {
+            state = stripe.carts.get(userId);
+            if (state != null) {
+                // Marked used under the lock, so it is not evicted before the caller takes it
+                state.lastUsed = System.currentTimeMillis();
+            }
+        }
+        if (state == null) {
+            CartState loaded = load(userId);
+            synchronized (stripe) {
+                CartState existing = stripe.carts.putIfAbsent(userId, loaded);
+                return existing != null ? existing : loaded;
+            }
+        }
+        Long stored = storedVersion(userId);
+        boolean current;
+        synchronized (stripe) {
+            // A write in flight settles the version itself
+            current = state.writing
+                || Objects.equals(stored, state.cartId != null ? state.storedVersion : null);
+        }
+        if (!current) {
+            refresh(state);
+        }
+        return state;
+    }
+    
+    // Reads the cart again and replays its unwritten changes over it, unless it was written meanwhile
+    private void refresh(CartState state) {
+        Stripe stripe = stripe(state.userId);
+        Long cartId;
+        long storedVersion;
+        synchronized (stripe) {
+            cartId = state.cartId;
+            storedVersion = state.storedVersion;
+        }
+        CartState loaded = load(state.userId);
+        synchronized (stripe) {
+            if (state.writing || !Objects.equals(cartId, state.cartId) || storedVersion != state.storedVersion) {
+                return;
+            }
+            state.cartId = loaded.cartId;
+            state.storedVersion = loaded.storedVersion;
+            state.contents.lines.clear();
+            state.contents.lines.putAll(loaded.contents.lines);
+            state.unwritten.forEach(change -> change.accept(state.contents));
+        }
+    }
+    
+    // The version of the user's cart row, or null if it has none
+    Long storedVersion(String userId) {
+        return QuarkusTransaction.requiringNew().call(() ->
+            entityManager.unwrap(Session.class).doReturningWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(READ_VERSION)) {
+                    statement.setString(1, userId);
+                    try (ResultSet result = statement.executeQuery()) {
+                        return result.next() ? result.getLong(1) : null;
+                    }
+                }
+            }));
+    }
+    
+    CartState load(String userId) {
+        return QuarkusTransaction.requiringNew().call(() ->
+            entityManager.unwrap(Session.class).doReturningWork(connection -> {
+                CartState state = new CartState(userId);
+                try (PreparedStatement statement = connection.prepareStatement(LOAD_CART)) {
+                    statement.setString(1, userId);
+                    try (ResultSet result = statement.executeQuery()) {
+                        while (result.next()) {
+                            state.cartId = result.getLong(1);
+                            state.storedVersion = result.getLong(2);
+                            long productId = result.getLong(3);
+                            if (!result.wasNull()) {
+                                state.contents.lines.put(productId, new Line(productId, result.getString(6),
+                                    Money.of(result.getBigDecimal(5)), result.getInt(4)));
+                            }
+                        }
+                    }
+                }
+                return state;
+            }));
+    }
+    
+    private Stripe stripe(String userId) {
+        return stripes[Math.floorMod(userId.hashCode(), STRIPES)];
+    }
+    
+    private static Cart emptyCart(String userId) {
+        Cart cart = new Cart();
+        cart.setUserId(userId);
+        return cart;
+    }
+    
+    /**
+     * The items of one cart, changed only inside CartStore.update. Prices are taken
+     * as each product is added.
+     */
+    public static final class Contents {
+        // productId -> line, in the order products were first added
+        private final Map<Long, Line> lines = new LinkedHashMap<>();
+        
+        public void add(long productId, String productName, Money price, int quantity) {
+            Line line = lines.get(productId);
+            setQuantity(productId, productName, price, (line != null ? line.quantity : 0) + quantity);
+        }
+        
+        // A quantity of 0 or less removes the product
+        public void setQuantity(long productId, String productName, Money price, int quantity) {
+            if (quantity <= 0) {
+                lines.remove(productId);
+            } else {
+                lines.put(productId, new Line(productId, productName, price, quantity));
+            }
+        }
+        
+        public void remove(Long productId) {
+            lines.remove(productId);
+        }
+        
+        Money total() {
+            return total(lines.values());
+        }
+        
+        private static Money total(Collection<Line> lines) {
+            Money total = Money.zero(Money.DEFAULT_CURRENCY);
+            for (Line line : lines) {
+                total = total.plus(line.subtotal());
+            }
+            return total;
+        }
+    }
+    
+    private static final class Stripe {
+        private final Map<String, CartState> carts = new HashMap<>();
+    }
+    
+    // A cart in memory; guarded by its stripe's monitor
+    static final class CartState {
+        private final String userId;
+        private final Contents contents = new Contents();
+        // Null until the cart has a row
+        private Long cartId;
+        // carts.version of the row the contents were read from or last written as
+        private long storedVersion;
+        // Changes made since, oldest first, to replay if another instance wrote the row
+        private final List<Consumer<Contents>> unwritten = new ArrayList<>();
+        // Set while a flush is writing the cart
+        private boolean writing;
+        // When the oldest unwritten change was made; 0 when the row is current
+        private long dirtySince;
+        private long lastUsed = System.currentTimeMillis();
+        
+        CartState(String userId) {
+            this.userId = userId;
+        }
+        
+        private Cart toCart() {
+            Cart cart = emptyCart(userId);
+            cart.setId(cartId);
+            for (Line line : contents.lines.values()) {
+                BigDecimal price = line.price.toBigDecimal();
+                Product product = new Product();
+                product.setId(line.productId);
+                product.setName(line.productName);
+                product.setPrice(price);
+                CartItem item = new CartItem();
+                item.setProduct(product);
+                item.setQuantity(line.quantity);
+                item.setPrice(price);
+                item.setSubtotal(line.subtotal().toBigDecimal());
+                cart.getItems().add(item);
+            }
+            cart.setTotalAmount(Contents.total(contents.lines.values()).toBigDecimal());
+            return cart;
+        }
+    }
+    
+    private static final class Line {
+        private final long productId;
+        private final String productName;
+        private final Money price;
+        private final int quantity;
+        
+        private Line(long productId, String productName, Money price, int quantity) {
+            this.productId = productId;
+            this.productName = productName;
+            this.price = price;
+            this.quantity = quantity;
+        }
+        
+        private Money subtotal() {
+            return price.times(quantity);
+        }
+    }
+    
+    // What one write sends for a cart, copied under its stripe's lock
+    static final class Snapshot {
+        private final CartState state;
+        // How many of the cart's unwritten changes it includes
+        private final int changes;
+        private final List<Line> items;
+        private final Money total;
+        private Long cartId;
+        private long storedVersion;
+        
+        private Snapshot(CartState state) {
+            this.state = state;
+            this.changes = state.unwritten.size();
+            this.items = new ArrayList<>(state.contents.lines.values());
+            this.cartId = state.cartId;
+            this.storedVersion = state.storedVersion;
+            this.total = Contents.total(items);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,223 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.dto.ProductSummaryDTO;
+import com.ecommerce.domain.dto.ProductWithImagesDTO;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable view of the active catalog. A new snapshot is derived from the
+ * previous one whenever products change; readers never see a partial update.
+ */
+final class CatalogSnapshot {
+
+    private static final Comparator<ProductWithImagesDTO> BY_ID =
+        Comparator.comparing(ProductWithImagesDTO::getId);
+
+    private final long generation;
+    private final List<ProductWithImagesDTO> products;
+    private final Map<Long, ProductWithImagesDTO> byId;
+    private final Map<Long, List<ProductWithImagesDTO>> byCategory;
+    private final Map<Long, Long> versions;
+
+    // Sorted views are derived on first use and memoized; the snapshot never changes,
+    // so they can not go stale
+    private final Map<ProductSort, List<ProductWithImagesDTO>> orderings = new ConcurrentHashMap<>();
+    private final Map<ProductSort, List<ProductWithImagesDTO>> coverOrderings = new ConcurrentHashMap<>();
+    private final Map<Long, Map<ProductSort, List<ProductWithImagesDTO>>> categoryOrderings =
+        new ConcurrentHashMap<>();
+    private final Map<Set<Long>, Map<ProductSort, List<ProductWithImagesDTO>>> subtreeOrderings =
+        new ConcurrentHashMap<>();
+    private final Map<Long, String> etags = new ConcurrentHashMap<>();
+    private final Map<Long, ProductSummaryDTO> summaries = new ConcurrentHashMap<>();
+
+    private CatalogSnapshot(long generation,
+                            Map<Long, ProductWithImagesDTO> byId,
+                            Map<Long, List<ProductWithImagesDTO>> byCategory,
+                            Map<Long, Long> versions) {
+        this.generation = generation;
+        this.byId = Collections.unmodifiableMap(byId);
+        this.byCategory = Collections.unmodifiableMap(byCategory);
+        this.versions = Collections.unmodifiableMap(versions);
+
+        List<ProductWithImagesDTO> sorted = new ArrayList<>(byId.values());
+        sorted.sort(BY_ID);
+        this.products = Collections.unmodifiableList(sorted);
+    }
+
+    static CatalogSnapshot of(Collection<ProductWithImagesDTO> products, Map<Long, Long> versions) {
+        Map<Long, ProductWithImagesDTO> byId = new HashMap<>();
+        Map<Long, List<ProductWithImagesDTO>> grouped = new HashMap<>();
+        for (ProductWithImagesDTO product : products) {
+            byId.put(product.getId(), product);
+            if (product.getCategoryId() != null) {
+                grouped.computeIfAbsent(product.getCategoryId(), id -> new ArrayList<>()).add(product);
+            }
+        }
+
+        Map<Long, List<ProductWithImagesDTO>> byCategory = new HashMap<>();
+        grouped.forEach((categoryId, members) -> {
+            members.sort(BY_ID);
+            byCategory.put(categoryId, Collections.unmodifiableList(members));
+        });
+
+        return new CatalogSnapshot(1, byId, byCategory, new HashMap<>(versions));
+    }
+
+    /**
+     * Derives the next snapshot. Only the categories touched by the change set are
+     * re-collected; every other category list is shared with this snapshot.
+     */
+    CatalogSnapshot withChanges(Collection<ProductWithImagesDTO> upserts,
+                                Map<Long, Long> upsertVersions,
+                                Collection<Long> removals) {
+        Map<Long, ProductWithImagesDTO> nextById = new HashMap<>(byId);
+        Map<Long, Long> nextVersions = new HashMap<>(versions);
+        Set<Long> touchedCategories = new HashSet<>();
+
+        for (Long id : removals) {
+            ProductWithImagesDTO removed = nextById.remove(id);
+            nextVersions.remove(id);
+            if (removed != null && removed.getCategoryId() != null) {
+                touchedCategories.add(removed.getCategoryId());
+            }
+        }
+
+        for (ProductWithImagesDTO product : upserts) {
+            ProductWithImagesDTO previous = nextById.put(product.getId(), product);
+            nextVersions.put(product.getId(), upsertVersions.get(product.getId()));
+            if (previous != null && previous.getCategoryId() != null) {
+                touchedCategories.add(previous.getCategoryId());
+            }
+            if (product.getCategoryId() != null) {
+                touchedCategories.add(product.getCategoryId());
+            }
+        }
+
+        Set<Long> changedIds = new HashSet<>(removals);
+        upserts.forEach(product -> changedIds.add(product.getId()));
+
+        Map<Long, List<ProductWithImagesDTO>> nextByCategory = new HashMap<>(byCategory);
+        for (Long categoryId : touchedCategories) {
+            List<ProductWithImagesDTO> members = new ArrayList<>();
+            for (ProductWithImagesDTO product : getByCategory(categoryId)) {
+                if (!changedIds.contains(product.getId())) {
+                    members.add(product);
+                }
+            }
+            for (ProductWithImagesDTO product : upserts) {
+                if (categoryId.equals(product.getCategoryId())) {
+                    members.add(product);
+                }
+            }
+            members.sort(BY_ID);
+            if (members.isEmpty()) {
+                nextByCategory.remove(categoryId);
+            } else {
+                nextByCategory.put(categoryId, Collections.unmodifiableList(members));
+            }
+        }
+
+        return new CatalogSnapshot(generation + 1, nextById, nextByCategory, nextVersions);
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    List<ProductWithImagesDTO> getProducts() {
+        return products;
+    }
+
+    ProductWithImagesDTO get(Long id) {
+        return byId.get(id);
+    }
+
+    List<ProductWithImagesDTO> getByCategory(Long categoryId) {
+        return byCategory.getOrDefault(categoryId, Collections.emptyList());
+    }
+
+    Long getVersion(Long id) {
+        return versions.get(id);
+    }
+
+    // Null for products outside the snapshot (inactive or unknown)
+    String getETag(Long id) {
+        ProductWithImagesDTO product = byId.get(id);
+        if (product == null) {
+            return null;
+        }
+        return etags.computeIfAbsent(id, key -> ETags.of(product, versions.get(key)));
+    }
+
+    // Summaries of snapshot members are derived once and shared by every list response
+    ProductSummaryDTO summaryOf(ProductWithImagesDTO product) {
+        if (byId.get(product.getId()) != product) {
+            return summarize(product);
+        }
+        return summaries.computeIfAbsent(product.getId(), id -> summarize(product));
+    }
+
+    List<ProductWithImagesDTO> ordered(ProductSort sort) {
+        if (sort == ProductSort.ID) {
+            return products;
+        }
+        return orderings.computeIfAbsent(sort, key -> sorted(products, key));
+    }
+
+    List<ProductWithImagesDTO> orderedByCategory(Long categoryId, ProductSort sort) {
+        List<ProductWithImagesDTO> members = getByCategory(categoryId);
+        if (sort == ProductSort.ID || members.isEmpty()) {
+            return members;
+        }
+        return categoryOrderings.computeIfAbsent(categoryId, id -> new ConcurrentHashMap<>())
+            .computeIfAbsent(sort, key -> sorted(members, key));
+    }
+
+    // Products of several categories, e.g. a category with all of its descendants
+    List<ProductWithImagesDTO> orderedByCategories(Set<Long> categoryIds, ProductSort sort) {
+        if (categoryIds.size() == 1) {
+            return orderedByCategory(categoryIds.iterator().next(), sort);
+        }
+        return subtreeOrderings.computeIfAbsent(Set.copyOf(categoryIds), ids -> new ConcurrentHashMap<>())
+            .computeIfAbsent(sort, key -> {
+                List<ProductWithImagesDTO> members = new ArrayList<>();
+                for (Long categoryId : categoryIds) {
+                    members.addAll(getByCategory(categoryId));
+                }
+                return sorted(members, key);
+            });
+    }
+
+    List<ProductWithImagesDTO> orderedWithCover(ProductSort sort) {
+        return coverOrderings.computeIfAbsent(sort, key -> {
+            List<ProductWithImagesDTO> withCover = new ArrayList<>();
+            for (ProductWithImagesDTO product : products) {
+                if (product.getCoverImageUrl() != null) {
+                    withCover.add(product);
+                }
+            }
+            return sorted(withCover, key);
+        });
+    }
+
+    static ProductSummaryDTO summarize(ProductWithImagesDTO product) {
+        return new ProductSummaryDTO(product.getId(), product.getName(), product.getPrice(),
+            product.getCoverImageUrl(), product.getAverageRating(),
+            product.getStockQuantity() != null && product.getStockQuantity() > 0);
+    }
+
+    static List<ProductWithImagesDTO> sorted(Collection<ProductWithImagesDTO> products, ProductSort sort) {
+        List<ProductWithImagesDTO> sorted = new ArrayList<>(products);
+        sorted.sort(sort.comparator());
+        return Collections.unmodifiableList(sorted);
+    }
+}
\ No newline at end of file
@@ -1,31 +1,66 @@
 package com.ecommerce.service;
 
 import com.ecommerce.domain.dto.CategoryDTO;
+import com.ecommerce.domain.event.CategoryChangedEvent;
 import com.ecommerce.domain.model.Category;
 import com.ecommerce.domain.repository.CategoryRepository;
 import com.ecommerce.exception.ResourceNotFoundException;
 import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
+import java.time.Duration;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @ApplicationScoped
 public class CategoryService {
     
+    // How long a cached tree is trusted before its stamp is checked again
+    private static final long REVALIDATE_NANOS = Duration.ofSeconds(1).toNanos();
+    
     @Inject
     CategoryRepository categoryRepository;
     
-    public Uni<List<Category>> getAllCategories() {
-        return categoryRepository.listAll();
+    @Inject
+    Event<CategoryChangedEvent> categoryChanged;
+    
+    private volatile CachedTree cached;
+    private long treeGeneration;
+    
+    public Uni<List<CategoryDTO>> getAllCategories() {
+        return tree().map(CategoryTree::getAll);
+    }
+    
+    public Uni<List<CategoryDTO>> getRootCategories() {
+        return tree().map(CategoryTree::getRoots);
+    }
+    
+    public Uni<List<CategoryDTO>> getSubcategories(Long parentId) {
+        return tree().map(current -> current.getChildren(parentId));
+    }
+    
+    public Uni<List<CategoryDTO>> getBreadcrumbs(Long id) {
+        return tree().map(current -> {
+            if (!current.contains(id)) {
+                throw new ResourceNotFoundException("Category not found");
+            }
+            return current.getPath(id);
+        });
     }
     
-    public Uni<List<Category>> getRootCategories() {
-        return categoryRepository.findRootCategories();
+    // Unknown ids resolve to themselves, so lookups by them simply match nothing
+    public Uni<Set<Long>> getSubtreeIds(Long id) {
+        return tree().map(current -> current.contains(id) ? current.getSubtreeIds(id) : Set.of(id));
     }
     
-    public Uni<List<Category>> getSubcategories(Long parentId) {
-        return categoryRepository.findByParent(parentId);
+    // Read from the row rather than the cached tree, so an edit made on another
+    // instance a moment ago is never answered with 304; null when it does not exist
+    public Uni<String> getCategoryETag(Long id) {
+        return categoryRepository.findUpdatedAt(id)
+            .map(updatedAt -> updatedAt != null ? ETags.ofCategory(id, updatedAt) : null);
     }
     
     public Uni<Category> getCategory(Long id) {
@@ -51,7 +86,8 @@ public class CategoryService {
                     });
             }
             return Uni.createFrom().item(category);
-        }).chain(category -> categoryRepository.persist(category));
+        }).chain(category -> categoryRepository.persist(category))
+            .invoke(saved -> onCategoryChanged(saved.getId()));
     }
     
     @Transactional
@@ -75,32 +111,100 @@ public class CategoryService {
                 }
                 return Uni.createFrom().item(category);
             })
-            .chain(category -> categoryRepository.persist(category));
+            .chain(category -> categoryRepository.persist(category))
+            .invoke(saved -> onCategoryChanged(saved.getId()));
     }
     
     @Transactional
     public Uni<Boolean> deleteCategory(Long id) {
-        return categoryRepository.hasProducts(id)
-            .chain(hasProducts -> {
-                if (hasProducts) {
+        // Checked against the table, so a subcategory or move made on another instance is seen
+        return tree(true)
+            .chain(current -> {
+                if (!current.contains(id)) {
                     return Uni.createFrom().failure(
-                        new IllegalStateException("Cannot delete category with products"));
+                        new ResourceNotFoundException("Category not found"));
                 }
-                return categoryRepository.findById(id)
-                    .onItem().ifNull().failWith(() -> 
-                        new ResourceNotFoundException("Category not found"))
-                    .chain(category -> {
-                        if (!category.getSubcategories().isEmpty()) {
+                return categoryRepository.hasProducts(current.getSubtreeIds(id))
+                    .chain(hasProducts -> {
+                        if (hasProducts) {
+                            return Uni.createFrom().failure(
+                                new IllegalStateException("Cannot delete category with products"));
+                        }
+                        if (!current.getChildren(id).isEmpty()) {
                             return Uni.createFrom().failure(
                                 new IllegalStateException(
                                     "Cannot delete category with subcategories"));
                         }
-                        return categoryRepository.delete(category)
-                            .map(deleted -> deleted > 0);
+                        return categoryRepository.deleteById(id);
                     });
+            })
+            .invoke(deleted -> {
+                if (deleted) {
+                    onCategoryChanged(id);
+                }
             });
     }
     
+    private Uni<CategoryTree> tree() {
+        return tree(false);
+    }
+    
+    /**
+     * The tree is shared while the categories table's stamp still matches the one
+     * it was loaded under. Writes on this instance drop it straight away; writes on
+     * other instances are seen at the next check, at most REVALIDATE_NANOS later,
+     * or straight away when fresh is set.
+     */
+    private Uni<CategoryTree> tree(boolean fresh) {
+        CachedTree current = cached;
+        long now = System.nanoTime();
+        if (current != null && !fresh && now - current.checkedAt < REVALIDATE_NANOS) {
+            return Uni.createFrom().item(current.tree);
+        }
+        long generation = currentGeneration();
+        return categoryRepository.findStamp().chain(stamp -> {
+            if (current != null && current.stamp.equals(stamp)) {
+                cacheTree(new CachedTree(current.tree, stamp, now), generation);
+                return Uni.createFrom().item(current.tree);
+            }
+            // Read after the stamp, so a write in between only makes the next check reload
+            return categoryRepository.listAll()
+                .map(all -> CategoryTree.of(all.stream().map(CategoryService::toDto).collect(Collectors.toList())))
+                .invoke(loaded -> cacheTree(new CachedTree(loaded, stamp, now), generation));
+        });
+    }
+    
+    private synchronized long currentGeneration() {
+        return treeGeneration;
+    }
+    
+    // A load that raced with a write is returned to its caller but not cached
+    private synchronized void cacheTree(CachedTree loaded, long generation) {
+        if (treeGeneration == generation) {
+            cached = loaded;
+        }
+    }
+    
+    private void onCategoryChanged(Long id) {
+        synchronized (this) {
+            treeGeneration++;
+            cached = null;
+        }
+        categoryChanged.fire(new CategoryChangedEvent(id));
+    }
+    
+    private static CategoryDTO toDto(Category category) {
+        CategoryDTO dto = new CategoryDTO();
+        dto.setId(category.getId());
+        dto.setName(category.getName());
+        dto.setDescription(category.getDescription());
+        // The lazy parent's id is known without loading it
+        dto.setParentId(category.getParent() != null ? category.getParent().getId() : null);
+        dto.setActive(category.getActive());
+        dto.setUpdatedAt(category.getUpdatedAt());
+        return dto;
+    }
+    
     private void updateCategoryFromDto(Category category, CategoryDTO dto) {
         category.setName(dto.getName());
         category.setDescription(dto.getDescription());
@@ -108,4 +212,16 @@ public class CategoryService {
             category.setActive(dto.getActive());
         }
     }
+    
+    private static final class CachedTree {
+        private final CategoryTree tree;
+        private final String stamp;
+        private final long checkedAt;
+        
+        private CachedTree(CategoryTree tree, String stamp, long checkedAt) {
+            this.tree = tree;
+            this.stamp = stamp;
+            this.checkedAt = checkedAt;
+        }
+    }
 }
\ No newline at end of file
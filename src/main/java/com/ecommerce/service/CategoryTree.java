@@ -0,0 +1,108 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.dto.CategoryDTO;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable category hierarchy with its closure precomputed: the root-to-node path
+ * of every category and the ids of its whole subtree. Built from one listAll(),
+ * copied to DTOs so nothing in it is tied to the session that loaded it.
+ */
+final class CategoryTree {
+
+    private static final Comparator<CategoryDTO> BY_ID = Comparator.comparing(CategoryDTO::getId);
+
+    private final Map<Long, CategoryDTO> categories;
+    private final List<CategoryDTO> all;
+    private final List<CategoryDTO> roots;
+    private final Map<Long, List<CategoryDTO>> children;
+    private final Map<Long, List<CategoryDTO>> paths = new HashMap<>();
+    private final Map<Long, Set<Long>> subtrees = new HashMap<>();
+
+    private CategoryTree(Map<Long, CategoryDTO> categories, List<CategoryDTO> roots,
+                         Map<Long, List<CategoryDTO>> children) {
+        this.categories = categories;
+        List<CategoryDTO> sorted = new ArrayList<>(categories.values());
+        sorted.sort(BY_ID);
+        this.all = Collections.unmodifiableList(sorted);
+        this.roots = roots;
+        this.children = children;
+        // Each category has one parent, so walking down from the roots visits every
+        // category once; categories caught in a parent cycle have no root and are skipped
+        for (CategoryDTO root : roots) {
+            close(root, Collections.emptyList());
+        }
+    }
+
+    static CategoryTree of(List<CategoryDTO> all) {
+        Map<Long, CategoryDTO> categories = new HashMap<>();
+        all.forEach(category -> categories.put(category.getId(), category));
+
+        List<CategoryDTO> roots = new ArrayList<>();
+        Map<Long, List<CategoryDTO>> children = new HashMap<>();
+        for (CategoryDTO category : all) {
+            Long parentId = category.getParentId();
+            if (parentId == null || !categories.containsKey(parentId)) {
+                roots.add(category);
+            } else {
+                children.computeIfAbsent(parentId, id -> new ArrayList<>()).add(category);
+            }
+        }
+        roots.sort(BY_ID);
+        children.values().forEach(members -> members.sort(BY_ID));
+        return new CategoryTree(categories, roots, children);
+    }
+
+    boolean contains(Long id) {
+        return categories.containsKey(id);
+    }
+
+    CategoryDTO get(Long id) {
+        return categories.get(id);
+    }
+
+    List<CategoryDTO> getAll() {
+        return all;
+    }
+
+    List<CategoryDTO> getRoots() {
+        return Collections.unmodifiableList(roots);
+    }
+
+    List<CategoryDTO> getChildren(Long id) {
+        return Collections.unmodifiableList(children.getOrDefault(id, Collections.emptyList()));
+    }
+
+    // Root first, the category itself last
+    List<CategoryDTO> getPath(Long id) {
+        return paths.getOrDefault(id, Collections.emptyList());
+    }
+
+    // The category itself and every category below it
+    Set<Long> getSubtreeIds(Long id) {
+        return subtrees.getOrDefault(id, Collections.emptySet());
+    }
+
+    private Set<Long> close(CategoryDTO category, List<CategoryDTO> parentPath) {
+        Long id = category.getId();
+        List<CategoryDTO> path = new ArrayList<>(parentPath);
+        path.add(category);
+        paths.put(id, Collections.unmodifiableList(path));
+
+        Set<Long> subtree = new HashSet<>();
+        subtree.add(id);
+        for (CategoryDTO child : children.getOrDefault(id, Collections.emptyList())) {
+            subtree.addAll(close(child, path));
+        }
+        Set<Long> closed = Collections.unmodifiableSet(subtree);
+        subtrees.put(id, closed);
+        return closed;
+    }
+}
\ No newline at end of file
@@ -1,18 +1,45 @@
 package com.ecommerce.service;
 
+import com.ecommerce.domain.model.CheckoutRequest;
+import com.ecommerce.domain.model.CheckoutStatus;
 import com.ecommerce.domain.model.Order;
 import com.ecommerce.domain.model.OrderStatus;
 import com.ecommerce.domain.model.ShippingAddress;
 import com.ecommerce.domain.model.User;
-import com.stripe.model.PaymentIntent;
+import com.ecommerce.domain.repository.CheckoutRequestRepository;
+import com.ecommerce.exception.BadRequestException;
+import com.ecommerce.exception.ConflictException;
 import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.hibernate.exception.ConstraintViolationException;
 
+/**
+ * Checkout in three stages, so no database transaction is open while the payment
+ * provider is called: the order and the checkout request claiming its
+ * Idempotency-Key are written in one short transaction, the payment intent is
+ * created outside any, and the intent is recorded in a second short one.
+ *
+ * A retry with the same key resumes after the last stage that committed, so it
+ * never places a second order. Retries reaching this instance while the first
+ * attempt runs, or within RECENT_TTL of it succeeding, share its result.
+ */
 @ApplicationScoped
 public class CheckoutService {
     
+    static final Duration RECENT_TTL = Duration.ofMinutes(10);
+    static final int MAX_RECENT = 10_000;
+    static final int MAX_KEY_LENGTH = 255;
+    
+    // Named by V1.0.8; other constraint violations are not duplicate checkouts
+    static final String KEY_CONSTRAINT = "uk_checkout_requests_key";
+    
     @Inject
     OrderService orderService;
     
@@ -22,17 +49,86 @@ public class CheckoutService {
     @Inject
     EmailService emailService;
     
+    @Inject
+    CheckoutRequestRepository checkoutRequestRepository;
+    
+    // userId + key -> the attempt running or done on this instance; failed attempts are removed
+    private final Map<String, Attempt> recent = new ConcurrentHashMap<>();
+    
+    // Without a key every call is a new checkout
+    public Uni<Order> initiateCheckout(String userId, String idempotencyKey, ShippingAddress shippingAddress) {
+        if (userId == null) {
+            return Uni.createFrom().failure(new BadRequestException("User ID is required"));
+        }
+        String key = idempotencyKey != null ? idempotencyKey : UUID.randomUUID().toString();
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            return Uni.createFrom().failure(new BadRequestException(
+                "Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters"));
+        }
+        return Uni.createFrom().deferred(() -> {
+            String recentKey = userId + '\n' + key;
+            long now = System.currentTimeMillis();
+            Attempt attempt = new Attempt(recentKey, now,
+                Uni.createFrom().deferred(() -> runStages(userId, key, shippingAddress)));
+            Attempt current = recent.compute(recentKey, (k, previous) ->
+                previous != null && !previous.expired(now) ? previous : attempt);
+            if (current == attempt && recent.size() > MAX_RECENT) {
+                recent.values().removeIf(entry -> entry.expired(now));
+            }
+            return current.result;
+        });
+    }
+    
+    private Uni<Order> runStages(String userId, String key, ShippingAddress shippingAddress) {
+        return placeOrder(userId, key, shippingAddress)
+            .chain(order -> {
+                if (order.getPaymentIntentId() != null) {
+                    return Uni.createFrom().item(order);
+                }
+                return paymentService.createPaymentIntent(order)
+                    .chain(payment -> recordPayment(userId, key, order.getId(), payment.getPaymentIntentId()));
+            });
+    }
+    
+    // Stage one: the request row is inserted first, so a concurrent duplicate fails before ordering anything
     @Transactional
-    public Uni<Order> initiateCheckout(String userId, ShippingAddress shippingAddress) {
-        return orderService.createOrder(userId, shippingAddress)
-            .chain(order -> paymentService.createPaymentIntent(order)
-                .map(paymentIntent -> {
-                    order.setPaymentIntentId(paymentIntent.getId());
-                    return order;
-                }));
+    Uni<Order> placeOrder(String userId, String key, ShippingAddress shippingAddress) {
+        return checkoutRequestRepository.findByKey(userId, key)
+            .chain(existing -> {
+                if (existing != null) {
+                    return orderService.getOrder(existing.getOrderId());
+                }
+                CheckoutRequest request = new CheckoutRequest();
+                request.setUserId(userId);
+                request.setIdempotencyKey(key);
+                request.setStatus(CheckoutStatus.ORDER_CREATED);
+                return checkoutRequestRepository.persist(request)
+                    .chain(() -> orderService.createOrder(userId, shippingAddress))
+                    .invoke(order -> request.setOrderId(order.getId()));
+            })
+            .onFailure(CheckoutService::isDuplicateKey).transform(e ->
+                new ConflictException("A checkout with this Idempotency-Key is already in progress"));
     }
     
+    // Stage three
     @Transactional
+    Uni<Order> recordPayment(String userId, String key, Long orderId, String paymentIntentId) {
+        return checkoutRequestRepository.markPaymentCreated(userId, key, paymentIntentId)
+            .chain(() -> orderService.recordPaymentIntent(orderId, paymentIntentId));
+    }
+    
+    private static boolean isDuplicateKey(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                String constraint = violation.getConstraintName();
+                // Reported lower-cased and possibly schema-qualified
+                return constraint != null && constraint.toLowerCase(Locale.ROOT).endsWith(KEY_CONSTRAINT);
+            }
+        }
+        return false;
+    }
+    
+    // Each status update commits on its own; the payment provider is called outside them
     public Uni<Order> completeCheckout(Long orderId, String paymentIntentId) {
         return paymentService.confirmPayment(paymentIntentId)
             .chain(paymentIntent -> {
@@ -48,4 +144,20 @@ public class CheckoutService {
                 }
             });
     }
+    
+    private final class Attempt {
+        private final long startedAt;
+        private final Uni<Order> result;
+        
+        private Attempt(String recentKey, long startedAt, Uni<Order> stages) {
+            this.startedAt = startedAt;
+            this.result = stages
+                .onFailure().invoke(() -> recent.remove(recentKey, this))
+                .memoize().indefinitely();
+        }
+        
+        private boolean expired(long now) {
+            return now - startedAt > RECENT_TTL.toMillis();
+        }
+    }
 }
\ No newline at end of file
@@ -69,7 +69,7 @@ public class CouponService {
                     return Uni.createFrom().item(BigDecimal.ZERO);
                 }
                 
-                return calculateApplicableDiscount(coupon, cartTotal, items);
+                return Uni.createFrom().item(calculateApplicableDiscount(coupon, cartTotal, items));
             });
     }
     
@@ -135,21 +135,23 @@ public class CouponService {
                 cartTotal.compareTo(coupon.getMinimumPurchase()) >= 0);
     }
     
-    private Uni<BigDecimal> calculateApplicableDiscount(
+    // A percentage discount is rounded half up to the cent
+    static BigDecimal calculateApplicableDiscount(
             Coupon coupon, BigDecimal cartTotal, List<CartItem> items) {
-        BigDecimal discount;
+        Money discount;
         if (coupon.getDiscountType() == DiscountType.PERCENTAGE) {
-            discount = cartTotal.multiply(
-                coupon.getDiscountValue().divide(new BigDecimal("100")));
+            discount = Money.of(cartTotal).percent(coupon.getDiscountValue());
         } else {
-            discount = coupon.getDiscountValue();
+            discount = Money.of(coupon.getDiscountValue());
         }
         
-        if (coupon.getMaximumDiscount() != null && 
-            discount.compareTo(coupon.getMaximumDiscount()) > 0) {
-            discount = coupon.getMaximumDiscount();
+        if (coupon.getMaximumDiscount() != null) {
+            Money maximumDiscount = Money.of(coupon.getMaximumDiscount());
+            if (discount.isGreaterThan(maximumDiscount)) {
+                discount = maximumDiscount;
+            }
         }
         
-        return Uni.createFrom().item(discount);
+        return discount.toBigDecimal();
     }
 }
\ No newline at end of file
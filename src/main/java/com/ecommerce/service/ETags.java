@@ -0,0 +1,96 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.dto.CategoryDTO;
+import com.ecommerce.domain.dto.ProductWithImagesDTO;
+import com.ecommerce.domain.model.Category;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Strong entity tags derived from state every instance agrees on (ids, versions,
+ * timestamps and content hashes), so any pod can answer a conditional request.
+ */
+public final class ETags {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private ETags() {
+    }
+
+    /**
+     * The content is part of the tag as well as the version, so an edit that skipped
+     * the version bump still changes it. Image URLs and tags come from unordered
+     * sets, so they are hashed sorted; the DTO's own hashCode would depend on the
+     * order they were loaded in.
+     */
+    static String of(ProductWithImagesDTO product, Long version) {
+        long hash = FNV_OFFSET;
+        hash = mix(hash, String.valueOf(product.getName()));
+        hash = mix(hash, String.valueOf(product.getDescription()));
+        hash = mix(hash, String.valueOf(product.getPrice()));
+        hash = mix(hash, String.valueOf(product.getStockQuantity()));
+        hash = mix(hash, String.valueOf(product.getAverageRating()));
+        hash = mix(hash, String.valueOf(product.getActive()));
+        hash = mix(hash, String.valueOf(product.getCategoryId()));
+        hash = mix(hash, String.valueOf(product.getCategoryName()));
+        hash = mix(hash, String.valueOf(product.getCoverImageUrl()));
+        hash = mixSorted(hash, product.getImageUrls());
+        hash = mixSorted(hash, product.getTags());
+        return "p" + product.getId() + "-" + version + "-" + Long.toHexString(hash);
+    }
+
+    public static String of(Category category) {
+        return ofCategory(category.getId(), category.getUpdatedAt());
+    }
+
+    // Same tag as the entity it was copied from
+    public static String of(CategoryDTO category) {
+        return ofCategory(category.getId(), category.getUpdatedAt());
+    }
+
+    static String ofCategory(Long id, LocalDateTime updatedAt) {
+        return "c" + id + "-" + (updatedAt != null ? updatedAt : "0");
+    }
+
+    public static String ofCategories(Collection<CategoryDTO> categories) {
+        long hash = FNV_OFFSET;
+        for (CategoryDTO category : categories) {
+            hash = mix(hash, of(category));
+        }
+        return "cl-" + categories.size() + "-" + Long.toHexString(hash);
+    }
+
+    // Combines member tags (and anything else the list body depends on) in order
+    public static String aggregate(Collection<String> parts) {
+        long hash = FNV_OFFSET;
+        for (String part : parts) {
+            hash = mix(hash, part != null ? part : "");
+        }
+        return "l-" + parts.size() + "-" + Long.toHexString(hash);
+    }
+
+    private static long mixSorted(long hash, Collection<String> parts) {
+        List<String> sorted = parts != null ? new ArrayList<>(parts) : new ArrayList<>();
+        sorted.sort(Comparator.nullsFirst(Comparator.naturalOrder()));
+        hash = mix(hash, Integer.toString(sorted.size()));
+        for (String part : sorted) {
+            hash = mix(hash, String.valueOf(part));
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, String part) {
+        for (byte b : part.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= FNV_PRIME;
+        }
+        // Separator, so ("ab", "c") and ("a", "bc") differ
+        hash ^= 0xff;
+        return hash * FNV_PRIME;
+    }
+}
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.ecommerce.service;
 
+import com.ecommerce.domain.dto.LowStockAlertDTO;
 import com.ecommerce.domain.model.User;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -10,6 +11,7 @@ import jakarta.mail.Session;
 import jakarta.mail.Transport;
 import jakarta.mail.internet.InternetAddress;
 import jakarta.mail.internet.MimeMessage;
+import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
@@ -33,6 +35,9 @@ public class EmailService {
     @ConfigProperty(name = "mail.smtp.password")
     String smtpPassword;
     
+    @ConfigProperty(name = "inventory.alerts.recipient")
+    String alertRecipient;
+    
     private final ExecutorService executorService = Executors.newFixedThreadPool(5);
     
     public void sendPasswordResetEmail(User user) throws MessagingException {
@@ -55,6 +60,14 @@ public class EmailService {
         }, executorService);
     }
     
+    // Blocking; called from the low-stock dispatcher's own worker thread
+    public void sendLowStockDigest(List<LowStockAlertDTO> alerts) throws MessagingException {
+        String subject = alerts.size() == 1
+            ? "Low stock: " + alerts.get(0).getProductName()
+            : "Low stock: " + alerts.size() + " products";
+        sendEmail(alertRecipient, subject, buildLowStockDigest(alerts));
+    }
+    
     private void sendEmail(String to, String subject, String htmlContent) throws MessagingException {
         Properties props = new Properties();
         props.put("mail.smtp.auth", "true");
@@ -135,4 +148,35 @@ public class EmailService {
             </div>
             """.formatted(firstName, verificationLink);
     }
+    
+    private String buildLowStockDigest(List<LowStockAlertDTO> alerts) {
+        StringBuilder rows = new StringBuilder();
+        for (LowStockAlertDTO alert : alerts) {
+            String name = alert.getProductName() != null ? alert.getProductName() : "Product " + alert.getProductId();
+            rows.append("""
+                        <tr>
+                            <td style="padding: 8px; border-bottom: 1px solid #eeeeee;">%s</td>
+                            <td style="padding: 8px; border-bottom: 1px solid #eeeeee; text-align: right;">%d</td>
+                            <td style="padding: 8px; border-bottom: 1px solid #eeeeee; text-align: right;">%d</td>
+                            <td style="padding: 8px; border-bottom: 1px solid #eeeeee;">%s</td>
+                        </tr>
+            """.formatted(name, alert.getStockQuantity(), alert.getThreshold(), alert.getCrossedAt().withNano(0)));
+        }
+        return """
+            <div style="font-family: Arial, sans-serif; max-width: 600px; margin: 0 auto; padding: 20px;">
+                <div style="background-color: #ffffff; border-radius: 8px; box-shadow: 0 2px 4px rgba(0,0,0,0.1); padding: 30px;">
+                    <h1 style="color: #333333; margin-bottom: 10px;">Low Stock</h1>
+                    <p style="color: #666666; font-size: 16px;">These products went under their alert threshold:</p>
+                    <table style="width: 100%%; border-collapse: collapse; color: #333333; font-size: 14px;">
+                        <tr>
+                            <th style="padding: 8px; text-align: left;">Product</th>
+                            <th style="padding: 8px; text-align: right;">Stock</th>
+                            <th style="padding: 8px; text-align: right;">Threshold</th>
+                            <th style="padding: 8px; text-align: left;">Since</th>
+                        </tr>
+            %s        </table>
+                </div>
+            </div>
+            """.formatted(rows);
+    }
 }
\ No newline at end of file
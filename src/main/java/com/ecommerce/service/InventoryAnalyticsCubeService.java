@@ -0,0 +1,184 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.model.AnalyticsGranularity;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.smallrye.mutiny.subscription.Cancellable;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.hibernate.Session;
+
+/**
+ * Keeps inventory_analytics_periods, the weekly and monthly sums of the daily
+ * analytics, up to date. Whoever writes a daily row also marks its (product, day)
+ * in inventory_analytics_changes in the same transaction; every REFRESH_INTERVAL
+ * the marks are taken and only the weeks and months containing them are summed
+ * again from their daily rows.
+ */
+@ApplicationScoped
+public class InventoryAnalyticsCubeService {
+    
+    private static final Duration REFRESH_INTERVAL = Duration.ofMinutes(1);
+    private static final int BATCH_SIZE = 500;
+    
+    // Writers mark with DO UPDATE rather than DO NOTHING: the row lock makes this
+    // DELETE wait for a writer still in flight instead of dropping its mark
+    static final String MARK_CHANGED =
+        "INSERT INTO inventory_analytics_changes (product_id, date, changed_at) VALUES (?, ?, CURRENT_TIMESTAMP) " +
+        "ON CONFLICT (product_id, date) DO UPDATE SET changed_at = EXCLUDED.changed_at";
+    private static final String TAKE_CHANGES =
+        "DELETE FROM inventory_analytics_changes RETURNING product_id, date";
+    private static final String REFRESH_PERIOD =
+        "INSERT INTO inventory_analytics_periods (granularity, product_id, period_start, period_end, " +
+        "starting_stock, ending_stock, sales_count, units_sold, restock_count, returns_count, days_out_of_stock, " +
+        "low_stock_incidents, turnover_days, turnover_sum, min_turnover, max_turnover) " +
+        "SELECT ?, product_id, ?, ?, " +
+        "(ARRAY_AGG(starting_stock ORDER BY date))[1], (ARRAY_AGG(ending_stock ORDER BY date DESC))[1], " +
+        "COALESCE(SUM(sales_count), 0), COALESCE(SUM(units_sold), 0), COALESCE(SUM(restock_count), 0), " +
+        "COALESCE(SUM(returns_count), 0), COALESCE(SUM(days_out_of_stock), 0), " +
+        "COALESCE(SUM(low_stock_incidents), 0), COUNT(turnover_rate), COALESCE(SUM(turnover_rate), 0), " +
+        "MIN(turnover_rate), MAX(turnover_rate) " +
+        "FROM inventory_analytics WHERE product_id = ? AND date BETWEEN ? AND ? GROUP BY product_id " +
+        "ON CONFLICT (granularity, product_id, period_start) DO UPDATE SET " +
+        "period_end = EXCLUDED.period_end, starting_stock = EXCLUDED.starting_stock, " +
+        "ending_stock = EXCLUDED.ending_stock, sales_count = EXCLUDED.sales_count, " +
+        "units_sold = EXCLUDED.units_sold, restock_count = EXCLUDED.restock_count, " +
+        "returns_count = EXCLUDED.returns_count, days_out_of_stock = EXCLUDED.days_out_of_stock, " +
+        "low_stock_incidents = EXCLUDED.low_stock_incidents, turnover_days = EXCLUDED.turnover_days, " +
+        "turnover_sum = EXCLUDED.turnover_sum, min_turnover = EXCLUDED.min_turnover, " +
+        "max_turnover = EXCLUDED.max_turnover";
+    
+    @Inject
+    EntityManager entityManager;
+    
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile Cancellable refresher;
+    
+    void onStart(@Observes StartupEvent event) {
+        refresher = Multi.createFrom().ticks().every(REFRESH_INTERVAL)
+            .emitOn(Infrastructure.getDefaultWorkerPool())
+            .subscribe().with(tick -> refresh(), Throwable::printStackTrace);
+    }
+    
+    void onStop(@Observes ShutdownEvent event) {
+        if (refresher != null) {
+            refresher.cancel();
+        }
+    }
+    
+    // Marks a daily row for the next refresh; call from the transaction that wrote it
+    static void markChanged(PreparedStatement statement, long productId, LocalDate date) throws SQLException {
+        statement.setLong(1, productId);
+        statement.setDate(2, Date.valueOf(date));
+        statement.addBatch();
+    }
+    
+    /**
+     * Sums again every period with a marked day. The marks are removed in the same
+     * transaction, so a failed refresh leaves them for the next tick.
+     */
+    void refresh() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            QuarkusTransaction.requiringNew().run(() ->
+                entityManager.unwrap(Session.class).doWork(this::refresh));
+        } catch (RuntimeException e) {
+            // Logged so the ticker keeps running
+            e.printStackTrace();
+        } finally {
+            refreshing.set(false);
+        }
+    }
+    
+    private void refresh(Connection connection) throws SQLException {
+        Set<Period> periods = new LinkedHashSet<>();
+        try (PreparedStatement statement = connection.prepareStatement(TAKE_CHANGES);
+             ResultSet result = statement.executeQuery()) {
+            while (result.next()) {
+                long productId = result.getLong(1);
+                LocalDate date = result.getDate(2).toLocalDate();
+                periods.add(Period.week(productId, date));
+                periods.add(Period.month(productId, date));
+            }
+        }
+        if (periods.isEmpty()) {
+            return;
+        }
+        
+        try (PreparedStatement statement = connection.prepareStatement(REFRESH_PERIOD)) {
+            int batched = 0;
+            for (Period period : periods) {
+                Date start = Date.valueOf(period.start);
+                Date end = Date.valueOf(period.end);
+                statement.setString(1, period.granularity.name());
+                statement.setDate(2, start);
+                statement.setDate(3, end);
+                statement.setLong(4, period.productId);
+                statement.setDate(5, start);
+                statement.setDate(6, end);
+                statement.addBatch();
+                if (++batched % BATCH_SIZE == 0) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+    }
+    
+    private static final class Period {
+        private final AnalyticsGranularity granularity;
+        private final long productId;
+        private final LocalDate start;
+        private final LocalDate end;
+        
+        private Period(AnalyticsGranularity granularity, long productId, LocalDate start, LocalDate end) {
+            this.granularity = granularity;
+            this.productId = productId;
+            this.start = start;
+            this.end = end;
+        }
+        
+        static Period week(long productId, LocalDate date) {
+            LocalDate monday = date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            return new Period(AnalyticsGranularity.WEEK, productId, monday, monday.plusDays(6));
+        }
+        
+        static Period month(long productId, LocalDate date) {
+            return new Period(AnalyticsGranularity.MONTH, productId,
+                date.withDayOfMonth(1), date.with(TemporalAdjusters.lastDayOfMonth()));
+        }
+        
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Period)) {
+                return false;
+            }
+            Period period = (Period) other;
+            return granularity == period.granularity && productId == period.productId && start.equals(period.start);
+        }
+        
+        @Override
+        public int hashCode() {
+            return (granularity.hashCode() * 31 + Long.hashCode(productId)) * 31 + start.hashCode();
+        }
+    }
+}
\ No newline at end of file
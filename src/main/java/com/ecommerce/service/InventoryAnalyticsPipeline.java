@@ -0,0 +1,214 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.model.TransactionType;
+import com.ecommerce.service.InventoryRollupService.DayRollup;
+import com.ecommerce.service.InventoryRollupService.TransactionRow;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.smallrye.mutiny.subscription.Cancellable;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.hibernate.Session;
+
+/**
+ * Maintains the transaction counts of inventory_analytics, replacing the per-row
+ * trigger. inventory_transactions is the log: every FLUSH_INTERVAL the rows
+ * committed past the watermark are read in id order, coalesced per (product, day)
+ * and upserted in one batch, and the watermark moves in the same transaction. A
+ * crash or restart continues from the last commit, so no committed transaction
+ * is lost or counted twice, and nothing is held in memory between ticks.
+ *
+ * The watermark row is claimed with SKIP LOCKED, so one instance aggregates at a
+ * time and the others skip the tick. Ending stock and low-stock incidents need
+ * the stock history and are filled in by InventoryRollupService.
+ */
+@ApplicationScoped
+public class InventoryAnalyticsPipeline {
+    
+    private static final Duration FLUSH_INTERVAL = Duration.ofSeconds(5);
+    private static final int BATCH_SIZE = 10_000;
+    private static final int UPSERT_BATCH_SIZE = 500;
+    
+    private static final String LOCK_WATERMARK =
+        "SELECT last_transaction_id FROM inventory_analytics_watermark WHERE id = 1 FOR UPDATE SKIP LOCKED";
+    private static final String WRITE_WATERMARK =
+        "UPDATE inventory_analytics_watermark SET last_transaction_id = ?, updated_at = CURRENT_TIMESTAMP WHERE id = 1";
+    // Ids are taken before commit, so a row from the last minute may still have an
+    // uncommitted neighbour with a lower id; the batch stops short of the first one
+    private static final String READ_TRANSACTIONS =
+        "SELECT id, product_id, type, quantity, timestamp FROM inventory_transactions " +
+        "WHERE id > ? AND id < COALESCE(" +
+        "(SELECT MIN(id) FROM inventory_transactions WHERE id > ? " +
+        "AND created_at >= CURRENT_TIMESTAMP - INTERVAL '1 minute'), " + Long.MAX_VALUE + ") " +
+        "ORDER BY id LIMIT " + BATCH_SIZE;
+    private static final String UPSERT_ANALYTICS =
+        "INSERT INTO inventory_analytics (product_id, date, sales_count, restock_count, returns_count, " +
+        "turnover_rate, low_stock_incidents) VALUES (?, ?, ?, ?, ?, 0, 0) " +
+        "ON CONFLICT (product_id, date) DO UPDATE SET " +
+        "sales_count = COALESCE(inventory_analytics.sales_count, 0) + EXCLUDED.sales_count, " +
+        "restock_count = COALESCE(inventory_analytics.restock_count, 0) + EXCLUDED.restock_count, " +
+        "returns_count = COALESCE(inventory_analytics.returns_count, 0) + EXCLUDED.returns_count";
+    
+    @Inject
+    EntityManager entityManager;
+    
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    private volatile Cancellable flusher;
+    
+    void onStart(@Observes StartupEvent event) {
+        flusher = Multi.createFrom().ticks().every(FLUSH_INTERVAL)
+            .emitOn(Infrastructure.getDefaultWorkerPool())
+            .subscribe().with(tick -> flush(), Throwable::printStackTrace);
+    }
+    
+    void onStop(@Observes ShutdownEvent event) {
+        if (flusher != null) {
+            flusher.cancel();
+        }
+    }
+    
+    /**
+     * Aggregates every settled transaction past the watermark and returns how many
+     * were counted. A failed batch rolls back with its watermark and is read again
+     * on the next tick.
+     */
+    int flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            int total = 0;
+            while (true) {
+                int counted = QuarkusTransaction.requiringNew().call(() ->
+                    entityManager.unwrap(Session.class).doReturningWork(this::flushBatch));
+                total += counted;
+                if (counted < BATCH_SIZE) {
+                    return total;
+                }
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            return 0;
+        } finally {
+            flushing.set(false);
+        }
+    }
+    
+    private int flushBatch(Connection connection) throws SQLException {
+        Long watermark = lockWatermark(connection);
+        // Another instance holds it
+        if (watermark == null) {
+            return 0;
+        }
+        List<TransactionRow> rows = readTransactions(connection, watermark);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        Map<Long, DailyCounts> days = fold(rows);
+        write(connection, days.values());
+        writeWatermark(connection, rows.get(rows.size() - 1).id);
+        return rows.size();
+    }
+    
+    // Same counting as the trigger this replaces: one per transaction of each type
+    static Map<Long, DailyCounts> fold(List<TransactionRow> rows) {
+        Map<Long, DailyCounts> days = new LinkedHashMap<>();
+        for (TransactionRow row : rows) {
+            DailyCounts day = days.computeIfAbsent(DayRollup.key(row.productId, row.date),
+                key -> new DailyCounts(row.productId, row.date));
+            if (row.type == TransactionType.SALE) {
+                day.sales++;
+            } else if (row.type == TransactionType.RESTOCK) {
+                day.restocks++;
+            } else if (row.type == TransactionType.RETURN) {
+                day.returns++;
+            }
+        }
+        return days;
+    }
+    
+    private static Long lockWatermark(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(LOCK_WATERMARK);
+             ResultSet result = statement.executeQuery()) {
+            return result.next() ? result.getLong(1) : null;
+        }
+    }
+    
+    private static List<TransactionRow> readTransactions(Connection connection, long watermark) throws SQLException {
+        List<TransactionRow> rows = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(READ_TRANSACTIONS)) {
+            statement.setLong(1, watermark);
+            statement.setLong(2, watermark);
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    rows.add(new TransactionRow(result.getLong(1), result.getLong(2),
+                        TransactionType.valueOf(result.getString(3)), result.getInt(4),
+                        result.getTimestamp(5).toLocalDateTime().toLocalDate()));
+                }
+            }
+        }
+        return rows;
+    }
+    
+    private static void write(Connection connection, Collection<DailyCounts> days) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(UPSERT_ANALYTICS)) {
+            int batched = 0;
+            for (DailyCounts day : days) {
+                statement.setLong(1, day.productId);
+                statement.setDate(2, Date.valueOf(day.date));
+                statement.setInt(3, day.sales);
+                statement.setInt(4, day.restocks);
+                statement.setInt(5, day.returns);
+                statement.addBatch();
+                if (++batched % UPSERT_BATCH_SIZE == 0) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+        try (PreparedStatement statement = connection.prepareStatement(InventoryAnalyticsCubeService.MARK_CHANGED)) {
+            for (DailyCounts day : days) {
+                InventoryAnalyticsCubeService.markChanged(statement, day.productId, day.date);
+            }
+            statement.executeBatch();
+        }
+    }
+    
+    private static void writeWatermark(Connection connection, long lastTransactionId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(WRITE_WATERMARK)) {
+            statement.setLong(1, lastTransactionId);
+            statement.executeUpdate();
+        }
+    }
+    
+    static final class DailyCounts {
+        final long productId;
+        final LocalDate date;
+        int sales;
+        int restocks;
+        int returns;
+        
+        private DailyCounts(long productId, LocalDate date) {
+            this.productId = productId;
+            this.date = date;
+        }
+    }
+}
\ No newline at end of file
@@ -18,81 +18,170 @@ public class InventoryAnalyticsService {
     @Inject
     ProductRepository productRepository;
     
+    @Inject
+    InventoryAnalyticsPeriodRepository periodRepository;
+    
+    @Inject
+    TopSellingTracker topSelling;
+    
+    @Inject
+    InventoryTimeSeriesStore timeSeries;
+    
+    @Inject
+    InventoryHealthAggregate healthAggregate;
+    
     public Uni<Map<String, Object>> getProductAnalytics(
             Long productId, LocalDate startDate, LocalDate endDate) {
-        return analyticsRepository.findByProductAndDateRange(productId, startDate, endDate)
-            .map(analytics -> {
-                Map<String, Object> result = new HashMap<>();
-                
-                // Calculate metrics
-                DoubleSummaryStatistics turnoverStats = analytics.stream()
-                    .mapToDouble(InventoryAnalytics::getTurnoverRate)
-                    .summaryStatistics();
-                
-                int totalSales = analytics.stream()
-                    .mapToInt(InventoryAnalytics::getSalesCount)
-                    .sum();
-                
-                int totalRestocks = analytics.stream()
-                    .mapToInt(InventoryAnalytics::getRestockCount)
-                    .sum();
-                
-                int totalReturns = analytics.stream()
-                    .mapToInt(InventoryAnalytics::getReturnsCount)
-                    .sum();
-                
-                int totalOutOfStock = analytics.stream()
-                    .mapToInt(InventoryAnalytics::getDaysOutOfStock)
-                    .sum();
-                
-                int totalLowStock = analytics.stream()
-                    .mapToInt(InventoryAnalytics::getLowStockIncidents)
-                    .sum();
-                
-                // Daily trends
-                Map<LocalDate, Integer> salesTrend = analytics.stream()
-                    .collect(Collectors.toMap(
-                        InventoryAnalytics::getDate,
-                        InventoryAnalytics::getSalesCount
-                    ));
-                
-                Map<LocalDate, Integer> stockLevels = analytics.stream()
-                    .collect(Collectors.toMap(
-                        InventoryAnalytics::getDate,
-                        InventoryAnalytics::getEndingStock
-                    ));
-                
-                // Compile results
-                result.put("averageTurnover", turnoverStats.getAverage());
-                result.put("maxTurnover", turnoverStats.getMax());
-                result.put("minTurnover", turnoverStats.getMin());
-                result.put("totalSales", totalSales);
-                result.put("totalRestocks", totalRestocks);
-                result.put("totalReturns", totalReturns);
-                result.put("daysOutOfStock", totalOutOfStock);
-                result.put("lowStockIncidents", totalLowStock);
-                result.put("salesTrend", salesTrend);
-                result.put("stockLevels", stockLevels);
-                
-                return result;
-            });
+        if (startDate == null || endDate == null || startDate.isAfter(endDate)) {
+            return analyticsRepository.findByProductAndDateRange(productId, startDate, endDate)
+                .map(InventoryAnalyticsService::summarizeProductAnalytics);
+        }
+        LocalDate today = LocalDate.now();
+        if (timeSeries.covers(startDate, today)) {
+            return Uni.createFrom().item(() -> timeSeries.summarize(productId, startDate, endDate));
+        }
+        // Older ranges: whole months and weeks come from the cube and only the edges
+        // from daily rows, so a year is about 30 rows. Each row is a point in the trend
+        // of its own granularity.
+        AnalyticsRangePlan plan = AnalyticsRangePlan.of(startDate, endDate, today);
+        return periodRepository.findByProductAndPeriods(productId, AnalyticsGranularity.MONTH, plan.getMonths())
+            .chain(months -> periodRepository.findByProductAndPeriods(productId, AnalyticsGranularity.WEEK, plan.getWeeks())
+                .chain(weeks -> analyticsRepository.findByProductAndDates(productId, plan.getDays())
+                    .map(days -> {
+                        List<InventoryAnalyticsPeriod> periods = new ArrayList<>(months);
+                        periods.addAll(weeks);
+                        return summarizeProductAnalytics(days, periods);
+                    })));
+    }
+    
+    static Map<String, Object> summarizeProductAnalytics(List<InventoryAnalytics> analytics) {
+        return summarizeProductAnalytics(analytics, List.of());
+    }
+    
+    /**
+     * One pass over the rows; columns the rollup has not filled in yet count as 0.
+     * salesTrend and stockLevels have a point per day; weeks and months summed by
+     * the cube go to their own trends, keyed by the period's first day, so no point
+     * in a trend covers more days than its neighbours.
+     */
+    static Map<String, Object> summarizeProductAnalytics(
+            List<InventoryAnalytics> days, List<InventoryAnalyticsPeriod> periods) {
+        Map<String, Object> result = new HashMap<>();
+        
+        double turnoverSum = 0;
+        long turnoverDays = 0;
+        double maxTurnover = Double.NEGATIVE_INFINITY;
+        double minTurnover = Double.POSITIVE_INFINITY;
+        int totalSales = 0;
+        int totalRestocks = 0;
+        int totalReturns = 0;
+        int totalOutOfStock = 0;
+        int totalLowStock = 0;
+        Map<LocalDate, Integer> salesTrend = new TreeMap<>();
+        Map<LocalDate, Integer> stockLevels = new TreeMap<>();
+        Map<AnalyticsGranularity, Map<LocalDate, Integer>> periodSales = new EnumMap<>(AnalyticsGranularity.class);
+        Map<AnalyticsGranularity, Map<LocalDate, Integer>> periodStock = new EnumMap<>(AnalyticsGranularity.class);
+        for (AnalyticsGranularity granularity : AnalyticsGranularity.values()) {
+            periodSales.put(granularity, new TreeMap<>());
+            periodStock.put(granularity, new TreeMap<>());
+        }
+        
+        for (InventoryAnalytics day : days) {
+            if (day.getTurnoverRate() != null) {
+                turnoverSum += day.getTurnoverRate();
+                turnoverDays++;
+                maxTurnover = Math.max(maxTurnover, day.getTurnoverRate());
+                minTurnover = Math.min(minTurnover, day.getTurnoverRate());
+            }
+            totalSales += valueOf(day.getSalesCount());
+            totalRestocks += valueOf(day.getRestockCount());
+            totalReturns += valueOf(day.getReturnsCount());
+            totalOutOfStock += valueOf(day.getDaysOutOfStock());
+            totalLowStock += valueOf(day.getLowStockIncidents());
+            salesTrend.put(day.getDate(), day.getSalesCount());
+            stockLevels.put(day.getDate(), day.getEndingStock());
+        }
+        
+        for (InventoryAnalyticsPeriod period : periods) {
+            if (valueOf(period.getTurnoverDays()) > 0) {
+                turnoverSum += period.getTurnoverSum();
+                turnoverDays += period.getTurnoverDays();
+                maxTurnover = Math.max(maxTurnover, period.getMaxTurnover());
+                minTurnover = Math.min(minTurnover, period.getMinTurnover());
+            }
+            totalSales += valueOf(period.getSalesCount());
+            totalRestocks += valueOf(period.getRestockCount());
+            totalReturns += valueOf(period.getReturnsCount());
+            totalOutOfStock += valueOf(period.getDaysOutOfStock());
+            totalLowStock += valueOf(period.getLowStockIncidents());
+            periodSales.get(period.getGranularity()).put(period.getPeriodStart(), period.getSalesCount());
+            periodStock.get(period.getGranularity()).put(period.getPeriodStart(), period.getEndingStock());
+        }
+        
+        // Compile results
+        result.put("averageTurnover", turnoverDays > 0 ? turnoverSum / turnoverDays : 0.0);
+        result.put("maxTurnover", maxTurnover);
+        result.put("minTurnover", minTurnover);
+        result.put("totalSales", totalSales);
+        result.put("totalRestocks", totalRestocks);
+        result.put("totalReturns", totalReturns);
+        result.put("daysOutOfStock", totalOutOfStock);
+        result.put("lowStockIncidents", totalLowStock);
+        result.put("salesTrend", salesTrend);
+        result.put("stockLevels", stockLevels);
+        result.put("weeklySalesTrend", periodSales.get(AnalyticsGranularity.WEEK));
+        result.put("weeklyStockLevels", periodStock.get(AnalyticsGranularity.WEEK));
+        result.put("monthlySalesTrend", periodSales.get(AnalyticsGranularity.MONTH));
+        result.put("monthlyStockLevels", periodStock.get(AnalyticsGranularity.MONTH));
+        
+        return result;
+    }
+    
+    private static int valueOf(Integer value) {
+        return value != null ? value : 0;
     }
     
     public Uni<List<Map<String, Object>>> getTopSellingProducts(
             LocalDate startDate, LocalDate endDate, int limit) {
-        return analyticsRepository.findTopSellingProducts(startDate, endDate, limit)
-            .map(analytics -> analytics.stream()
-                .map(a -> {
-                    Map<String, Object> product = new HashMap<>();
-                    product.put("productId", a.getProduct().getId());
-                    product.put("productName", a.getProduct().getName());
-                    product.put("totalSales", a.getSalesCount());
-                    product.put("turnoverRate", a.getTurnoverRate());
-                    product.put("averageStock", 
-                        (a.getStartingStock() + a.getEndingStock()) / 2.0);
-                    return product;
-                })
-                .collect(Collectors.toList()));
+        LocalDate today = LocalDate.now();
+        int window = TopSellingTracker.windowFor(startDate, endDate, today);
+        if (window == 0) {
+            return analyticsRepository.findTopSellingProducts(startDate, endDate, limit)
+                .map(rows -> rows.stream()
+                    .map(row -> topSeller(row, ((Number) row[2]).longValue(), row[3], row[4]))
+                    .collect(Collectors.toList()));
+        }
+        
+        // The ranking is kept up to date as sales come in; only the top rows are read
+        List<long[]> top = topSelling.top(window, limit);
+        if (top.isEmpty()) {
+            return Uni.createFrom().item(List.of());
+        }
+        List<Long> productIds = top.stream().map(ranked -> ranked[0]).collect(Collectors.toList());
+        return analyticsRepository.findSalesDetails(productIds, today.minusDays(window - 1), today)
+            .map(rows -> {
+                Map<Long, Object[]> details = new HashMap<>();
+                rows.forEach(row -> details.put((Long) row[0], row));
+                return top.stream()
+                    .filter(ranked -> details.containsKey(ranked[0]))
+                    .map(ranked -> {
+                        Object[] row = details.get(ranked[0]);
+                        return topSeller(row, ranked[1], row[2], row[3]);
+                    })
+                    .collect(Collectors.toList());
+            });
+    }
+    
+    // row starts with product id and name
+    private static Map<String, Object> topSeller(
+            Object[] row, long totalSales, Object turnoverRate, Object averageStock) {
+        Map<String, Object> product = new HashMap<>();
+        product.put("productId", row[0]);
+        product.put("productName", row[1]);
+        product.put("totalSales", totalSales);
+        product.put("turnoverRate", turnoverRate != null ? ((Number) turnoverRate).doubleValue() : 0.0);
+        product.put("averageStock", averageStock != null ? ((Number) averageStock).doubleValue() : 0.0);
+        return product;
     }
     
     public Uni<List<Map<String, Object>>> getStockoutRisk() {
@@ -112,39 +201,35 @@ public class InventoryAnalyticsService {
     }
     
     private String calculateRiskLevel(Product product) {
-        double stockRatio = (double) product.getStockQuantity() / product.getLowStockThreshold();
+        return riskLevel(product.getStockQuantity(), product.getLowStockThreshold());
+    }
+    
+    static String riskLevel(int stockQuantity, int lowStockThreshold) {
+        double stockRatio = (double) stockQuantity / lowStockThreshold;
         if (stockRatio <= 0.25) return "CRITICAL";
         if (stockRatio <= 0.5) return "HIGH";
         if (stockRatio <= 0.75) return "MEDIUM";
         return "LOW";
     }
     
+    // Read from the running totals, so no product is loaded
     public Uni<Map<String, Object>> getInventoryHealth() {
-        return productRepository.findAll().list()
-            .map(products -> {
-                Map<String, Object> health = new HashMap<>();
-                
-                long totalProducts = products.size();
-                long lowStockProducts = products.stream()
-                    .filter(p -> p.getStockQuantity() <= p.getLowStockThreshold())
-                    .count();
-                long outOfStockProducts = products.stream()
-                    .filter(p -> p.getStockQuantity() == 0)
-                    .count();
-                
-                double totalValue = products.stream()
-                    .mapToDouble(p -> p.getPrice().doubleValue() * p.getStockQuantity())
-                    .sum();
-                
-                health.put("totalProducts", totalProducts);
-                health.put("lowStockProducts", lowStockProducts);
-                health.put("outOfStockProducts", outOfStockProducts);
-                health.put("totalInventoryValue", totalValue);
-                health.put("healthScore", calculateHealthScore(
-                    totalProducts, lowStockProducts, outOfStockProducts));
-                
-                return health;
-            });
+        return Uni.createFrom().item(() -> health(healthAggregate.getHealth()));
+    }
+    
+    public Uni<Map<String, Object>> reconcileInventoryHealth() {
+        return healthAggregate.reconcile().map(this::health);
+    }
+    
+    private Map<String, Object> health(InventoryHealthAggregate.Health totals) {
+        Map<String, Object> health = new HashMap<>();
+        health.put("totalProducts", totals.getTotalProducts());
+        health.put("lowStockProducts", totals.getLowStockProducts());
+        health.put("outOfStockProducts", totals.getOutOfStockProducts());
+        health.put("totalInventoryValue", totals.getTotalValue());
+        health.put("healthScore", calculateHealthScore(
+            totals.getTotalProducts(), totals.getLowStockProducts(), totals.getOutOfStockProducts()));
+        return health;
     }
     
     private double calculateHealthScore(
@@ -0,0 +1,319 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.event.ProductChangedEvent;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.smallrye.mutiny.subscription.Cancellable;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import org.hibernate.Session;
+
+/**
+ * Inventory health totals kept up to date as products change, so reading them
+ * costs nothing. Every committed change to a product, including bulk stock
+ * updates, marks it: this instance's as they commit and other instances' when
+ * ProductChangeFeed reads them. Every REFRESH_INTERVAL the marked rows are read
+ * back in one query and each replaces its previous contribution to the totals.
+ *
+ * Every RECONCILE_INTERVAL the totals are checked against the same figures
+ * summed by the database, and rebuilt from a full scan if they disagree. Only
+ * changes the feed cannot see, such as another instance deleting a product,
+ * should make them drift.
+ */
+@ApplicationScoped
+public class InventoryHealthAggregate {
+    
+    private static final Duration REFRESH_INTERVAL = Duration.ofSeconds(1);
+    private static final Duration RECONCILE_INTERVAL = Duration.ofMinutes(15);
+    private static final int FETCH_SIZE = 1_000;
+    
+    private static final String LOAD_PRODUCTS =
+        "SELECT id, price, stock_quantity, low_stock_threshold FROM products";
+    private static final String LOAD_CHANGED = LOAD_PRODUCTS + " WHERE id = ANY(?)";
+    private static final String SUM_HEALTH =
+        "SELECT COUNT(*), COUNT(*) FILTER (WHERE stock_quantity <= low_stock_threshold), " +
+        "COUNT(*) FILTER (WHERE stock_quantity = 0), COALESCE(SUM(price * stock_quantity), 0) FROM products";
+    
+    @Inject
+    EntityManager entityManager;
+    
+    // Products marked by committed changes and not read back yet
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+    // Refreshes and reconciliations take turns; a scheduled refresh skips a busy tick
+    private final ReentrantLock work = new ReentrantLock();
+    
+    // Each product's current contribution and the running totals, guarded by this
+    private final Map<Long, StockLevel> products = new HashMap<>();
+    private long totalProducts;
+    private long lowStockProducts;
+    private long outOfStockProducts;
+    private BigDecimal totalValue = BigDecimal.ZERO;
+    
+    private volatile Health health = new Health(0, 0, 0, BigDecimal.ZERO);
+    private volatile Cancellable refresher;
+    private volatile Cancellable reconciler;
+    
+    void onStart(@Observes StartupEvent event) {
+        reconcile(true);
+        refresher = Multi.createFrom().ticks().every(REFRESH_INTERVAL)
+            .emitOn(Infrastructure.getDefaultWorkerPool())
+            .subscribe().with(tick -> refresh(), Throwable::printStackTrace);
+        reconciler = Multi.createFrom().ticks().every(RECONCILE_INTERVAL)
+            .emitOn(Infrastructure.getDefaultWorkerPool())
+            .subscribe().with(tick -> recheck(), Throwable::printStackTrace);
+    }
+    
+    void onStop(@Observes ShutdownEvent event) {
+        if (refresher != null) {
+            refresher.cancel();
+        }
+        if (reconciler != null) {
+            reconciler.cancel();
+        }
+    }
+    
+    void onProductChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) ProductChangedEvent event) {
+        changed.add(event.getProductId());
+    }
+    
+    public Health getHealth() {
+        return health;
+    }
+    
+    /**
+     * Compares the totals with the database's and rebuilds them if they differ,
+     * e.g. after stock was edited in SQL. Returns the totals afterwards.
+     */
+    public Uni<Health> reconcile() {
+        return Uni.createFrom().item(() -> reconcile(false))
+            .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+    }
+    
+    void refresh() {
+        if (!work.tryLock()) {
+            return;
+        }
+        try {
+            readChanged();
+        } finally {
+            work.unlock();
+        }
+    }
+    
+    // A failed check is logged, so the ticker keeps running and tries again
+    void recheck() {
+        try {
+            reconcile(false);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    private Health reconcile(boolean rebuild) {
+        work.lock();
+        try {
+            readChanged();
+            QuarkusTransaction.requiringNew().run(() ->
+                entityManager.unwrap(Session.class).doWork(connection -> {
+                    if (rebuild || !health.equals(sumHealth(connection))) {
+                        if (!rebuild) {
+                            System.err.println("Inventory health drifted from the products table, rebuilding it");
+                        }
+                        rebuild(connection);
+                    }
+                }));
+            return health;
+        } finally {
+            work.unlock();
+        }
+    }
+    
+    // Reads back the marked products; on failure they stay marked for the next tick
+    private void readChanged() {
+        List<Long> productIds = new ArrayList<>();
+        for (Iterator<Long> marked = changed.iterator(); marked.hasNext(); ) {
+            productIds.add(marked.next());
+            // Unmark before reading: a change committed meanwhile marks the product again
+            marked.remove();
+        }
+        if (productIds.isEmpty()) {
+            return;
+        }
+        try {
+            QuarkusTransaction.requiringNew().run(() ->
+                entityManager.unwrap(Session.class).doWork(connection -> readChanged(connection, productIds)));
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            changed.addAll(productIds);
+        }
+    }
+    
+    private void readChanged(Connection connection, List<Long> productIds) throws SQLException {
+        Map<Long, StockLevel> rows = new HashMap<>();
+        Array ids = connection.createArrayOf("bigint", productIds.toArray());
+        try (PreparedStatement statement = connection.prepareStatement(LOAD_CHANGED)) {
+            statement.setArray(1, ids);
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    rows.put(result.getLong(1), stockLevel(result));
+                }
+            }
+        }
+        synchronized (this) {
+            // Products missing from the result were deleted
+            productIds.forEach(productId -> put(productId, rows.get(productId)));
+            publish();
+        }
+    }
+    
+    private void rebuild(Connection connection) throws SQLException {
+        Map<Long, StockLevel> rows = new HashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(LOAD_PRODUCTS)) {
+            statement.setFetchSize(FETCH_SIZE);
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    rows.put(result.getLong(1), stockLevel(result));
+                }
+            }
+        }
+        synchronized (this) {
+            products.clear();
+            totalProducts = 0;
+            lowStockProducts = 0;
+            outOfStockProducts = 0;
+            totalValue = BigDecimal.ZERO;
+            rows.forEach(this::put);
+            publish();
+        }
+    }
+    
+    private static Health sumHealth(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SUM_HEALTH);
+             ResultSet result = statement.executeQuery()) {
+            result.next();
+            return new Health(result.getLong(1), result.getLong(2), result.getLong(3), result.getBigDecimal(4));
+        }
+    }
+    
+    private static StockLevel stockLevel(ResultSet result) throws SQLException {
+        return new StockLevel(result.getBigDecimal(2), result.getInt(3), result.getInt(4));
+    }
+    
+    // Sets or removes one product directly, as a refresh would
+    synchronized void update(long productId, BigDecimal price, int stockQuantity, int lowStockThreshold) {
+        put(productId, new StockLevel(price, stockQuantity, lowStockThreshold));
+        publish();
+    }
+    
+    synchronized void remove(long productId) {
+        put(productId, null);
+        publish();
+    }
+    
+    // Replaces the product's previous contribution with this one; null removes it
+    private void put(long productId, StockLevel level) {
+        StockLevel previous = level != null ? products.put(productId, level) : products.remove(productId);
+        if (previous != null) {
+            add(previous, -1);
+        }
+        if (level != null) {
+            add(level, 1);
+        }
+    }
+    
+    private void add(StockLevel level, int sign) {
+        totalProducts += sign;
+        lowStockProducts += level.stockQuantity <= level.lowStockThreshold ? sign : 0;
+        outOfStockProducts += level.stockQuantity == 0 ? sign : 0;
+        BigDecimal value = level.price.multiply(BigDecimal.valueOf(level.stockQuantity));
+        totalValue = sign > 0 ? totalValue.add(value) : totalValue.subtract(value);
+    }
+    
+    private void publish() {
+        health = new Health(totalProducts, lowStockProducts, outOfStockProducts, totalValue);
+    }
+    
+    private static final class StockLevel {
+        private final BigDecimal price;
+        private final int stockQuantity;
+        private final int lowStockThreshold;
+        
+        private StockLevel(BigDecimal price, int stockQuantity, int lowStockThreshold) {
+            this.price = price;
+            this.stockQuantity = stockQuantity;
+            this.lowStockThreshold = lowStockThreshold;
+        }
+    }
+    
+    /**
+     * Totals over every product, active or not. The value is exact: prices are
+     * summed as the decimals they are stored as.
+     */
+    public static final class Health {
+        private final long totalProducts;
+        private final long lowStockProducts;
+        private final long outOfStockProducts;
+        private final BigDecimal totalValue;
+        
+        Health(long totalProducts, long lowStockProducts, long outOfStockProducts, BigDecimal totalValue) {
+            this.totalProducts = totalProducts;
+            this.lowStockProducts = lowStockProducts;
+            this.outOfStockProducts = outOfStockProducts;
+            this.totalValue = totalValue;
+        }
+        
+        public long getTotalProducts() {
+            return totalProducts;
+        }
+        
+        public long getLowStockProducts() {
+            return lowStockProducts;
+        }
+        
+        public long getOutOfStockProducts() {
+            return outOfStockProducts;
+        }
+        
+        public BigDecimal getTotalValue() {
+            return totalValue;
+        }
+        
+        // Values compare by amount, so 10.0 and 10.00 are the same total
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Health)) {
+                return false;
+            }
+            Health health = (Health) other;
+            return totalProducts == health.totalProducts && lowStockProducts == health.lowStockProducts
+                && outOfStockProducts == health.outOfStockProducts && totalValue.compareTo(health.totalValue) == 0;
+        }
+        
+        @Override
+        public int hashCode() {
+            return Long.hashCode(totalProducts) * 31 + totalValue.stripTrailingZeros().hashCode();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,509 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.model.TransactionType;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.smallrye.mutiny.subscription.Cancellable;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.hibernate.Session;
+
+/**
+ * Fills in the analytics columns that need stock history: starting and ending
+ * stock, units sold, low-stock incidents, days out of stock and turnover. Each
+ * run reads only the transactions past its partition's watermark and replays
+ * them over the stock every product had at that watermark, kept in
+ * inventory_rollup_stock. Products are split into PARTITIONS by id and the
+ * partitions roll up in parallel.
+ *
+ * A product's stock carries over days without transactions, so every day it
+ * spends at or below zero is marked out of stock, up to today, even if nothing
+ * was sold or restocked that day.
+ *
+ * A partition's watermark row is locked for the whole batch and written in the
+ * same transaction as its stock and analytics rows, so re-running, or running on
+ * two instances at once, continues from the last commit and never counts a
+ * transaction twice.
+ */
+@ApplicationScoped
+public class InventoryRollupService {
+    
+    // Watermarks are per partition: changing this needs the rollup tables reset
+    static final int PARTITIONS = 8;
+    private static final int BATCH_SIZE = 5_000;
+    private static final int UPSERT_BATCH_SIZE = 500;
+    private static final Duration ROLLUP_INTERVAL = Duration.ofMinutes(5);
+    
+    private static final String INIT_WATERMARK =
+        "INSERT INTO inventory_rollup_watermarks (partition_id) VALUES (?) ON CONFLICT (partition_id) DO NOTHING";
+    private static final String LOCK_WATERMARK =
+        "SELECT last_transaction_id FROM inventory_rollup_watermarks WHERE partition_id = ? FOR UPDATE";
+    private static final String WRITE_WATERMARK =
+        "UPDATE inventory_rollup_watermarks SET last_transaction_id = ?, updated_at = CURRENT_TIMESTAMP " +
+        "WHERE partition_id = ?";
+    // Ids are taken before commit, so a row from the last minute may still have an
+    // uncommitted neighbour with a lower id; the batch stops short of the first one
+    private static final String READ_TRANSACTIONS =
+        "SELECT id, product_id, type, quantity, timestamp FROM inventory_transactions " +
+        "WHERE id > ? AND MOD(product_id, " + PARTITIONS + ") = ? AND id < COALESCE(" +
+        "(SELECT MIN(id) FROM inventory_transactions WHERE id > ? " +
+        "AND created_at >= CURRENT_TIMESTAMP - INTERVAL '1 minute'), " + Long.MAX_VALUE + ") " +
+        "ORDER BY id LIMIT " + BATCH_SIZE;
+    private static final String READ_STOCK =
+        "SELECT product_id, stock, rolled_through FROM inventory_rollup_stock WHERE product_id = ANY (?)";
+    private static final String READ_OUT_OF_STOCK =
+        "SELECT product_id, stock, rolled_through FROM inventory_rollup_stock " +
+        "WHERE MOD(product_id, " + PARTITIONS + ") = ? AND stock <= 0 AND rolled_through < ?";
+    private static final String WRITE_STOCK =
+        "INSERT INTO inventory_rollup_stock (product_id, stock, rolled_through, updated_at) " +
+        "VALUES (?, ?, ?, CURRENT_TIMESTAMP) ON CONFLICT (product_id) DO UPDATE SET " +
+        "stock = EXCLUDED.stock, rolled_through = EXCLUDED.rolled_through, updated_at = EXCLUDED.updated_at";
+    private static final String READ_CURRENT_STOCK =
+        "SELECT id, stock_quantity FROM products WHERE id = ANY (?)";
+    private static final String READ_THRESHOLDS =
+        "SELECT id, low_stock_threshold FROM products WHERE id = ANY (?)";
+    private static final String READ_LATER_TRANSACTIONS =
+        "SELECT product_id, type, quantity FROM inventory_transactions " +
+        "WHERE id > ? AND product_id = ANY (?) ORDER BY id DESC";
+    private static final String READ_DAYS =
+        "SELECT product_id, date, starting_stock, units_sold, days_out_of_stock, low_stock_incidents " +
+        "FROM inventory_analytics " +
+        "WHERE product_id = ANY (?) AND date BETWEEN ? AND ?";
+    // Sales, restock and returns counts belong to the analytics pipeline; an
+    // existing row keeps them
+    private static final String UPSERT_DAY =
+        "INSERT INTO inventory_analytics (product_id, date, starting_stock, ending_stock, units_sold, " +
+        "days_out_of_stock, turnover_rate, low_stock_incidents, sales_count, restock_count, returns_count) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0, 0, 0) ON CONFLICT (product_id, date) DO UPDATE SET " +
+        "starting_stock = EXCLUDED.starting_stock, ending_stock = EXCLUDED.ending_stock, " +
+        "units_sold = EXCLUDED.units_sold, days_out_of_stock = EXCLUDED.days_out_of_stock, " +
+        "turnover_rate = EXCLUDED.turnover_rate, low_stock_incidents = EXCLUDED.low_stock_incidents";
+    
+    @Inject
+    EntityManager entityManager;
+    
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Cancellable scheduler;
+    
+    void onStart(@Observes StartupEvent event) {
+        // A tick during a long run is dropped rather than queued
+        scheduler = Multi.createFrom().ticks().every(ROLLUP_INTERVAL)
+            .onOverflow().drop()
+            // A failed run is logged rather than ending the ticks; its partitions resume from their watermarks
+            .onItem().transformToUniAndConcatenate(tick -> rollup().onFailure().recoverWithItem(failure -> {
+                failure.printStackTrace();
+                return 0;
+            }))
+            .subscribe().with(processed -> {}, Throwable::printStackTrace);
+    }
+    
+    void onStop(@Observes ShutdownEvent event) {
+        if (scheduler != null) {
+            scheduler.cancel();
+        }
+    }
+    
+    /**
+     * Rolls every partition up to the settled end of inventory_transactions and
+     * returns the number of transactions processed. Returns 0 straight away if a
+     * run is already in progress on this instance.
+     */
+    public Uni<Integer> rollup() {
+        if (!running.compareAndSet(false, true)) {
+            return Uni.createFrom().item(0);
+        }
+        List<Uni<Integer>> partitions = new ArrayList<>(PARTITIONS);
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            int current = partition;
+            partitions.add(Uni.createFrom().item(() -> rollupPartition(current))
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool()));
+        }
+        return Uni.join().all(partitions).andCollectFailures()
+            .map(counts -> counts.stream().mapToInt(Integer::intValue).sum())
+            .eventually(() -> running.set(false));
+    }
+    
+    private int rollupPartition(int partition) {
+        int total = 0;
+        while (true) {
+            int processed = QuarkusTransaction.requiringNew().call(() ->
+                entityManager.unwrap(Session.class).doReturningWork(connection -> rollupBatch(connection, partition)));
+            total += processed;
+            if (processed < BATCH_SIZE) {
+                return total;
+            }
+        }
+    }
+    
+    private int rollupBatch(Connection connection, int partition) throws SQLException {
+        long watermark = lockWatermark(connection, partition);
+        List<TransactionRow> rows = readTransactions(connection, partition, watermark);
+        Map<Long, DayRollup> days = new LinkedHashMap<>();
+        Map<Long, RolledStock> stock = new HashMap<>();
+        
+        if (!rows.isEmpty()) {
+            Set<Long> productIds = new LinkedHashSet<>();
+            rows.forEach(row -> productIds.add(row.productId));
+            stock.putAll(readStock(connection, READ_STOCK, statement ->
+                statement.setArray(1, ids(connection, productIds))));
+            // Seen for the first time: work back from today's stock, once per product
+            Set<Long> untracked = new LinkedHashSet<>(productIds);
+            untracked.removeAll(stock.keySet());
+            if (!untracked.isEmpty()) {
+                stock.putAll(reconstructStock(connection, untracked, watermark));
+            }
+            days.putAll(fold(rows, stock, readThresholds(connection, productIds)));
+        }
+        // Caught up: products still out of stock are so through today, transactions or not
+        if (rows.size() < BATCH_SIZE) {
+            LocalDate today = LocalDate.now();
+            readStock(connection, READ_OUT_OF_STOCK, statement -> {
+                statement.setInt(1, partition);
+                statement.setDate(2, Date.valueOf(today));
+            }).forEach(stock::putIfAbsent);
+            carryForward(days, stock, today);
+        }
+        if (days.isEmpty()) {
+            return rows.size();
+        }
+        
+        readDays(connection, days);
+        writeDays(connection, days.values());
+        writeStock(connection, stock);
+        if (!rows.isEmpty()) {
+            writeWatermark(connection, partition, rows.get(rows.size() - 1).id);
+        }
+        return rows.size();
+    }
+    
+    /**
+     * Applies the rows, in id order, to the products' running stock and returns the
+     * resulting rollup of each (product, day) touched, plus the days in between
+     * that a product spent out of stock. A transaction leaving the stock at or
+     * below the product's threshold is a low-stock incident.
+     */
+    static Map<Long, DayRollup> fold(List<TransactionRow> rows, Map<Long, RolledStock> stock,
+                                     Map<Long, Integer> thresholds) {
+        Map<Long, DayRollup> days = new LinkedHashMap<>();
+        for (TransactionRow row : rows) {
+            RolledStock rolled = stock.computeIfAbsent(row.productId, productId -> new RolledStock(0, null));
+            carryForward(days, row.productId, rolled, row.date.minusDays(1));
+            int before = rolled.units;
+            DayRollup day = days.computeIfAbsent(DayRollup.key(row.productId, row.date),
+                key -> new DayRollup(row.productId, row.date, before));
+            int after = apply(before, row.type, row.quantity);
+            if (row.type == TransactionType.SALE) {
+                day.unitsSold += row.quantity;
+            }
+            day.closingStock = after;
+            day.outOfStock |= after <= 0;
+            if (after <= thresholds.getOrDefault(row.productId, Integer.MIN_VALUE)) {
+                day.lowStockIncidents++;
+            }
+            rolled.units = after;
+            if (rolled.through == null || row.date.isAfter(rolled.through)) {
+                rolled.through = row.date;
+            }
+        }
+        return days;
+    }
+    
+    // Adds a day for every product out of stock from the day after it was last rolled through today
+    static void carryForward(Map<Long, DayRollup> days, Map<Long, RolledStock> stock, LocalDate today) {
+        stock.forEach((productId, rolled) -> carryForward(days, productId, rolled, today));
+    }
+    
+    // Stock only changes with a transaction, so the days in between close as they opened
+    private static void carryForward(Map<Long, DayRollup> days, long productId, RolledStock rolled, LocalDate to) {
+        if (rolled.through == null || rolled.units > 0) {
+            return;
+        }
+        for (LocalDate date = rolled.through.plusDays(1); !date.isAfter(to); date = date.plusDays(1)) {
+            LocalDate day = date;
+            days.computeIfAbsent(DayRollup.key(productId, day), key -> new DayRollup(productId, day, rolled.units));
+            rolled.through = day;
+        }
+    }
+    
+    static int apply(int stock, TransactionType type, int quantity) {
+        return switch (type) {
+            case SALE, DAMAGED -> stock - quantity;
+            case PURCHASE, RESTOCK, RETURN -> stock + quantity;
+            case ADJUSTMENT -> quantity;
+        };
+    }
+    
+    // The stock before a transaction, given the stock after it. An adjustment hides
+    // what it replaced, so the stock before one is taken to be its result.
+    static int unwind(int stock, TransactionType type, int quantity) {
+        return switch (type) {
+            case SALE, DAMAGED -> stock + quantity;
+            case PURCHASE, RESTOCK, RETURN -> stock - quantity;
+            case ADJUSTMENT -> quantity;
+        };
+    }
+    
+    private long lockWatermark(Connection connection, int partition) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INIT_WATERMARK)) {
+            statement.setInt(1, partition);
+            statement.executeUpdate();
+        }
+        try (PreparedStatement statement = connection.prepareStatement(LOCK_WATERMARK)) {
+            statement.setInt(1, partition);
+            try (ResultSet result = statement.executeQuery()) {
+                result.next();
+                return result.getLong(1);
+            }
+        }
+    }
+    
+    private List<TransactionRow> readTransactions(Connection connection, int partition, long watermark)
+            throws SQLException {
+        List<TransactionRow> rows = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(READ_TRANSACTIONS)) {
+            statement.setLong(1, watermark);
+            statement.setInt(2, partition);
+            statement.setLong(3, watermark);
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    rows.add(new TransactionRow(result.getLong(1), result.getLong(2),
+                        TransactionType.valueOf(result.getString(3)), result.getInt(4),
+                        result.getTimestamp(5).toLocalDateTime().toLocalDate()));
+                }
+            }
+        }
+        return rows;
+    }
+    
+    private Map<Long, RolledStock> readStock(Connection connection, String query, Parameters parameters)
+            throws SQLException {
+        Map<Long, RolledStock> stock = new HashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            parameters.set(statement);
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    Date through = result.getDate(3);
+                    stock.put(result.getLong(1),
+                        new RolledStock(result.getInt(2), through == null ? null : through.toLocalDate()));
+                }
+            }
+        }
+        return stock;
+    }
+    
+    // Nothing is known about the days before a reconstructed product's first transaction
+    private Map<Long, RolledStock> reconstructStock(Connection connection, Collection<Long> productIds,
+                                                    long watermark) throws SQLException {
+        Map<Long, Integer> stock = new HashMap<>();
+        productIds.forEach(productId -> stock.put(productId, 0));
+        Array ids = ids(connection, productIds);
+        try (PreparedStatement statement = connection.prepareStatement(READ_CURRENT_STOCK)) {
+            statement.setArray(1, ids);
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    stock.put(result.getLong(1), result.getInt(2));
+                }
+            }
+        }
+        try (PreparedStatement statement = connection.prepareStatement(READ_LATER_TRANSACTIONS)) {
+            statement.setLong(1, watermark);
+            statement.setArray(2, ids);
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    TransactionType type = TransactionType.valueOf(result.getString(2));
+                    int quantity = result.getInt(3);
+                    stock.computeIfPresent(result.getLong(1), (productId, after) -> unwind(after, type, quantity));
+                }
+            }
+        }
+        Map<Long, RolledStock> rolled = new HashMap<>();
+        stock.forEach((productId, units) -> rolled.put(productId, new RolledStock(units, null)));
+        return rolled;
+    }
+    
+    private Map<Long, Integer> readThresholds(Connection connection, Collection<Long> productIds)
+            throws SQLException {
+        Map<Long, Integer> thresholds = new HashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(READ_THRESHOLDS)) {
+            statement.setArray(1, ids(connection, productIds));
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    thresholds.put(result.getLong(1), result.getInt(2));
+                }
+            }
+        }
+        return thresholds;
+    }
+    
+    // Days already part-rolled by an earlier batch keep their starting stock and add to their totals
+    private void readDays(Connection connection, Map<Long, DayRollup> days) throws SQLException {
+        Set<Long> productIds = new LinkedHashSet<>();
+        LocalDate from = LocalDate.MAX;
+        LocalDate to = LocalDate.MIN;
+        for (DayRollup day : days.values()) {
+            productIds.add(day.productId);
+            from = day.date.isBefore(from) ? day.date : from;
+            to = day.date.isAfter(to) ? day.date : to;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(READ_DAYS)) {
+            statement.setArray(1, ids(connection, productIds));
+            statement.setDate(2, Date.valueOf(from));
+            statement.setDate(3, Date.valueOf(to));
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    DayRollup day = days.get(DayRollup.key(result.getLong(1), result.getDate(2).toLocalDate()));
+                    if (day == null) {
+                        continue;
+                    }
+                    int startingStock = result.getInt(3);
+                    if (!result.wasNull()) {
+                        day.startingStock = startingStock;
+                    }
+                    day.unitsSold += result.getInt(4);
+                    day.outOfStock |= result.getInt(5) > 0;
+                    day.lowStockIncidents += result.getInt(6);
+                }
+            }
+        }
+    }
+    
+    private void writeDays(Connection connection, Collection<DayRollup> days) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(UPSERT_DAY)) {
+            int batched = 0;
+            for (DayRollup day : days) {
+                statement.setLong(1, day.productId);
+                statement.setDate(2, Date.valueOf(day.date));
+                statement.setInt(3, day.startingStock);
+                statement.setInt(4, day.closingStock);
+                statement.setInt(5, day.unitsSold);
+                statement.setInt(6, day.outOfStock ? 1 : 0);
+                statement.setDouble(7, day.turnoverRate());
+                statement.setInt(8, day.lowStockIncidents);
+                statement.addBatch();
+                if (++batched % UPSERT_BATCH_SIZE == 0) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+        try (PreparedStatement statement = connection.prepareStatement(InventoryAnalyticsCubeService.MARK_CHANGED)) {
+            for (DayRollup day : days) {
+                InventoryAnalyticsCubeService.markChanged(statement, day.productId, day.date);
+            }
+            statement.executeBatch();
+        }
+    }
+    
+    private void writeStock(Connection connection, Map<Long, RolledStock> stock) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(WRITE_STOCK)) {
+            int batched = 0;
+            for (Map.Entry<Long, RolledStock> entry : stock.entrySet()) {
+                RolledStock rolled = entry.getValue();
+                statement.setLong(1, entry.getKey());
+                statement.setInt(2, rolled.units);
+                statement.setDate(3, rolled.through == null ? null : Date.valueOf(rolled.through));
+                statement.addBatch();
+                if (++batched % UPSERT_BATCH_SIZE == 0) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+    }
+    
+    private void writeWatermark(Connection connection, int partition, long lastTransactionId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(WRITE_WATERMARK)) {
+            statement.setLong(1, lastTransactionId);
+            statement.setInt(2, partition);
+            statement.executeUpdate();
+        }
+    }
+    
+    private static Array ids(Connection connection, Collection<Long> productIds) throws SQLException {
+        return connection.createArrayOf("bigint", productIds.toArray());
+    }
+    
+    @FunctionalInterface
+    private interface Parameters {
+        void set(PreparedStatement statement) throws SQLException;
+    }
+    
+    // A product's stock as of its partition's watermark, and the last day rolled up with it
+    static final class RolledStock {
+        int units;
+        LocalDate through;
+        
+        RolledStock(int units, LocalDate through) {
+            this.units = units;
+            this.through = through;
+        }
+    }
+    
+    static final class TransactionRow {
+        final long id;
+        final long productId;
+        final TransactionType type;
+        final int quantity;
+        final LocalDate date;
+        
+        TransactionRow(long id, long productId, TransactionType type, int quantity, LocalDate date) {
+            this.id = id;
+            this.productId = productId;
+            this.type = type;
+            this.quantity = quantity;
+            this.date = date;
+        }
+    }
+    
+    static final class DayRollup {
+        final long productId;
+        final LocalDate date;
+        int startingStock;
+        int closingStock;
+        int unitsSold;
+        int lowStockIncidents;
+        boolean outOfStock;
+        
+        private DayRollup(long productId, LocalDate date, int startingStock) {
+            this.productId = productId;
+            this.date = date;
+            this.startingStock = startingStock;
+            this.closingStock = startingStock;
+            this.outOfStock = startingStock <= 0;
+        }
+        
+        // Same packing as the analytics pipeline
+        static Long key(long productId, LocalDate date) {
+            return productId << 24 | date.toEpochDay();
+        }
+        
+        // Units sold over the average of the opening and closing stock
+        double turnoverRate() {
+            double averageStock = (startingStock + closingStock) / 2.0;
+            return averageStock > 0 ? unitsSold / averageStock : 0.0;
+        }
+    }
+}
\ No newline at end of file
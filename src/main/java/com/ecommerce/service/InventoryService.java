@@ -1,20 +1,55 @@
 package com.ecommerce.service;
 
+import com.ecommerce.domain.dto.InventoryBatchResultDTO;
+import com.ecommerce.domain.dto.InventoryLineResultDTO;
 import com.ecommerce.domain.dto.InventoryTransactionDTO;
 import com.ecommerce.domain.dto.StockAlertDTO;
+import com.ecommerce.domain.event.ProductChangedEvent;
 import com.ecommerce.domain.model.*;
 import com.ecommerce.domain.repository.*;
+import com.ecommerce.exception.BadRequestException;
 import com.ecommerce.exception.ResourceNotFoundException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.hibernate.reactive.panache.Panache;
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.hibernate.Session;
 
 @ApplicationScoped
 public class InventoryService {
     
+    private static final int MAX_BATCH_SIZE = 10_000;
+    private static final int INSERT_BATCH_SIZE = 500;
+    private static final String LOCK_STOCK =
+        "SELECT id, stock_quantity FROM products WHERE id = ANY(?) ORDER BY id FOR UPDATE";
+    // Bumping the version makes an entity edit that read the old stock fail instead of overwriting it
+    private static final String UPDATE_STOCK =
+        "UPDATE products SET stock_quantity = ?, version = COALESCE(version, 0) + 1 WHERE id = ?";
+    private static final String INSERT_TRANSACTION =
+        "INSERT INTO inventory_transactions (product_id, quantity, type, reference, timestamp) VALUES (?, ?, ?, ?, ?)";
+    
     @Inject
     ProductRepository productRepository;
     
@@ -25,46 +60,72 @@ public class InventoryService {
     StockAlertRepository alertRepository;
     
     @Inject
-    EmailService emailService;
+    StockReservationService stockReservations;
     
-    @Transactional
+    @Inject
+    EntityManager entityManager;
+    
+    @Inject
+    Event<ProductChangedEvent> productChanged;
+    
+    @Inject
+    Validator validator;
+    
+    @Inject
+    ObjectMapper objectMapper;
+    
+    /**
+     * Stock comes from this instance's leased allotment, so concurrent sales of one
+     * product never wait on its row; only a sale the allotment cannot cover leases
+     * more, on a worker thread. Outgoing units are held until the record commits
+     * and handed back if it does not. Analytics pick the committed row up from
+     * inventory_transactions.
+     */
     public Uni<InventoryTransaction> recordTransaction(InventoryTransactionDTO transactionDTO) {
         return productRepository.findById(transactionDTO.getProductId())
             .onItem().ifNull().failWith(() -> 
                 new ResourceNotFoundException("Product not found"))
             .chain(product -> {
-                // Calculate new stock level
-                int newStock = calculateNewStock(
-                    product.getStockQuantity(),
-                    transactionDTO.getQuantity(),
-                    transactionDTO.getType()
-                );
-                
-                // Validate stock level
-                if (newStock < 0) {
-                    return Uni.createFrom().failure(
-                        new IllegalStateException("Insufficient stock"));
-                }
+                Long productId = product.getId();
+                int quantity = transactionDTO.getQuantity();
+                TransactionType type = transactionDTO.getType();
+                boolean outgoing = type == TransactionType.SALE || type == TransactionType.DAMAGED;
+                Uni<Void> held = !outgoing || stockReservations.tryReserve(productId, quantity)
+                    ? Uni.createFrom().voidItem()
+                    : Blocking.run(() -> stockReservations.reserve(productId, quantity));
                 
-                // Update product stock
-                product.setStockQuantity(newStock);
-                
-                // Create transaction record
-                InventoryTransaction transaction = new InventoryTransaction();
-                transaction.setProduct(product);
-                transaction.setQuantity(transactionDTO.getQuantity());
-                transaction.setType(transactionDTO.getType());
-                transaction.setReference(transactionDTO.getReference());
-                
-                // Check for low stock
-                checkLowStock(product, newStock);
-                
-                return productRepository.persist(product)
-                    .chain(() -> transactionRepository.persist(transaction));
+                return held
+                    .chain(() -> {
+                        // Create transaction record
+                        InventoryTransaction transaction = new InventoryTransaction();
+                        transaction.setProduct(product);
+                        transaction.setQuantity(quantity);
+                        transaction.setType(type);
+                        transaction.setReference(transactionDTO.getReference());
+                        
+                        return Panache.withTransaction(() -> transactionRepository.persist(transaction))
+                            .onFailure().invoke(error -> {
+                                if (outgoing) {
+                                    stockReservations.release(productId, quantity);
+                                }
+                            });
+                    })
+                    .chain(transaction -> applyToStock(productId, quantity, type).replaceWith(transaction));
             });
     }
     
-    private int calculateNewStock(int currentStock, int quantity, TransactionType type) {
+    // Only an adjustment writes straight away
+    private Uni<Void> applyToStock(Long productId, int quantity, TransactionType type) {
+        return switch (type) {
+            case PURCHASE, RESTOCK, RETURN -> Uni.createFrom().voidItem()
+                .invoke(() -> stockReservations.restock(productId, quantity));
+            case SALE, DAMAGED -> Uni.createFrom().voidItem()
+                .invoke(() -> stockReservations.confirm(productId, quantity));
+            case ADJUSTMENT -> Blocking.run(() -> stockReservations.adjustTo(productId, quantity));
+        };
+    }
+    
+    static int calculateNewStock(int currentStock, int quantity, TransactionType type) {
         return switch (type) {
             case PURCHASE, RESTOCK, RETURN -> currentStock + quantity;
             case SALE, DAMAGED -> currentStock - quantity;
@@ -72,18 +133,178 @@ public class InventoryService {
         };
     }
     
-    private void checkLowStock(Product product, int newStock) {
-        alertRepository.findByProduct(product.getId())
-            .subscribe().with(alert -> {
-                if (alert != null && alert.getActive() && 
-                    newStock <= alert.getThreshold()) {
-                    emailService.sendLowStockAlert(product, newStock, alert.getThreshold())
-                        .subscribe().with(
-                            success -> {},
-                            error -> System.err.println("Failed to send low stock alert: " + error)
-                        );
-                }
+    public Uni<InventoryBatchResultDTO> recordTransactions(List<InventoryTransactionDTO> transactions) {
+        if (transactions == null) {
+            return Uni.createFrom().failure(new BadRequestException("Transactions are required"));
+        }
+        List<BatchLine> lines = new ArrayList<>(transactions.size());
+        for (int i = 0; i < transactions.size(); i++) {
+            lines.add(new BatchLine(i + 1, transactions.get(i)));
+        }
+        return recordBatch(lines);
+    }
+    
+    // One transaction per line; a line that does not parse is rejected on its own
+    public Uni<InventoryBatchResultDTO> recordTransactions(String ndjson) {
+        List<BatchLine> lines = new ArrayList<>();
+        String[] rows = ndjson.split("\r?\n");
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i].isBlank()) {
+                continue;
+            }
+            BatchLine line;
+            try {
+                line = new BatchLine(i + 1, objectMapper.readValue(rows[i], InventoryTransactionDTO.class));
+            } catch (JsonProcessingException e) {
+                line = new BatchLine(i + 1, null);
+                line.reject("Malformed JSON");
+            }
+            lines.add(line);
+        }
+        return recordBatch(lines);
+    }
+    
+    private Uni<InventoryBatchResultDTO> recordBatch(List<BatchLine> lines) {
+        if (lines.size() > MAX_BATCH_SIZE) {
+            return Uni.createFrom().failure(new BadRequestException(
+                "A batch holds at most " + MAX_BATCH_SIZE + " transactions"));
+        }
+        // The stock lookup and the batch insert are blocking JDBC calls
+        return Uni.createFrom().item(() -> ingest(lines))
+            .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+    }
+    
+    private InventoryBatchResultDTO ingest(List<BatchLine> lines) {
+        Map<Long, List<BatchLine>> byProduct = new LinkedHashMap<>();
+        for (BatchLine line : lines) {
+            if (line.error == null) {
+                validate(line);
+            }
+            if (line.error == null) {
+                byProduct.computeIfAbsent(line.transaction.getProductId(), id -> new ArrayList<>()).add(line);
+            }
+        }
+        
+        List<BatchLine> accepted = byProduct.isEmpty() ? List.of() : applyBatch(byProduct);
+        
+        InventoryBatchResultDTO result = new InventoryBatchResultDTO();
+        result.setLines(lines.stream().map(BatchLine::toResult).collect(Collectors.toList()));
+        result.setAccepted(accepted.size());
+        result.setRejected(lines.size() - accepted.size());
+        return result;
+    }
+    
+    /**
+     * Applies the batch in one transaction. Every product row is locked from the
+     * stock read to the write, so no other writer on any instance can sell the
+     * same units in between. Rows are locked in id order, so two batches sharing
+     * products wait for each other instead of deadlocking. Units leased to the
+     * instances' reservation ledgers are not in the column and cannot cover a sale.
+     */
+    List<BatchLine> applyBatch(Map<Long, List<BatchLine>> byProduct) {
+        return QuarkusTransaction.requiringNew().call(() -> {
+            List<BatchLine> accepted = entityManager.unwrap(Session.class).doReturningWork(connection -> {
+                Map<Long, StockLevel> stock = lockStock(connection, byProduct.keySet());
+                List<BatchLine> applied = applyLines(byProduct, stock);
+                updateStock(connection, stock);
+                insertTransactions(connection, applied);
+                return applied;
             });
+            // Observed after commit, like the entity listener's events
+            accepted.stream().map(line -> line.transaction.getProductId()).distinct()
+                .forEach(productId -> productChanged.fire(ProductChangedEvent.unversioned(productId)));
+            return accepted;
+        });
+    }
+    
+    /**
+     * Each product's lines apply in submission order against its locked stock, so
+     * a restock early in the batch covers a later sale.
+     */
+    static List<BatchLine> applyLines(Map<Long, List<BatchLine>> byProduct, Map<Long, StockLevel> stock) {
+        List<BatchLine> accepted = new ArrayList<>();
+        byProduct.forEach((productId, productLines) -> {
+            StockLevel level = stock.get(productId);
+            for (BatchLine line : productLines) {
+                if (level == null) {
+                    line.reject("Product not found");
+                    continue;
+                }
+                int newStock = calculateNewStock(level.stock, line.transaction.getQuantity(),
+                    line.transaction.getType());
+                if (newStock < 0) {
+                    line.reject("Insufficient stock");
+                    continue;
+                }
+                level.stock = newStock;
+                level.changed = true;
+                accepted.add(line);
+            }
+        });
+        return accepted;
+    }
+    
+    private void validate(BatchLine line) {
+        if (line.transaction == null) {
+            line.reject("Transaction is required");
+            return;
+        }
+        String errors = validator.validate(line.transaction).stream()
+            .map(ConstraintViolation::getMessage)
+            .sorted()
+            .collect(Collectors.joining("; "));
+        if (!errors.isEmpty()) {
+            line.reject(errors);
+        }
+    }
+    
+    private static Map<Long, StockLevel> lockStock(Connection connection, Collection<Long> productIds)
+            throws SQLException {
+        Map<Long, StockLevel> stock = new HashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(LOCK_STOCK)) {
+            statement.setArray(1, connection.createArrayOf("bigint", productIds.toArray()));
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    stock.put(result.getLong(1), new StockLevel(result.getInt(2)));
+                }
+            }
+        }
+        return stock;
+    }
+    
+    private static void updateStock(Connection connection, Map<Long, StockLevel> stock) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(UPDATE_STOCK)) {
+            for (Map.Entry<Long, StockLevel> level : stock.entrySet()) {
+                if (level.getValue().changed) {
+                    statement.setInt(1, level.getValue().stock);
+                    statement.setLong(2, level.getKey());
+                    statement.addBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+    }
+    
+    private static void insertTransactions(Connection connection, List<BatchLine> lines) throws SQLException {
+        if (lines.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_TRANSACTION)) {
+            int batched = 0;
+            for (BatchLine line : lines) {
+                statement.setLong(1, line.transaction.getProductId());
+                statement.setInt(2, line.transaction.getQuantity());
+                statement.setString(3, line.transaction.getType().name());
+                statement.setString(4, line.transaction.getReference());
+                statement.setTimestamp(5, now);
+                statement.addBatch();
+                if (++batched % INSERT_BATCH_SIZE == 0) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+        }
     }
     
     public Uni<List<InventoryTransaction>> getProductTransactions(Long productId) {
@@ -126,4 +347,37 @@ public class InventoryService {
     public Uni<List<StockAlert>> getActiveAlerts() {
         return alertRepository.findActiveAlerts();
     }
+    
+    static final class BatchLine {
+        private final int number;
+        private final InventoryTransactionDTO transaction;
+        private String error;
+        
+        private BatchLine(int number, InventoryTransactionDTO transaction) {
+            this.number = number;
+            this.transaction = transaction;
+        }
+        
+        private void reject(String reason) {
+            error = reason;
+        }
+        
+        private InventoryLineResultDTO toResult() {
+            Long productId = transaction != null ? transaction.getProductId() : null;
+            return new InventoryLineResultDTO(number, productId, error == null, error);
+        }
+    }
+    
+    static final class StockLevel {
+        private int stock;
+        private boolean changed;
+        
+        StockLevel(int stock) {
+            this.stock = stock;
+        }
+        
+        int stock() {
+            return stock;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,126 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.dto.StockLevelEventDTO;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fans committed stock changes out to the subscribers of the inventory stream.
+ * Publishing never waits on a subscriber: each one has its own buffer holding at
+ * most one pending change per product, so a client that reads slowly gets the
+ * latest level of every product that changed rather than every change. A client
+ * that falls behind on more than MAX_PENDING products is disconnected.
+ *
+ * Changes come from ProductChangeFeed, which reads what every instance commits,
+ * so all instances stream the same levels and report the same risk transitions
+ * about a second after the commit. Changes between two reads arrive as one.
+ */
+@ApplicationScoped
+public class InventoryStreamService {
+    
+    static final int MAX_PENDING = 10_000;
+    static final String NOT_AT_RISK = "NONE";
+    
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    // Last level published per product, to report transitions
+    private final Map<Long, Level> levels = new ConcurrentHashMap<>();
+    
+    // Each subscription pulls one change at a time, only as the client asks for it
+    public Multi<StockLevelEventDTO> subscribe() {
+        return Multi.createFrom().deferred(() -> {
+            Subscriber subscriber = new Subscriber();
+            subscribers.add(subscriber);
+            return Multi.createBy().repeating().completionStage(subscriber::next).indefinitely()
+                .onTermination().invoke(() -> subscribers.remove(subscriber));
+        });
+    }
+    
+    // Called with a committed product row; rows whose stock and threshold did not change are skipped
+    public void publish(Long productId, int stockQuantity, int lowStockThreshold) {
+        String riskLevel = stockQuantity <= lowStockThreshold
+            ? InventoryAnalyticsService.riskLevel(stockQuantity, lowStockThreshold)
+            : NOT_AT_RISK;
+        Level previous = levels.put(productId, new Level(stockQuantity, lowStockThreshold, riskLevel));
+        if (previous != null && previous.stockQuantity == stockQuantity && previous.threshold == lowStockThreshold) {
+            return;
+        }
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        StockLevelEventDTO event = new StockLevelEventDTO(productId, stockQuantity, lowStockThreshold,
+            riskLevel, previous != null ? previous.riskLevel : null, LocalDateTime.now());
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(event);
+        }
+    }
+    
+    // A newer change of the same product replaces the pending one but keeps the level it started from
+    static StockLevelEventDTO conflate(StockLevelEventDTO pending, StockLevelEventDTO latest) {
+        return new StockLevelEventDTO(latest.getProductId(), latest.getStockQuantity(), latest.getThreshold(),
+            latest.getRiskLevel(), pending.getPreviousRiskLevel(), latest.getChangedAt());
+    }
+    
+    private static final class Level {
+        private final int stockQuantity;
+        private final int threshold;
+        private final String riskLevel;
+        
+        private Level(int stockQuantity, int threshold, String riskLevel) {
+            this.stockQuantity = stockQuantity;
+            this.threshold = threshold;
+            this.riskLevel = riskLevel;
+        }
+    }
+    
+    private static final class Subscriber {
+        // productId -> latest change not sent yet, oldest product first
+        private final LinkedHashMap<Long, StockLevelEventDTO> pending = new LinkedHashMap<>();
+        // Set while the client waits for a change and nothing is pending
+        private CompletableFuture<StockLevelEventDTO> waiting;
+        private boolean overflowed;
+        
+        private void offer(StockLevelEventDTO event) {
+            CompletableFuture<StockLevelEventDTO> handOff;
+            synchronized (this) {
+                if (overflowed) {
+                    return;
+                }
+                if (waiting == null) {
+                    if (pending.size() >= MAX_PENDING && !pending.containsKey(event.getProductId())) {
+                        overflowed = true;
+                        pending.clear();
+                    } else {
+                        pending.merge(event.getProductId(), event, InventoryStreamService::conflate);
+                    }
+                    return;
+                }
+                handOff = waiting;
+                waiting = null;
+            }
+            // The client's write runs elsewhere, never on the publishing thread
+            Infrastructure.getDefaultExecutor().execute(() -> handOff.complete(event));
+        }
+        
+        private synchronized CompletableFuture<StockLevelEventDTO> next() {
+            if (overflowed) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Stream subscriber fell behind"));
+            }
+            Iterator<StockLevelEventDTO> oldest = pending.values().iterator();
+            if (oldest.hasNext()) {
+                StockLevelEventDTO event = oldest.next();
+                oldest.remove();
+                return CompletableFuture.completedFuture(event);
+            }
+            waiting = new CompletableFuture<>();
+            return waiting;
+        }
+    }
+}
\ No newline at end of file
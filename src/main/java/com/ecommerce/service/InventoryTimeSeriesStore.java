@@ -0,0 +1,287 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.dto.DailyTrendDTO;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.smallrye.mutiny.subscription.Cancellable;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.hibernate.Session;
+
+/**
+ * The last RETENTION_DAYS of inventory_analytics held per product in primitive
+ * columns indexed by epoch day, so a range summary is a loop over arrays and
+ * trends are written to JSON from slices of them.
+ *
+ * Loaded at startup and then re-synced every RESYNC_INTERVAL with the rows whose
+ * updated_at moved, so every instance serves what the pipelines and the rollup
+ * of all instances have committed, at most one interval late.
+ */
+@ApplicationScoped
+public class InventoryTimeSeriesStore {
+    
+    static final int RETENTION_DAYS = 400;
+    private static final int INITIAL_DAYS = 32;
+    private static final int FETCH_SIZE = 1_000;
+    private static final Duration RESYNC_INTERVAL = Duration.ofMinutes(1);
+    // updated_at is taken when a transaction starts, so rows committed a little
+    // after the last resync may carry an earlier time; they are read again
+    private static final Duration RESYNC_OVERLAP = Duration.ofMinutes(1);
+    
+    private static final String COLUMNS =
+        "SELECT product_id, date, sales_count, restock_count, returns_count, ending_stock, turnover_rate, " +
+        "days_out_of_stock, low_stock_incidents FROM inventory_analytics ";
+    private static final String LOAD_ANALYTICS = COLUMNS + "WHERE date > ? ORDER BY product_id, date";
+    private static final String READ_CHANGED = COLUMNS + "WHERE date > ? AND updated_at > ?";
+    private static final String READ_NOW = "SELECT CURRENT_TIMESTAMP";
+    
+    @Inject
+    EntityManager entityManager;
+    
+    private final Map<Long, Series> series = new ConcurrentHashMap<>();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile boolean loaded;
+    // Database time the last load or resync started at; only touched while refreshing
+    private Timestamp syncedAt;
+    private volatile Cancellable refresher;
+    
+    void onStart(@Observes StartupEvent event) {
+        refresh();
+        refresher = Multi.createFrom().ticks().every(RESYNC_INTERVAL)
+            .emitOn(Infrastructure.getDefaultWorkerPool())
+            .subscribe().with(tick -> refresh(), Throwable::printStackTrace);
+    }
+    
+    void onStop(@Observes ShutdownEvent event) {
+        if (refresher != null) {
+            refresher.cancel();
+        }
+    }
+    
+    void refresh() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            LocalDate since = LocalDate.now().minusDays(RETENTION_DAYS);
+            QuarkusTransaction.requiringNew().run(() ->
+                entityManager.unwrap(Session.class).doWork(connection -> {
+                    Timestamp now;
+                    try (PreparedStatement statement = connection.prepareStatement(READ_NOW);
+                         ResultSet result = statement.executeQuery()) {
+                        result.next();
+                        now = result.getTimestamp(1);
+                    }
+                    boolean full = syncedAt == null;
+                    try (PreparedStatement statement = connection.prepareStatement(full ? LOAD_ANALYTICS : READ_CHANGED)) {
+                        statement.setFetchSize(FETCH_SIZE);
+                        statement.setDate(1, Date.valueOf(since));
+                        if (!full) {
+                            statement.setTimestamp(2, Timestamp.from(syncedAt.toInstant().minus(RESYNC_OVERLAP)));
+                        }
+                        try (ResultSet result = statement.executeQuery()) {
+                            while (result.next()) {
+                                int endingStock = result.getInt(6);
+                                boolean noEndingStock = result.wasNull();
+                                double turnover = result.getDouble(7);
+                                boolean noTurnover = result.wasNull();
+                                put(result.getLong(1), result.getDate(2).toLocalDate(), result.getInt(3),
+                                    result.getInt(4), result.getInt(5), noEndingStock ? DailyTrendDTO.MISSING : endingStock,
+                                    noTurnover ? Double.NaN : turnover, result.getInt(8), result.getInt(9));
+                            }
+                        }
+                    }
+                    syncedAt = now;
+                }));
+            loaded = true;
+        } catch (RuntimeException e) {
+            // Logged so the ticker keeps running; syncedAt stays put for the next tick
+            e.printStackTrace();
+        } finally {
+            refreshing.set(false);
+        }
+    }
+    
+    // Whether a range starting on this date is held here
+    public boolean covers(LocalDate startDate, LocalDate today) {
+        return loaded && startDate.isAfter(today.minusDays(RETENTION_DAYS));
+    }
+    
+    // Replaces the day with a row as the table holds it
+    void put(long productId, LocalDate date, int sales, int restocks, int returns, int endingStock,
+            double turnover, int outOfStock, int lowStock) {
+        if (!retained(date)) {
+            return;
+        }
+        Series product = series(productId);
+        synchronized (product) {
+            int i = product.index(date.toEpochDay());
+            product.present.set(i);
+            product.sales[i] = sales;
+            product.restocks[i] = restocks;
+            product.returns[i] = returns;
+            product.endingStock[i] = endingStock;
+            product.turnover[i] = turnover;
+            product.outOfStock[i] = outOfStock;
+            product.lowStock[i] = lowStock;
+        }
+    }
+    
+    /**
+     * The same summary as InventoryAnalyticsService.summarizeProductAnalytics, with
+     * the trends as slices of the sales and stock columns.
+     */
+    public Map<String, Object> summarize(Long productId, LocalDate startDate, LocalDate endDate) {
+        double turnoverSum = 0;
+        long turnoverDays = 0;
+        double maxTurnover = Double.NEGATIVE_INFINITY;
+        double minTurnover = Double.POSITIVE_INFINITY;
+        int totalSales = 0;
+        int totalRestocks = 0;
+        int totalReturns = 0;
+        int totalOutOfStock = 0;
+        int totalLowStock = 0;
+        DailyTrendDTO salesTrend = new DailyTrendDTO(0, new int[0], new BitSet());
+        DailyTrendDTO stockLevels = salesTrend;
+        
+        Series product = series.get(productId);
+        if (product != null) {
+            synchronized (product) {
+                long from = Math.max(startDate.toEpochDay(), product.firstDay);
+                long to = Math.min(endDate.toEpochDay(), product.firstDay + product.sales.length - 1);
+                if (from <= to) {
+                    int first = (int) (from - product.firstDay);
+                    int last = (int) (to - product.firstDay);
+                    for (int i = product.present.nextSetBit(first); i >= 0 && i <= last; i = product.present.nextSetBit(i + 1)) {
+                        double turnover = product.turnover[i];
+                        if (!Double.isNaN(turnover)) {
+                            turnoverSum += turnover;
+                            turnoverDays++;
+                            maxTurnover = Math.max(maxTurnover, turnover);
+                            minTurnover = Math.min(minTurnover, turnover);
+                        }
+                        totalSales += product.sales[i];
+                        totalRestocks += product.restocks[i];
+                        totalReturns += product.returns[i];
+                        totalOutOfStock += product.outOfStock[i];
+                        totalLowStock += product.lowStock[i];
+                    }
+                    BitSet present = product.present.get(first, last + 1);
+                    salesTrend = new DailyTrendDTO(from, Arrays.copyOfRange(product.sales, first, last + 1), present);
+                    stockLevels = new DailyTrendDTO(from, Arrays.copyOfRange(product.endingStock, first, last + 1), present);
+                }
+            }
+        }
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("averageTurnover", turnoverDays > 0 ? turnoverSum / turnoverDays : 0.0);
+        result.put("maxTurnover", maxTurnover);
+        result.put("minTurnover", minTurnover);
+        result.put("totalSales", totalSales);
+        result.put("totalRestocks", totalRestocks);
+        result.put("totalReturns", totalReturns);
+        result.put("daysOutOfStock", totalOutOfStock);
+        result.put("lowStockIncidents", totalLowStock);
+        result.put("salesTrend", salesTrend);
+        result.put("stockLevels", stockLevels);
+        return result;
+    }
+    
+    // Late rows for days before the window would stretch every column back to them
+    private static boolean retained(LocalDate date) {
+        return date.isAfter(LocalDate.now().minusDays(RETENTION_DAYS));
+    }
+    
+    private Series series(long productId) {
+        return series.computeIfAbsent(productId, id -> new Series());
+    }
+    
+    // Columns of one product, from firstDay; guarded by the instance's monitor
+    private static final class Series {
+        private long firstDay;
+        private int[] sales;
+        private int[] restocks;
+        private int[] returns;
+        private int[] endingStock;
+        private int[] outOfStock;
+        private int[] lowStock;
+        private double[] turnover;
+        // Days with a row
+        private BitSet present = new BitSet();
+        
+        // Index of the day, growing the columns to reach it; days that fall out
+        // of the retention window are dropped as they grow
+        private int index(long day) {
+            if (sales == null) {
+                resize(day, INITIAL_DAYS);
+            } else if (day < firstDay) {
+                resize(day, (int) (firstDay - day) + sales.length);
+            } else if (day - firstDay >= sales.length) {
+                long keepFrom = Math.max(firstDay, day - RETENTION_DAYS + 1);
+                int needed = (int) (day - keepFrom + 1);
+                resize(keepFrom, Math.max(needed, Math.min(sales.length * 2, RETENTION_DAYS)));
+            }
+            return (int) (day - firstDay);
+        }
+        
+        private void resize(long newFirstDay, int capacity) {
+            int[] newSales = new int[capacity];
+            int[] newRestocks = new int[capacity];
+            int[] newReturns = new int[capacity];
+            int[] newEndingStock = new int[capacity];
+            int[] newOutOfStock = new int[capacity];
+            int[] newLowStock = new int[capacity];
+            double[] newTurnover = new double[capacity];
+            Arrays.fill(newEndingStock, DailyTrendDTO.MISSING);
+            Arrays.fill(newTurnover, Double.NaN);
+            BitSet newPresent = new BitSet();
+            
+            if (sales != null) {
+                long from = Math.max(firstDay, newFirstDay);
+                long to = Math.min(firstDay + sales.length, newFirstDay + capacity);
+                if (from < to) {
+                    int source = (int) (from - firstDay);
+                    int target = (int) (from - newFirstDay);
+                    int length = (int) (to - from);
+                    System.arraycopy(sales, source, newSales, target, length);
+                    System.arraycopy(restocks, source, newRestocks, target, length);
+                    System.arraycopy(returns, source, newReturns, target, length);
+                    System.arraycopy(endingStock, source, newEndingStock, target, length);
+                    System.arraycopy(outOfStock, source, newOutOfStock, target, length);
+                    System.arraycopy(lowStock, source, newLowStock, target, length);
+                    System.arraycopy(turnover, source, newTurnover, target, length);
+                    for (int i = present.nextSetBit(source); i >= 0 && i < source + length; i = present.nextSetBit(i + 1)) {
+                        newPresent.set(i - source + target);
+                    }
+                }
+            }
+            
+            firstDay = newFirstDay;
+            sales = newSales;
+            restocks = newRestocks;
+            returns = newReturns;
+            endingStock = newEndingStock;
+            outOfStock = newOutOfStock;
+            lowStock = newLowStock;
+            turnover = newTurnover;
+            present = newPresent;
+        }
+    }
+}
\ No newline at end of file
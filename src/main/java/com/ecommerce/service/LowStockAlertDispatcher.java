@@ -0,0 +1,150 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.dto.LowStockAlertDTO;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.smallrye.mutiny.subscription.Cancellable;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.mail.MessagingException;
+import jakarta.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.hibernate.Session;
+
+/**
+ * Low-stock alerting without a query or an email per transaction. Every
+ * DIGEST_INTERVAL the active stock_alerts are compared with the products table
+ * and the ones whose product is at or under the threshold are mailed together,
+ * each with the current stock.
+ *
+ * stock_alerts.last_alerted_at arms an alert: it is set when the alert goes out
+ * and cleared once stock rises back above the threshold, so a crossing is mailed
+ * once. The alerts are claimed with SKIP LOCKED and the claim is committed before
+ * the digest is sent, so whichever instance gets to one first mails it and no row
+ * stays locked while the mail server answers. A failed send clears the claim in a
+ * second transaction, for the next digest. A dip that recovers between two
+ * digests is never mailed.
+ */
+@ApplicationScoped
+public class LowStockAlertDispatcher {
+    
+    private static final Duration DIGEST_INTERVAL = Duration.ofMinutes(5);
+    
+    private static final String REARM_ALERTS =
+        "WITH recovered AS (SELECT a.id FROM stock_alerts a JOIN products p ON p.id = a.product_id " +
+        "WHERE a.last_alerted_at IS NOT NULL AND (NOT a.active OR p.stock_quantity > a.threshold) " +
+        "FOR UPDATE OF a SKIP LOCKED) " +
+        "UPDATE stock_alerts a SET last_alerted_at = NULL FROM recovered WHERE a.id = recovered.id";
+    private static final String CLAIM_ALERTS =
+        "WITH due AS (SELECT a.id FROM stock_alerts a JOIN products p ON p.id = a.product_id " +
+        "WHERE a.active AND a.last_alerted_at IS NULL AND p.stock_quantity <= a.threshold " +
+        "FOR UPDATE OF a SKIP LOCKED) " +
+        "UPDATE stock_alerts a SET last_alerted_at = CURRENT_TIMESTAMP FROM due, products p " +
+        "WHERE a.id = due.id AND p.id = a.product_id " +
+        "RETURNING a.product_id, p.name, p.stock_quantity, a.threshold, a.last_alerted_at";
+    // Every alert claimed together carries the claiming transaction's timestamp
+    private static final String UNCLAIM_ALERTS =
+        "UPDATE stock_alerts SET last_alerted_at = NULL WHERE product_id = ? AND last_alerted_at = ?";
+    
+    @Inject
+    EntityManager entityManager;
+    
+    @Inject
+    EmailService emailService;
+    
+    private final AtomicBoolean sending = new AtomicBoolean();
+    private volatile Cancellable digester;
+    
+    void onStart(@Observes StartupEvent event) {
+        digester = Multi.createFrom().ticks().every(DIGEST_INTERVAL)
+            .emitOn(Infrastructure.getDefaultWorkerPool())
+            .subscribe().with(tick -> sendDigest(), Throwable::printStackTrace);
+    }
+    
+    void onStop(@Observes ShutdownEvent event) {
+        if (digester != null) {
+            digester.cancel();
+        }
+    }
+    
+    void sendDigest() {
+        if (!sending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            mailClaimed();
+        } catch (MessagingException | RuntimeException e) {
+            e.printStackTrace();
+        } finally {
+            sending.set(false);
+        }
+    }
+    
+    // Claims the due alerts and mails them in one email, re-arming them if it cannot be sent
+    int mailClaimed() throws MessagingException {
+        List<LowStockAlertDTO> alerts = claim();
+        if (alerts.isEmpty()) {
+            return 0;
+        }
+        try {
+            emailService.sendLowStockDigest(alerts);
+        } catch (MessagingException | RuntimeException e) {
+            try {
+                unclaim(alerts);
+            } catch (RuntimeException unclaimFailed) {
+                // Left claimed: mailed again once stock recovers and drops back under the threshold
+                e.addSuppressed(unclaimFailed);
+            }
+            throw e;
+        }
+        return alerts.size();
+    }
+    
+    // One entry per product, for its highest threshold; committed before returning
+    List<LowStockAlertDTO> claim() {
+        return QuarkusTransaction.requiringNew().call(() ->
+            entityManager.unwrap(Session.class).doReturningWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(REARM_ALERTS)) {
+                    statement.executeUpdate();
+                }
+                Map<Long, LowStockAlertDTO> alerts = new LinkedHashMap<>();
+                try (PreparedStatement statement = connection.prepareStatement(CLAIM_ALERTS);
+                     ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        LowStockAlertDTO alert = new LowStockAlertDTO(result.getLong(1), result.getString(2),
+                            result.getInt(3), result.getInt(4), result.getTimestamp(5).toLocalDateTime());
+                        alerts.merge(alert.getProductId(), alert,
+                            (first, other) -> other.getThreshold() > first.getThreshold() ? other : first);
+                    }
+                }
+                return new ArrayList<>(alerts.values());
+            }));
+    }
+    
+    // Clears the claim on every alert of the products, unless another digest has claimed them since
+    void unclaim(List<LowStockAlertDTO> alerts) {
+        QuarkusTransaction.requiringNew().run(() ->
+            entityManager.unwrap(Session.class).doWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(UNCLAIM_ALERTS)) {
+                    for (LowStockAlertDTO alert : alerts) {
+                        statement.setLong(1, alert.getProductId());
+                        statement.setTimestamp(2, Timestamp.valueOf(alert.getCrossedAt()));
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+            }));
+    }
+}
\ No newline at end of file
@@ -1,29 +1,53 @@
 package com.ecommerce.service;
 
+import com.ecommerce.domain.dto.OrderDTO;
+import com.ecommerce.domain.dto.OrderItemDTO;
 import com.ecommerce.domain.model.*;
 import com.ecommerce.domain.repository.CartRepository;
 import com.ecommerce.domain.repository.OrderRepository;
+import com.ecommerce.exception.BadRequestException;
 import com.ecommerce.exception.ResourceNotFoundException;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 @ApplicationScoped
 public class OrderService {
     
+    private static final int EXPORT_BATCH_SIZE = 200;
+    
     @Inject
     OrderRepository orderRepository;
     
     @Inject
     CartRepository cartRepository;
     
+    @Inject
+    CartStore cartStore;
+    
+    @Inject
+    ProductPriceCache priceCache;
+    
     public Uni<List<Order>> getUserOrders(String userId) {
         return orderRepository.findByUserId(userId);
     }
     
+    // Emits the user's whole order history in id order, one keyset batch at a time.
+    // The session is cleared after each batch, so memory stays at one batch.
+    public Multi<OrderDTO> streamUserOrders(String userId) {
+        AtomicLong lastId = new AtomicLong();
+        return Multi.createBy().repeating()
+            .uni(() -> nextOrderBatch(userId, lastId))
+            .until(List::isEmpty)
+            .onItem().disjoint();
+    }
+    
     public Uni<Order> getOrder(Long orderId) {
         return orderRepository.findById(orderId)
             .onItem().ifNull().failWith(() ->
@@ -32,31 +56,50 @@ public class OrderService {
     
     @Transactional
     public Uni<Order> createOrder(String userId, ShippingAddress shippingAddress) {
-        return cartRepository.findByUserId(userId)
+        // The cart's latest changes may still be held by the write-behind store
+        return Blocking.run(() -> cartStore.flush(userId))
+            .chain(() -> cartRepository.findByUserId(userId))
             .onItem().ifNull().failWith(() ->
                 new ResourceNotFoundException("Cart not found"))
             .chain(cart -> {
-                Order order = new Order();
-                order.setUserId(userId);
-                order.setOrderDate(LocalDateTime.now());
-                order.setStatus(OrderStatus.PENDING);
-                order.setTotalAmount(cart.getTotalAmount());
-                order.setShippingAddress(shippingAddress);
-                
-                cart.getItems().forEach(cartItem -> {
-                    OrderItem orderItem = new OrderItem();
-                    orderItem.setOrder(order);
-                    orderItem.setProduct(cartItem.getProduct());
-                    orderItem.setQuantity(cartItem.getQuantity());
-                    orderItem.setPrice(cartItem.getPrice());
-                    orderItem.setSubtotal(cartItem.getSubtotal());
-                    order.getItems().add(orderItem);
-                });
-                
-                return orderRepository.persist(order);
+                // Lines are priced from the cache, which checks the versions it holds against the
+                // database, on a worker thread; the products themselves stay unloaded references
+                List<Long> productIds = new ArrayList<>(cart.getItems().size());
+                cart.getItems().forEach(cartItem -> productIds.add(cartItem.getProduct().getId()));
+                return Blocking.call(() -> priceCache.lookup(productIds))
+                    .chain(prices -> orderRepository.persist(buildOrder(userId, shippingAddress, cart, prices)));
             });
     }
     
+    private Order buildOrder(String userId, ShippingAddress shippingAddress, Cart cart, PriceTable prices) {
+        Order order = new Order();
+        order.setUserId(userId);
+        order.setOrderDate(LocalDateTime.now());
+        order.setStatus(OrderStatus.PENDING);
+        order.setShippingAddress(shippingAddress);
+        
+        // Priced in minor units; converted back only for the entities
+        Money total = Money.zero(Money.DEFAULT_CURRENCY);
+        for (CartItem cartItem : cart.getItems()) {
+            long productId = cartItem.getProduct().getId();
+            if (!prices.contains(productId) || !prices.available(productId)) {
+                throw new BadRequestException("Product is not available: " + productId);
+            }
+            Money price = prices.price(productId);
+            Money subtotal = price.times(cartItem.getQuantity());
+            OrderItem orderItem = new OrderItem();
+            orderItem.setOrder(order);
+            orderItem.setProduct(cartItem.getProduct());
+            orderItem.setQuantity(cartItem.getQuantity());
+            orderItem.setPrice(price.toBigDecimal());
+            orderItem.setSubtotal(subtotal.toBigDecimal());
+            order.getItems().add(orderItem);
+            total = total.plus(subtotal);
+        }
+        order.setTotalAmount(total.toBigDecimal());
+        return order;
+    }
+    
     @Transactional
     public Uni<Order> updateOrderStatus(Long orderId, OrderStatus status) {
         return orderRepository.findById(orderId)
@@ -67,4 +110,54 @@ public class OrderService {
                 return orderRepository.persist(order);
             });
     }
+    
+    @Transactional
+    public Uni<Order> recordPaymentIntent(Long orderId, String paymentIntentId) {
+        return orderRepository.findById(orderId)
+            .onItem().ifNull().failWith(() ->
+                new ResourceNotFoundException("Order not found"))
+            .chain(order -> {
+                order.setPaymentIntentId(paymentIntentId);
+                return orderRepository.persist(order);
+            });
+    }
+    
+    private Uni<List<OrderDTO>> nextOrderBatch(String userId, AtomicLong lastId) {
+        return orderRepository.findIdsByUserIdAfter(userId, lastId.get(), EXPORT_BATCH_SIZE)
+            .chain(ids -> {
+                if (ids.isEmpty()) {
+                    return Uni.createFrom().item(List.<OrderDTO>of());
+                }
+                lastId.set(ids.get(ids.size() - 1));
+                return orderRepository.findWithItemsByIds(ids)
+                    .map(orders -> {
+                        List<OrderDTO> batch = new ArrayList<>(orders.size());
+                        orders.forEach(order -> batch.add(mapToOrderDTO(order)));
+                        return batch;
+                    })
+                    .call(batch -> orderRepository.detachAll());
+            });
+    }
+    
+    private OrderDTO mapToOrderDTO(Order order) {
+        OrderDTO dto = new OrderDTO();
+        dto.setId(order.getId());
+        dto.setOrderDate(order.getOrderDate());
+        dto.setStatus(order.getStatus());
+        dto.setTotalAmount(order.getTotalAmount());
+        dto.setShippingAddress(order.getShippingAddress());
+        dto.setPaymentIntentId(order.getPaymentIntentId());
+        
+        List<OrderItemDTO> items = new ArrayList<>(order.getItems().size());
+        for (OrderItem item : order.getItems()) {
+            OrderItemDTO itemDto = new OrderItemDTO();
+            itemDto.setProductId(item.getProduct() != null ? item.getProduct().getId() : null);
+            itemDto.setQuantity(item.getQuantity());
+            itemDto.setPrice(item.getPrice());
+            itemDto.setSubtotal(item.getSubtotal());
+            items.add(itemDto);
+        }
+        dto.setItems(items);
+        return dto;
+    }
 }
\ No newline at end of file
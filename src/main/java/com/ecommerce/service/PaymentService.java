@@ -2,11 +2,14 @@ package com.ecommerce.service;
 
 import com.ecommerce.domain.dto.PaymentIntentDTO;
 import com.ecommerce.domain.dto.PaymentResponseDTO;
+import com.ecommerce.domain.model.Money;
 import com.ecommerce.domain.model.Order;
 import com.ecommerce.domain.model.OrderStatus;
 import com.ecommerce.exception.PaymentException;
 import com.stripe.Stripe;
+import com.stripe.exception.StripeException;
 import com.stripe.model.PaymentIntent;
+import com.stripe.net.RequestOptions;
 import com.stripe.param.PaymentIntentCreateParams;
 import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -37,23 +40,11 @@ public class PaymentService {
                 
                 return Uni.createFrom().item(() -> {
                     try {
-                        Stripe.apiKey = stripeApiKey;
+                        PaymentIntent paymentIntent = createIntent(
+                            paymentDTO.getAmount().multiply(new java.math.BigDecimal(100)).longValue(),
+                            paymentDTO.getCurrency(), order.getId());
                         
-                        PaymentIntentCreateParams params = PaymentIntentCreateParams.builder()
-                            .setAmount(paymentDTO.getAmount().multiply(new java.math.BigDecimal(100)).longValue())
-                            .setCurrency(paymentDTO.getCurrency().toLowerCase())
-                            .setAutomaticPaymentMethods(
-                                PaymentIntentCreateParams.AutomaticPaymentMethods.builder()
-                                    .setEnabled(true)
-                                    .build()
-                            )
-                            .putMetadata("orderId", order.getId().toString())
-                            .build();
-                        
-                        PaymentIntent paymentIntent = PaymentIntent.create(params);
-                        
-                        order.setPaymentIntentId(paymentIntent.getId());
-                        return orderService.updateOrder(order)
+                        return orderService.recordPaymentIntent(order.getId(), paymentIntent.getId())
                             .map(updatedOrder -> new PaymentResponseDTO(
                                 paymentIntent.getClientSecret(),
                                 paymentIntent.getId(),
@@ -66,6 +57,26 @@ public class PaymentService {
             });
     }
     
+    // Touches no database. Stripe deduplicates on the order id, so calling this
+    // again for the same order returns the intent already created. The blocking
+    // Stripe call runs on a worker thread and the result comes back on the caller's context
+    public Uni<PaymentResponseDTO> createPaymentIntent(Order order) {
+        return Blocking.call(() -> {
+            try {
+                PaymentIntent paymentIntent = createIntent(
+                    Money.of(order.getTotalAmount()).getMinorUnits(),
+                    Money.DEFAULT_CURRENCY.getCurrencyCode(), order.getId());
+                return new PaymentResponseDTO(
+                    paymentIntent.getClientSecret(),
+                    paymentIntent.getId(),
+                    paymentIntent.getStatus()
+                );
+            } catch (Exception e) {
+                throw new PaymentException("Failed to create payment intent", e);
+            }
+        });
+    }
+    
     public Uni<PaymentResponseDTO> confirmPayment(String paymentIntentId) {
         return Uni.createFrom().item(() -> {
             try {
@@ -110,6 +121,25 @@ public class PaymentService {
         });
     }
     
+    private PaymentIntent createIntent(long amountInMinorUnits, String currency, Long orderId) throws StripeException {
+        Stripe.apiKey = stripeApiKey;
+        
+        PaymentIntentCreateParams params = PaymentIntentCreateParams.builder()
+            .setAmount(amountInMinorUnits)
+            .setCurrency(currency.toLowerCase())
+            .setAutomaticPaymentMethods(
+                PaymentIntentCreateParams.AutomaticPaymentMethods.builder()
+                    .setEnabled(true)
+                    .build()
+            )
+            .putMetadata("orderId", orderId.toString())
+            .build();
+        
+        return PaymentIntent.create(params, RequestOptions.builder()
+            .setIdempotencyKey("order-" + orderId)
+            .build());
+    }
+    
     private void handlePaymentSuccess(com.stripe.model.Event event) {
         PaymentIntent paymentIntent = (PaymentIntent) event.getDataObjectDeserializer()
             .getObject().get();
@@ -0,0 +1,160 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.model.Money;
+
+/**
+ * Open-addressing map from productId to the price, availability, name and
+ * @Version of a product. The price in cents and the availability flag share one
+ * long, so an entry is a key, two longs and a name in parallel arrays, with no
+ * boxing or entry objects. Not thread-safe.
+ */
+public final class PriceTable {
+
+    // Product ids are generated from 1
+    private static final long EMPTY = 0;
+    private static final long ABSENT = -1;
+
+    private long[] keys;
+    // priceCents << 1 | available
+    private long[] prices;
+    private long[] versions;
+    private String[] names;
+    private int size;
+
+    PriceTable(int expectedSize) {
+        allocate(Integer.highestOneBit(Math.max(expectedSize, 2) * 2 - 1) << 1);
+    }
+
+    public boolean contains(long productId) {
+        return find(productId) >= 0;
+    }
+
+    public Money price(long productId) {
+        return Money.ofMinor(prices[existing(productId)] >>> 1, Money.DEFAULT_CURRENCY);
+    }
+
+    // Active with stock left
+    public boolean available(long productId) {
+        return (prices[existing(productId)] & 1) != 0;
+    }
+
+    public String name(long productId) {
+        return names[existing(productId)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // -1 when absent
+    long version(long productId) {
+        int slot = find(productId);
+        return slot >= 0 ? versions[slot] : ABSENT;
+    }
+
+    void put(long productId, String name, long priceCents, boolean available, long version) {
+        if (productId == EMPTY) {
+            throw new IllegalArgumentException("Invalid product ID: " + productId);
+        }
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int slot = hash(productId) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != productId) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == EMPTY) {
+            keys[slot] = productId;
+            size++;
+        }
+        prices[slot] = priceCents << 1 | (available ? 1 : 0);
+        versions[slot] = version;
+        names[slot] = name;
+    }
+
+    // Copies the product's entry into target; false if there is none
+    boolean copyTo(long productId, PriceTable target) {
+        int slot = find(productId);
+        if (slot < 0) {
+            return false;
+        }
+        target.put(productId, names[slot], prices[slot] >>> 1, (prices[slot] & 1) != 0, versions[slot]);
+        return true;
+    }
+
+    void putAll(PriceTable other) {
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            if (other.keys[slot] != EMPTY) {
+                other.copyTo(other.keys[slot], this);
+            }
+        }
+    }
+
+    // Shifts later entries of the probe run back into the hole, so lookups need no tombstones
+    void remove(long productId) {
+        int hole = find(productId);
+        if (hole < 0) {
+            return;
+        }
+        int mask = keys.length - 1;
+        for (int slot = (hole + 1) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            int home = hash(keys[slot]) & mask;
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                keys[hole] = keys[slot];
+                prices[hole] = prices[slot];
+                versions[hole] = versions[slot];
+                names[hole] = names[slot];
+                hole = slot;
+            }
+        }
+        keys[hole] = EMPTY;
+        names[hole] = null;
+        size--;
+    }
+
+    private int find(long productId) {
+        int mask = keys.length - 1;
+        for (int slot = hash(productId) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == productId) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int existing(long productId) {
+        int slot = find(productId);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Product not in table: " + productId);
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldPrices = prices;
+        long[] oldVersions = versions;
+        String[] oldNames = names;
+        allocate(capacity);
+        size = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != EMPTY) {
+                put(oldKeys[slot], oldNames[slot], oldPrices[slot] >>> 1, (oldPrices[slot] & 1) != 0, oldVersions[slot]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        prices = new long[capacity];
+        versions = new long[capacity];
+        names = new String[capacity];
+    }
+
+    // Sequential ids would otherwise fill one run of slots
+    private static int hash(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+}
\ No newline at end of file
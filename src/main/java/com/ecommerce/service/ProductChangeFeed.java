@@ -0,0 +1,140 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.event.ProductChangedEvent;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.smallrye.mutiny.subscription.Cancellable;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.hibernate.Session;
+
+/**
+ * Fires a ProductChangedEvent here for every product row any instance commits.
+ * Entity listeners only reach observers in the instance that made the change, so
+ * every POLL_INTERVAL the rows whose updated_at moved are read and fired again;
+ * caches and aggregates observing the event then follow the other instances'
+ * edits and stock updates about a second late. This instance's own changes come
+ * round a second time, which observers treat like any repeated change. The
+ * stock level of each row read goes to InventoryStreamService the same way.
+ *
+ * Deleted rows leave nothing to read and are not fired.
+ */
+@ApplicationScoped
+public class ProductChangeFeed {
+    
+    private static final Duration POLL_INTERVAL = Duration.ofSeconds(1);
+    // updated_at is taken when a transaction starts, so a row committed after the
+    // last poll may carry an earlier time; rows this recent are read again
+    private static final Duration OVERLAP = Duration.ofMinutes(1);
+    
+    private static final String READ_NOW = "SELECT CURRENT_TIMESTAMP";
+    private static final String READ_CHANGED =
+        "SELECT id, version, updated_at, stock_quantity, low_stock_threshold FROM products WHERE updated_at > ?";
+    
+    @Inject
+    EntityManager entityManager;
+    
+    @Inject
+    Event<ProductChangedEvent> productChanged;
+    
+    @Inject
+    InventoryStreamService stockStream;
+    
+    private final AtomicBoolean polling = new AtomicBoolean();
+    // Database time the last poll started at, and the updated_at already fired for
+    // each row inside the overlap; only touched while polling
+    private Timestamp polledAt;
+    private Map<Long, Timestamp> fired = new HashMap<>();
+    private volatile Cancellable poller;
+    
+    void onStart(@Observes StartupEvent event) {
+        poller = Multi.createFrom().ticks().every(POLL_INTERVAL)
+            .emitOn(Infrastructure.getDefaultWorkerPool())
+            .subscribe().with(tick -> poll(), Throwable::printStackTrace);
+    }
+    
+    void onStop(@Observes ShutdownEvent event) {
+        if (poller != null) {
+            poller.cancel();
+        }
+    }
+    
+    void poll() {
+        if (!polling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            List<Change> changes = new ArrayList<>();
+            QuarkusTransaction.requiringNew().run(() ->
+                entityManager.unwrap(Session.class).doWork(connection -> {
+                    Timestamp now;
+                    try (PreparedStatement statement = connection.prepareStatement(READ_NOW);
+                         ResultSet result = statement.executeQuery()) {
+                        result.next();
+                        now = result.getTimestamp(1);
+                    }
+                    // The first poll only starts the clock: everything is loaded as of startup
+                    if (polledAt != null) {
+                        Map<Long, Timestamp> seen = new HashMap<>();
+                        try (PreparedStatement statement = connection.prepareStatement(READ_CHANGED)) {
+                            statement.setTimestamp(1, Timestamp.from(polledAt.toInstant().minus(OVERLAP)));
+                            try (ResultSet result = statement.executeQuery()) {
+                                while (result.next()) {
+                                    long productId = result.getLong(1);
+                                    long version = result.getLong(2);
+                                    boolean unversioned = result.wasNull();
+                                    Timestamp updatedAt = result.getTimestamp(3);
+                                    seen.put(productId, updatedAt);
+                                    if (!updatedAt.equals(fired.get(productId))) {
+                                        changes.add(new Change(unversioned
+                                            ? ProductChangedEvent.unversioned(productId)
+                                            : new ProductChangedEvent(productId, version),
+                                            result.getInt(4), result.getInt(5)));
+                                    }
+                                }
+                            }
+                        }
+                        fired = seen;
+                    }
+                    polledAt = now;
+                }));
+            // Outside any transaction, so after-success observers are called straight away
+            for (Change change : changes) {
+                productChanged.fire(change.event);
+                stockStream.publish(change.event.getProductId(), change.stockQuantity, change.lowStockThreshold);
+            }
+        } catch (RuntimeException e) {
+            // Logged so the poller keeps running; a failed read leaves polledAt for the next tick
+            e.printStackTrace();
+        } finally {
+            polling.set(false);
+        }
+    }
+    
+    private static final class Change {
+        private final ProductChangedEvent event;
+        private final int stockQuantity;
+        private final int lowStockThreshold;
+        
+        private Change(ProductChangedEvent event, int stockQuantity, int lowStockThreshold) {
+            this.event = event;
+            this.stockQuantity = stockQuantity;
+            this.lowStockThreshold = lowStockThreshold;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,162 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.dto.PageDTO;
+import com.ecommerce.domain.dto.ProductWithImagesDTO;
+import com.ecommerce.exception.BadRequestException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Opaque keyset cursor: the (sortKey, id) of the last row a client has seen,
+ * together with the ordering it was issued for.
+ */
+final class ProductCursor {
+
+    private static final String SEPARATOR = "|";
+    private static final String RANKED = "RELEVANCE";
+
+    private final ProductSort sort;
+    private final boolean descending;
+    private final String key;
+    private final Long id;
+
+    private ProductCursor(ProductSort sort, boolean descending, String key, Long id) {
+        this.sort = sort;
+        this.descending = descending;
+        this.key = key;
+        this.id = id;
+    }
+
+    static ProductCursor after(ProductWithImagesDTO product, ProductSort sort, boolean descending) {
+        return new ProductCursor(sort, descending, sort.keyOf(product), product.getId());
+    }
+
+    static ProductCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 4) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            return new ProductCursor(
+                ProductSort.valueOf(parts[0]),
+                "desc".equals(parts[1]),
+                parts[2],
+                Long.valueOf(parts[3]));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor", e);
+        }
+    }
+
+    String encode() {
+        String raw = sort.name() + SEPARATOR + (descending ? "desc" : "asc") + SEPARATOR + key + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the page that follows {@code cursorToken} in {@code ordered}, which must be
+     * sorted ascending by {@code sort}. The start position is found by binary search, so
+     * a deep page costs the same as the first one.
+     */
+    static PageDTO<ProductWithImagesDTO> page(List<ProductWithImagesDTO> ordered, ProductSort sort,
+                                              boolean descending, String cursorToken, int size) {
+        int start;
+        if (cursorToken == null || cursorToken.isBlank()) {
+            start = descending ? ordered.size() - 1 : 0;
+        } else {
+            ProductCursor cursor = decode(cursorToken);
+            if (cursor.sort != sort || cursor.descending != descending) {
+                throw new BadRequestException("Cursor was issued for a different sort order");
+            }
+            ProductWithImagesDTO probe;
+            try {
+                probe = sort.probe(cursor.key, cursor.id);
+            } catch (NumberFormatException e) {
+                throw new BadRequestException("Invalid cursor", e);
+            }
+            start = descending
+                ? firstIndex(ordered, probe, sort, false) - 1
+                : firstIndex(ordered, probe, sort, true);
+        }
+
+        List<ProductWithImagesDTO> content = new ArrayList<>(size);
+        int index = start;
+        while (content.size() < size && index >= 0 && index < ordered.size()) {
+            content.add(ordered.get(index));
+            index += descending ? -1 : 1;
+        }
+
+        boolean more = index >= 0 && index < ordered.size();
+        String next = more && !content.isEmpty()
+            ? after(content.get(content.size() - 1), sort, descending).encode()
+            : null;
+        return new PageDTO<>(content, ordered.size(), size, next, cursorToken != null && !cursorToken.isBlank());
+    }
+
+    /**
+     * Pages through a relevance ranking. Scores are per query, so the cursor holds the
+     * rank and id of the last row instead of a sort key; if the ranking shifted since,
+     * the id is located again.
+     */
+    static PageDTO<ProductWithImagesDTO> rankedPage(List<ProductWithImagesDTO> ranked,
+                                                    String cursorToken, int size) {
+        boolean resumed = cursorToken != null && !cursorToken.isBlank();
+        int start = resumed ? rankedStart(ranked, cursorToken) : 0;
+
+        int end = Math.min(start + size, ranked.size());
+        List<ProductWithImagesDTO> content = new ArrayList<>(ranked.subList(Math.min(start, end), end));
+        String next = null;
+        if (end < ranked.size() && !content.isEmpty()) {
+            String raw = RANKED + SEPARATOR + end + SEPARATOR + content.get(content.size() - 1).getId();
+            next = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+        return new PageDTO<>(content, ranked.size(), size, next, resumed);
+    }
+
+    private static int rankedStart(List<ProductWithImagesDTO> ranked, String token) {
+        int offset;
+        Long lastId;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 3 || !RANKED.equals(parts[0])) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            offset = Integer.parseInt(parts[1]);
+            lastId = Long.valueOf(parts[2]);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor", e);
+        }
+        if (offset > 0 && offset <= ranked.size() && lastId.equals(ranked.get(offset - 1).getId())) {
+            return offset;
+        }
+        for (int i = 0; i < ranked.size(); i++) {
+            if (lastId.equals(ranked.get(i).getId())) {
+                return i + 1;
+            }
+        }
+        return Math.max(0, Math.min(offset, ranked.size()));
+    }
+
+    // First index sorting after the probe (strict) or at/after it; the cursor row
+    // itself was already returned on the previous page, in either direction
+    private static int firstIndex(List<ProductWithImagesDTO> ordered, ProductWithImagesDTO probe,
+                                  ProductSort sort, boolean strict) {
+        int low = 0;
+        int high = ordered.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int comparison = sort.comparator().compare(ordered.get(mid), probe);
+            if (comparison < 0 || (strict && comparison == 0)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,239 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.dto.FacetCountDTO;
+import com.ecommerce.domain.dto.PageDTO;
+import com.ecommerce.domain.dto.ProductFilterDTO;
+import com.ecommerce.domain.dto.ProductFilterResultDTO;
+import com.ecommerce.domain.dto.ProductWithImagesDTO;
+import com.ecommerce.exception.BadRequestException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A filter compiled for one shape: which ProductFilterDTO fields are set, plus the
+ * sort. Plans are cached per shape, so a repeated filter with new values only binds
+ * them; matching, paging and facet counting then happen in a single catalog pass.
+ */
+final class ProductFilterPlan {
+
+    private static final int CATEGORY = 1;
+    private static final int IN_STOCK = 1 << 1;
+    private static final int MIN_PRICE = 1 << 2;
+    private static final int MAX_PRICE = 1 << 3;
+    private static final int MIN_RATING = 1 << 4;
+    private static final int TAGS = 1 << 5;
+    private static final int SEARCH = 1 << 6;
+
+    private static final BigDecimal[] PRICE_BOUNDS = {
+        new BigDecimal("25"), new BigDecimal("50"), new BigDecimal("100"),
+        new BigDecimal("250"), new BigDecimal("500")
+    };
+    private static final String[] PRICE_LABELS = {
+        "Under 25", "25 - 50", "50 - 100", "100 - 250", "250 - 500", "500 and above"
+    };
+    private static final int MAX_TAG_FACETS = 20;
+
+    private static final Map<Integer, ProductFilterPlan> PLANS = new ConcurrentHashMap<>();
+
+    private interface Condition {
+        boolean test(ProductWithImagesDTO product, ProductFilterDTO filter);
+    }
+
+    private final Condition[] conditions;
+    private final ProductSort sort;
+    private final boolean descending;
+
+    private ProductFilterPlan(int shape, ProductSort sort, boolean descending) {
+        this.sort = sort;
+        this.descending = descending;
+
+        // Cheap, selective checks first; the substring scan runs last
+        List<Condition> compiled = new ArrayList<>();
+        if ((shape & CATEGORY) != 0) {
+            compiled.add((product, filter) -> filter.getCategoryId().equals(product.getCategoryId()));
+        }
+        if ((shape & IN_STOCK) != 0) {
+            compiled.add((product, filter) -> filter.getInStock() == inStock(product));
+        }
+        if ((shape & MIN_PRICE) != 0) {
+            compiled.add((product, filter) -> product.getPrice() != null
+                && product.getPrice().compareTo(filter.getMinPrice()) >= 0);
+        }
+        if ((shape & MAX_PRICE) != 0) {
+            compiled.add((product, filter) -> product.getPrice() != null
+                && product.getPrice().compareTo(filter.getMaxPrice()) <= 0);
+        }
+        if ((shape & MIN_RATING) != 0) {
+            compiled.add((product, filter) -> product.getAverageRating() != null
+                && product.getAverageRating() >= filter.getMinRating());
+        }
+        if ((shape & TAGS) != 0) {
+            compiled.add((product, filter) -> product.getTags() != null
+                && product.getTags().containsAll(filter.getTags()));
+        }
+        if ((shape & SEARCH) != 0) {
+            compiled.add((product, filter) -> containsIgnoreCase(product.getName(), filter.getSearchTerm())
+                || containsIgnoreCase(product.getDescription(), filter.getSearchTerm()));
+        }
+        this.conditions = compiled.toArray(new Condition[0]);
+    }
+
+    static ProductFilterPlan compile(ProductFilterDTO filter) {
+        if (filter.getMinPrice() != null && filter.getMaxPrice() != null
+                && filter.getMinPrice().compareTo(filter.getMaxPrice()) > 0) {
+            throw new BadRequestException("minPrice must not exceed maxPrice");
+        }
+
+        int shape = shapeOf(filter);
+        ProductSort sort = ProductSort.from(filter.getSortBy());
+        boolean descending = "desc".equalsIgnoreCase(filter.getSortDirection());
+        int key = shape | sort.ordinal() << 8 | (descending ? 1 << 12 : 0);
+        return PLANS.computeIfAbsent(key, k -> new ProductFilterPlan(shape, sort, descending));
+    }
+
+    ProductFilterResultDTO execute(CatalogSnapshot catalog, ProductFilterDTO filter, int page, int size) {
+        List<ProductWithImagesDTO> ordered = catalog.ordered(sort);
+        int total = ordered.size();
+        long from = (long) page * size;
+
+        List<ProductWithImagesDTO> content = new ArrayList<>(size);
+        FacetAccumulator facets = new FacetAccumulator();
+        long matched = 0;
+
+        for (int i = 0; i < total; i++) {
+            ProductWithImagesDTO product = ordered.get(descending ? total - 1 - i : i);
+            if (!matches(product, filter)) {
+                continue;
+            }
+            if (matched >= from && content.size() < size) {
+                content.add(product);
+            }
+            matched++;
+            facets.add(product);
+        }
+
+        ProductFilterResultDTO result = new ProductFilterResultDTO();
+        result.setProducts(new PageDTO<>(content, matched, page, size).map(catalog::summaryOf));
+        result.setCategories(facets.categories());
+        result.setPriceRanges(facets.priceRanges());
+        result.setTags(facets.tags());
+        result.setRatings(facets.ratings());
+        return result;
+    }
+
+    private boolean matches(ProductWithImagesDTO product, ProductFilterDTO filter) {
+        for (Condition condition : conditions) {
+            if (!condition.test(product, filter)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int shapeOf(ProductFilterDTO filter) {
+        int shape = 0;
+        if (filter.getCategoryId() != null) shape |= CATEGORY;
+        if (filter.getInStock() != null) shape |= IN_STOCK;
+        if (filter.getMinPrice() != null) shape |= MIN_PRICE;
+        if (filter.getMaxPrice() != null) shape |= MAX_PRICE;
+        if (filter.getMinRating() != null) shape |= MIN_RATING;
+        if (filter.getTags() != null && !filter.getTags().isEmpty()) shape |= TAGS;
+        if (filter.getSearchTerm() != null && !filter.getSearchTerm().isBlank()) shape |= SEARCH;
+        return shape;
+    }
+
+    private static boolean inStock(ProductWithImagesDTO product) {
+        return product.getStockQuantity() != null && product.getStockQuantity() > 0;
+    }
+
+    private static boolean containsIgnoreCase(String text, String term) {
+        if (text == null) {
+            return false;
+        }
+        String needle = term.trim();
+        int last = text.length() - needle.length();
+        for (int i = 0; i <= last; i++) {
+            if (text.regionMatches(true, i, needle, 0, needle.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class FacetAccumulator {
+        private final Map<Long, long[]> categoryCounts = new HashMap<>();
+        private final Map<Long, String> categoryNames = new HashMap<>();
+        private final Map<String, long[]> tagCounts = new HashMap<>();
+        private final long[] priceCounts = new long[PRICE_LABELS.length];
+        // Index 0 holds unrated products, 1..5 the floor of the average rating
+        private final long[] ratingCounts = new long[6];
+
+        void add(ProductWithImagesDTO product) {
+            if (product.getCategoryId() != null) {
+                categoryCounts.computeIfAbsent(product.getCategoryId(), id -> new long[1])[0]++;
+                categoryNames.putIfAbsent(product.getCategoryId(), product.getCategoryName());
+            }
+            if (product.getPrice() != null) {
+                priceCounts[priceBucket(product.getPrice())]++;
+            }
+            if (product.getTags() != null) {
+                for (String tag : product.getTags()) {
+                    tagCounts.computeIfAbsent(tag, t -> new long[1])[0]++;
+                }
+            }
+            Double rating = product.getAverageRating();
+            ratingCounts[rating == null ? 0 : Math.max(1, Math.min(5, (int) Math.floor(rating)))]++;
+        }
+
+        List<FacetCountDTO> categories() {
+            List<FacetCountDTO> facets = new ArrayList<>();
+            categoryCounts.forEach((id, count) ->
+                facets.add(new FacetCountDTO(id.toString(), categoryNames.get(id), count[0])));
+            facets.sort(Comparator.comparingLong(FacetCountDTO::getCount).reversed());
+            return facets;
+        }
+
+        List<FacetCountDTO> priceRanges() {
+            List<FacetCountDTO> facets = new ArrayList<>();
+            for (int i = 0; i < priceCounts.length; i++) {
+                if (priceCounts[i] > 0) {
+                    facets.add(new FacetCountDTO(Integer.toString(i), PRICE_LABELS[i], priceCounts[i]));
+                }
+            }
+            return facets;
+        }
+
+        List<FacetCountDTO> tags() {
+            List<FacetCountDTO> facets = new ArrayList<>();
+            tagCounts.forEach((tag, count) -> facets.add(new FacetCountDTO(tag, tag, count[0])));
+            facets.sort(Comparator.comparingLong(FacetCountDTO::getCount).reversed()
+                .thenComparing(FacetCountDTO::getValue));
+            return facets.size() > MAX_TAG_FACETS ? facets.subList(0, MAX_TAG_FACETS) : facets;
+        }
+
+        List<FacetCountDTO> ratings() {
+            List<FacetCountDTO> facets = new ArrayList<>();
+            for (int i = ratingCounts.length - 1; i >= 0; i--) {
+                if (ratingCounts[i] > 0) {
+                    String label = i == 0 ? "Unrated" : i + (i == 5 ? " stars" : "+ stars");
+                    facets.add(new FacetCountDTO(Integer.toString(i), label, ratingCounts[i]));
+                }
+            }
+            return facets;
+        }
+
+        private static int priceBucket(BigDecimal price) {
+            for (int i = 0; i < PRICE_BOUNDS.length; i++) {
+                if (price.compareTo(PRICE_BOUNDS[i]) < 0) {
+                    return i;
+                }
+            }
+            return PRICE_BOUNDS.length;
+        }
+    }
+}
\ No newline at end of file
@@ -4,6 +4,7 @@ import com.ecommerce.domain.model.Product;
 import com.ecommerce.domain.model.ProductImage;
 import com.ecommerce.domain.repository.ProductImageRepository;
 import com.ecommerce.domain.repository.ProductRepository;
+import com.ecommerce.exception.BadRequestException;
 import com.ecommerce.exception.ResourceNotFoundException;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -55,7 +56,7 @@ public class ProductImageService {
             .orElseThrow(() -> new ResourceNotFoundException("Image not found"));
 
         if (!image.getProduct().getId().equals(productId)) {
-            throw new IllegalArgumentException("Image does not belong to the specified product");
+            throw new BadRequestException("Image does not belong to the specified product");
         }
 
         String imageUrl = image.getImageUrl();
@@ -75,7 +76,7 @@ public class ProductImageService {
             .orElseThrow(() -> new ResourceNotFoundException("Image not found"));
 
         if (!image.getProduct().getId().equals(productId)) {
-            throw new IllegalArgumentException("Image does not belong to the specified product");
+            throw new BadRequestException("Image does not belong to the specified product");
         }
 
         productImageRepository.unsetOtherCoverImages(productId, imageId);
@@ -0,0 +1,140 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.event.ProductChangedEvent;
+import com.ecommerce.domain.model.Money;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.hibernate.Session;
+
+/**
+ * Price, availability and name of the products carts and orders are built from,
+ * so neither loads a Product entity. A lookup checks the versions of the entries
+ * it holds in one narrow query and reads every missing or outdated product in a
+ * second, so a price changed by another instance is never served.
+ *
+ * An entry is also dropped as soon as a committed change carries a newer @Version
+ * than the one it was read at; unversioned changes (deletes) always drop it. Rows
+ * read while any change was being applied are returned but not kept, since they
+ * may predate it.
+ */
+@ApplicationScoped
+public class ProductPriceCache {
+    
+    private static final int INITIAL_CAPACITY = 1_024;
+    
+    private static final String LOAD_PRICES =
+        "SELECT id, name, price, active AND stock_quantity > 0, version FROM products WHERE id = ANY(?)";
+    
+    private static final String READ_VERSIONS =
+        "SELECT id, COALESCE(version, 0) FROM products WHERE id = ANY(?)";
+    
+    @Inject
+    EntityManager entityManager;
+    
+    // Guarded by this
+    private final PriceTable cached = new PriceTable(INITIAL_CAPACITY);
+    private long invalidations;
+    
+    // Products that do not exist are left out of the result
+    public PriceTable lookup(Collection<Long> productIds) {
+        PriceTable found = new PriceTable(productIds.size());
+        List<Long> misses = new ArrayList<>();
+        List<Long> held = new ArrayList<>();
+        long seen;
+        synchronized (this) {
+            seen = invalidations;
+            for (Long productId : productIds) {
+                if (cached.copyTo(productId, found)) {
+                    held.add(productId);
+                } else {
+                    misses.add(productId);
+                }
+            }
+        }
+        
+        // Another instance may have changed a held product before its event reached this one
+        List<Long> outdated = new ArrayList<>();
+        if (!held.isEmpty()) {
+            Map<Long, Long> versions = versions(held);
+            for (Long productId : held) {
+                Long version = versions.get(productId);
+                if (version == null || version != found.version(productId)) {
+                    found.remove(productId);
+                    outdated.add(productId);
+                    if (version != null) {
+                        misses.add(productId);
+                    }
+                }
+            }
+        }
+        
+        PriceTable loaded = misses.isEmpty() ? null : load(misses);
+        if (loaded != null) {
+            found.putAll(loaded);
+        }
+        if (loaded != null || !outdated.isEmpty()) {
+            synchronized (this) {
+                outdated.forEach(cached::remove);
+                if (loaded != null && invalidations == seen) {
+                    cached.putAll(loaded);
+                }
+            }
+        }
+        return found;
+    }
+    
+    void onProductChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) ProductChangedEvent event) {
+        synchronized (this) {
+            // An entry already read at this version or later is current
+            if (cached.version(event.getProductId()) < event.getVersion()) {
+                cached.remove(event.getProductId());
+                invalidations++;
+            }
+        }
+    }
+    
+    // Current version of every product that still exists
+    Map<Long, Long> versions(Collection<Long> productIds) {
+        return QuarkusTransaction.requiringNew().call(() ->
+            entityManager.unwrap(Session.class).doReturningWork(connection -> {
+                Map<Long, Long> versions = new HashMap<>(productIds.size() * 2);
+                try (PreparedStatement statement = connection.prepareStatement(READ_VERSIONS)) {
+                    statement.setArray(1, connection.createArrayOf("bigint", productIds.toArray()));
+                    try (ResultSet result = statement.executeQuery()) {
+                        while (result.next()) {
+                            versions.put(result.getLong(1), result.getLong(2));
+                        }
+                    }
+                }
+                return versions;
+            }));
+    }
+    
+    PriceTable load(Collection<Long> productIds) {
+        return QuarkusTransaction.requiringNew().call(() ->
+            entityManager.unwrap(Session.class).doReturningWork(connection -> {
+                PriceTable loaded = new PriceTable(productIds.size());
+                try (PreparedStatement statement = connection.prepareStatement(LOAD_PRICES)) {
+                    statement.setArray(1, connection.createArrayOf("bigint", productIds.toArray()));
+                    try (ResultSet result = statement.executeQuery()) {
+                        while (result.next()) {
+                            loaded.put(result.getLong(1), result.getString(2),
+                                Money.of(result.getBigDecimal(3)).getMinorUnits(), result.getBoolean(4), result.getLong(5));
+                        }
+                    }
+                }
+                return loaded;
+            }));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,272 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.dto.ProductWithImagesDTO;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Embedded inverted index over product name, tags and description, ranked with BM25.
+ * The last query token also matches as a prefix, and tokens without an exact term
+ * fall back to close spellings found through a trigram index.
+ */
+final class ProductSearchIndex {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private static final float NAME_WEIGHT = 3f;
+    private static final float TAG_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+
+    private static final float PREFIX_PENALTY = 0.7f;
+    private static final float FUZZY_PENALTY = 0.5f;
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // term -> (productId -> field-weighted term frequency)
+    private final NavigableMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    // trigram -> terms containing it, for spelling candidates
+    private final Map<String, Set<String>> trigrams = new HashMap<>();
+    private final Map<Long, Map<String, Float>> documents = new HashMap<>();
+    private final Map<Long, Float> lengths = new HashMap<>();
+    private double totalLength;
+
+    void rebuild(Collection<ProductWithImagesDTO> products) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            trigrams.clear();
+            documents.clear();
+            lengths.clear();
+            totalLength = 0;
+            products.forEach(this::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void update(Collection<ProductWithImagesDTO> upserts, Collection<Long> removals) {
+        lock.writeLock().lock();
+        try {
+            removals.forEach(this::remove);
+            for (ProductWithImagesDTO product : upserts) {
+                remove(product.getId());
+                add(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of matching products, best match first. Only the postings of
+     * the query terms (and their expansions) are visited.
+     */
+    List<Long> search(String query) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Float> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            if (documents.isEmpty()) {
+                return List.of();
+            }
+            float averageLength = (float) (totalLength / documents.size());
+            for (int i = 0; i < tokens.size(); i++) {
+                Map<String, Float> terms = expand(tokens.get(i), i == tokens.size() - 1);
+                // An expanded token counts once per product, with its best-scoring term
+                Map<Long, Float> tokenScores = new HashMap<>();
+                terms.forEach((term, penalty) -> scoreTerm(term, penalty, averageLength, tokenScores));
+                tokenScores.forEach((id, score) -> scores.merge(id, score, Float::sum));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Map.Entry<Long, Float>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort((a, b) -> {
+            int byScore = Float.compare(b.getValue(), a.getValue());
+            return byScore != 0 ? byScore : a.getKey().compareTo(b.getKey());
+        });
+        List<Long> ids = new ArrayList<>(ranked.size());
+        ranked.forEach(entry -> ids.add(entry.getKey()));
+        return ids;
+    }
+
+    private void scoreTerm(String term, float penalty, float averageLength, Map<Long, Float> tokenScores) {
+        Map<Long, Float> list = postings.get(term);
+        int documentCount = documents.size();
+        double idf = Math.log(1 + (documentCount - list.size() + 0.5) / (list.size() + 0.5));
+        list.forEach((id, frequency) -> {
+            float norm = 1 - B + B * lengths.get(id) / averageLength;
+            float score = (float) (idf * frequency * (K1 + 1) / (frequency + K1 * norm)) * penalty;
+            tokenScores.merge(id, score, Math::max);
+        });
+    }
+
+    private Map<String, Float> expand(String token, boolean last) {
+        Map<String, Float> terms = new HashMap<>();
+        if (postings.containsKey(token)) {
+            terms.put(token, 1f);
+        }
+        if (last && token.length() >= MIN_PREFIX_LENGTH) {
+            for (String term : postings.subMap(token, false, token + Character.MAX_VALUE, false).keySet()) {
+                terms.putIfAbsent(term, PREFIX_PENALTY);
+            }
+        }
+        if (terms.isEmpty()) {
+            int maxEdits = maxEdits(token);
+            if (maxEdits > 0) {
+                for (String candidate : spellingCandidates(token)) {
+                    if (Math.abs(candidate.length() - token.length()) <= maxEdits
+                            && editDistance(token, candidate, maxEdits) <= maxEdits) {
+                        terms.put(candidate, FUZZY_PENALTY);
+                    }
+                }
+            }
+        }
+        return terms;
+    }
+
+    private Set<String> spellingCandidates(String token) {
+        Set<String> candidates = new HashSet<>();
+        for (String gram : trigramsOf(token)) {
+            candidates.addAll(trigrams.getOrDefault(gram, Set.of()));
+        }
+        return candidates;
+    }
+
+    private void add(ProductWithImagesDTO product) {
+        Map<String, Float> weights = new HashMap<>();
+        float length = collect(weights, product.getName(), NAME_WEIGHT);
+        if (product.getTags() != null) {
+            for (String tag : product.getTags()) {
+                length += collect(weights, tag, TAG_WEIGHT);
+            }
+        }
+        length += collect(weights, product.getDescription(), DESCRIPTION_WEIGHT);
+        if (weights.isEmpty()) {
+            return;
+        }
+
+        documents.put(product.getId(), weights);
+        lengths.put(product.getId(), length);
+        totalLength += length;
+        weights.forEach((term, weight) -> postings.computeIfAbsent(term, key -> {
+            trigramsOf(key).forEach(gram -> trigrams.computeIfAbsent(gram, g -> new HashSet<>()).add(key));
+            return new HashMap<>();
+        }).put(product.getId(), weight));
+    }
+
+    private void remove(Long id) {
+        Map<String, Float> weights = documents.remove(id);
+        if (weights == null) {
+            return;
+        }
+        totalLength -= lengths.remove(id);
+        for (String term : weights.keySet()) {
+            Map<Long, Float> list = postings.get(term);
+            list.remove(id);
+            if (list.isEmpty()) {
+                postings.remove(term);
+                for (String gram : trigramsOf(term)) {
+                    Set<String> terms = trigrams.get(gram);
+                    terms.remove(term);
+                    if (terms.isEmpty()) {
+                        trigrams.remove(gram);
+                    }
+                }
+            }
+        }
+    }
+
+    private static float collect(Map<String, Float> weights, String text, float weight) {
+        List<String> tokens = tokenize(text);
+        tokens.forEach(token -> weights.merge(token, weight, Float::sum));
+        return tokens.size() * weight;
+    }
+
+    // Lowercases, strips diacritics and splits on anything that is not a letter or digit
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                current.append(Character.toLowerCase(c));
+            } else if (Character.getType(c) != Character.NON_SPACING_MARK && current.length() > 0) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (current.length() > 0) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    private static List<String> trigramsOf(String term) {
+        String padded = "^" + term + "$";
+        List<String> grams = new ArrayList<>(padded.length() - 2);
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    private static int maxEdits(String token) {
+        if (token.length() <= 3) {
+            return 0;
+        }
+        return token.length() <= 7 ? 1 : 2;
+    }
+
+    // Optimal string alignment distance; gives up once every cell in a row exceeds the limit
+    private static int editDistance(String a, String b, int limit) {
+        int[] previousPrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previousPrevious[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > limit) {
+                return limit + 1;
+            }
+            int[] recycled = previousPrevious;
+            previousPrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+}
\ No newline at end of file
@@ -1,62 +1,273 @@
 package com.ecommerce.service;
 
+import com.ecommerce.domain.dto.PageDTO;
+import com.ecommerce.domain.dto.ProductFilterDTO;
+import com.ecommerce.domain.dto.ProductFilterResultDTO;
+import com.ecommerce.domain.dto.ProductSummaryDTO;
 import com.ecommerce.domain.dto.ProductWithImagesDTO;
+import com.ecommerce.domain.event.ProductChangedEvent;
 import com.ecommerce.domain.model.Product;
 import com.ecommerce.domain.model.ProductImage;
 import com.ecommerce.domain.repository.ProductRepository;
+import com.ecommerce.exception.BadRequestException;
 import com.ecommerce.exception.ResourceNotFoundException;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
 import jakarta.inject.Inject;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @ApplicationScoped
 public class ProductService {
 
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final String RELEVANCE = "relevance";
+
     @Inject
     private ProductRepository productRepository;
 
+    @Inject
+    private EntityManager entityManager;
+
+    private volatile CatalogSnapshot catalog;
+
+    private final ProductSearchIndex searchIndex = new ProductSearchIndex();
+
+    // productId -> highest committed @Version not yet reflected in the snapshot
+    private final Map<Long, Long> pendingChanges = new ConcurrentHashMap<>();
+
     public List<ProductWithImagesDTO> getAllActiveProducts() {
-        return productRepository.findAllActiveWithImages()
-            .stream()
-            .map(this::mapToProductWithImagesDTO)
-            .collect(Collectors.toList());
+        return catalog().getProducts();
     }
 
     public List<ProductWithImagesDTO> getProductsByCategory(Long categoryId) {
-        return productRepository.findProductsWithImagesByCategory(categoryId)
-            .stream()
-            .map(this::mapToProductWithImagesDTO)
-            .collect(Collectors.toList());
+        return catalog().getByCategory(categoryId);
     }
 
     public ProductWithImagesDTO getProductById(Long id) {
-        Product product = productRepository.findProductWithImagesById(id)
-            .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
-        return mapToProductWithImagesDTO(product);
+        ProductWithImagesDTO product = catalog().get(id);
+        if (product == null) {
+            throw new ResourceNotFoundException("Product not found");
+        }
+        return product;
     }
 
     public List<ProductWithImagesDTO> searchProductsByName(String name) {
-        return productRepository.findProductsWithImagesByName(name)
-            .stream()
-            .map(this::mapToProductWithImagesDTO)
-            .collect(Collectors.toList());
+        return searchCatalog(catalog(), name);
+    }
+
+    public PageDTO<ProductWithImagesDTO> getActiveProductsPage(
+            String cursor, int size, String sortBy, String direction) {
+        ProductSort sort = ProductSort.from(sortBy);
+        return ProductCursor.page(catalog().ordered(sort), sort, isDescending(direction),
+            cursor, pageSize(size));
+    }
+
+    public PageDTO<ProductWithImagesDTO> getProductsByCategoryPage(
+            Long categoryId, String cursor, int size, String sortBy, String direction) {
+        return getProductsByCategoriesPage(Set.of(categoryId), cursor, size, sortBy, direction);
+    }
+
+    public PageDTO<ProductWithImagesDTO> getProductsByCategoriesPage(
+            Set<Long> categoryIds, String cursor, int size, String sortBy, String direction) {
+        ProductSort sort = ProductSort.from(sortBy);
+        return ProductCursor.page(catalog().orderedByCategories(categoryIds, sort), sort,
+            isDescending(direction), cursor, pageSize(size));
+    }
+
+    public PageDTO<ProductWithImagesDTO> searchProductsPage(
+            String name, String cursor, int size, String sortBy, String direction) {
+        CatalogSnapshot current = catalog();
+        if (name == null || name.isBlank()) {
+            ProductSort sort = RELEVANCE.equalsIgnoreCase(sortBy) ? ProductSort.ID : ProductSort.from(sortBy);
+            return ProductCursor.page(current.ordered(sort), sort, isDescending(direction),
+                cursor, pageSize(size));
+        }
+
+        List<ProductWithImagesDTO> matches = searchCatalog(current, name);
+        if (RELEVANCE.equalsIgnoreCase(sortBy)) {
+            return ProductCursor.rankedPage(matches, cursor, pageSize(size));
+        }
+        ProductSort sort = ProductSort.from(sortBy);
+        return ProductCursor.page(CatalogSnapshot.sorted(matches, sort), sort,
+            isDescending(direction), cursor, pageSize(size));
+    }
+
+    public PageDTO<ProductWithImagesDTO> getProductsWithCoverImagePage(
+            String cursor, int size, String sortBy, String direction) {
+        ProductSort sort = ProductSort.from(sortBy);
+        return ProductCursor.page(catalog().orderedWithCover(sort), sort, isDescending(direction),
+            cursor, pageSize(size));
+    }
+
+    public ProductFilterResultDTO filterProducts(ProductFilterDTO filter) {
+        if (filter == null) {
+            filter = new ProductFilterDTO();
+        }
+        int page = filter.getPage() != null ? filter.getPage() : 0;
+        if (page < 0) {
+            throw new BadRequestException("Page must not be negative");
+        }
+        int size = pageSize(filter.getSize() != null ? filter.getSize() : DEFAULT_PAGE_SIZE);
+        return ProductFilterPlan.compile(filter).execute(catalog(), filter, page, size);
+    }
+
+    public PageDTO<ProductSummaryDTO> summarize(PageDTO<ProductWithImagesDTO> page) {
+        CatalogSnapshot current = catalog();
+        return page.map(current::summaryOf);
+    }
+
+    // Answered from the snapshot's version index; null when the product is not in it
+    public String getProductETag(Long id) {
+        return catalog().getETag(id);
+    }
+
+    public String getETag(ProductWithImagesDTO product) {
+        CatalogSnapshot current = catalog();
+        if (current.get(product.getId()) == product) {
+            return current.getETag(product.getId());
+        }
+        return ETags.of(product, current.getVersion(product.getId()));
     }
 
-    public Page<ProductWithImagesDTO> getProductsWithCoverImage(Pageable pageable) {
-        return productRepository.findProductsWithCoverImage(pageable)
-            .map(this::mapToProductWithImagesDTO);
+    public String getPageETag(PageDTO<ProductWithImagesDTO> page) {
+        List<String> parts = new ArrayList<>(page.getContent().size() + 2);
+        page.getContent().forEach(product -> parts.add(getETag(product)));
+        parts.add(Long.toString(page.getTotalElements()));
+        parts.add(page.getNextCursor());
+        return ETags.aggregate(parts);
+    }
+
+    // Hands every product, active or not, to the sink as the database cursor reads it.
+    // Each entity is detached once mapped so the persistence context stays empty.
+    @Transactional
+    public void exportProducts(Consumer<ProductWithImagesDTO> sink) {
+        try (Stream<Product> products = productRepository.streamAllWithImages()) {
+            products.forEach(product -> {
+                ProductWithImagesDTO dto = mapToProductWithImagesDTO(product);
+                entityManager.detach(product);
+                sink.accept(dto);
+            });
+        }
     }
 
     public ProductWithImagesDTO getProductDetails(Long id) {
         Product product = productRepository.findProductDetailsWithImages(id)
             .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
-        return mapToProductWithImagesDTO(product);
+        ProductWithImagesDTO dto = mapToProductWithImagesDTO(product);
+        attachTags(List.of(dto), productRepository.findProductTagNamesByIds(List.of(id)));
+        return dto;
+    }
+
+    // Best match first; ids the index returns ahead of a snapshot swap are skipped
+    private List<ProductWithImagesDTO> searchCatalog(CatalogSnapshot current, String query) {
+        List<ProductWithImagesDTO> matches = new ArrayList<>();
+        for (Long id : searchIndex.search(query)) {
+            ProductWithImagesDTO product = current.get(id);
+            if (product != null) {
+                matches.add(product);
+            }
+        }
+        return matches;
+    }
+
+    private boolean isDescending(String direction) {
+        return "desc".equalsIgnoreCase(direction);
+    }
+
+    private int pageSize(int size) {
+        if (size < 1) {
+            throw new BadRequestException("Page size must be positive");
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    void onProductChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) ProductChangedEvent event) {
+        pendingChanges.merge(event.getProductId(), event.getVersion(), Math::max);
+    }
+
+    private CatalogSnapshot catalog() {
+        CatalogSnapshot current = catalog;
+        if (current != null && pendingChanges.isEmpty()) {
+            return current;
+        }
+        return refreshCatalog();
+    }
+
+    private synchronized CatalogSnapshot refreshCatalog() {
+        if (catalog == null) {
+            // Changes committed before the full load are already visible to it
+            pendingChanges.clear();
+            List<Product> products = productRepository.findAllActiveWithImages();
+            Map<Long, Long> versions = new HashMap<>();
+            products.forEach(product -> versions.put(product.getId(), product.getVersion()));
+            List<ProductWithImagesDTO> dtos = products.stream()
+                .map(ProductService::mapToProductWithImagesDTO)
+                .collect(Collectors.toList());
+            attachTags(dtos, productRepository.findActiveProductTagNames());
+            searchIndex.rebuild(dtos);
+            catalog = CatalogSnapshot.of(dtos, versions);
+            return catalog;
+        }
+
+        Set<Long> stale = new HashSet<>();
+        for (Map.Entry<Long, Long> change : pendingChanges.entrySet()) {
+            Long productId = change.getKey();
+            Long knownVersion = catalog.getVersion(productId);
+            // Skip reloads for versions the snapshot already holds (duplicate or reordered events)
+            if (knownVersion == null || knownVersion < change.getValue()) {
+                stale.add(productId);
+            }
+            pendingChanges.remove(productId, change.getValue());
+        }
+        if (stale.isEmpty()) {
+            return catalog;
+        }
+
+        List<ProductWithImagesDTO> upserts = new ArrayList<>();
+        Map<Long, Long> versions = new HashMap<>();
+        Set<Long> removals = new HashSet<>(stale);
+        for (Product product : productRepository.findProductsWithImagesByIds(stale)) {
+            if (Boolean.TRUE.equals(product.getActive())) {
+                upserts.add(mapToProductWithImagesDTO(product));
+                versions.put(product.getId(), product.getVersion());
+                removals.remove(product.getId());
+            }
+        }
+        if (!upserts.isEmpty()) {
+            attachTags(upserts, productRepository.findProductTagNamesByIds(versions.keySet()));
+        }
+
+        searchIndex.update(upserts, removals);
+        catalog = catalog.withChanges(upserts, versions, removals);
+        return catalog;
+    }
+
+    // Rows are (productId, tagName) pairs from product_tags
+    private void attachTags(Collection<ProductWithImagesDTO> products, List<Object[]> rows) {
+        Map<Long, Set<String>> tagsByProduct = new HashMap<>();
+        for (Object[] row : rows) {
+            tagsByProduct.computeIfAbsent((Long) row[0], id -> new HashSet<>()).add((String) row[1]);
+        }
+        for (ProductWithImagesDTO product : products) {
+            product.setTags(tagsByProduct.getOrDefault(product.getId(), Set.of()));
+        }
     }
 
-    private ProductWithImagesDTO mapToProductWithImagesDTO(Product product) {
+    static ProductWithImagesDTO mapToProductWithImagesDTO(Product product) {
         ProductWithImagesDTO dto = new ProductWithImagesDTO();
         dto.setId(product.getId());
         dto.setName(product.getName());
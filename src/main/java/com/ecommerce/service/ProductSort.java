@@ -0,0 +1,58 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.dto.ProductWithImagesDTO;
+import com.ecommerce.exception.BadRequestException;
+import java.math.BigDecimal;
+import java.util.Comparator;
+
+enum ProductSort {
+    PRICE(Comparator.comparing(ProductWithImagesDTO::getPrice,
+        Comparator.nullsFirst(Comparator.naturalOrder()))),
+    RATING(Comparator.comparing(ProductWithImagesDTO::getAverageRating,
+        Comparator.nullsFirst(Comparator.naturalOrder()))),
+    ID(null);
+
+    private final Comparator<ProductWithImagesDTO> comparator;
+
+    ProductSort(Comparator<ProductWithImagesDTO> keyComparator) {
+        // Ties on the sort key are broken by id so every position in an ordering is unique
+        Comparator<ProductWithImagesDTO> byId = Comparator.comparing(ProductWithImagesDTO::getId);
+        this.comparator = keyComparator != null ? keyComparator.thenComparing(byId) : byId;
+    }
+
+    Comparator<ProductWithImagesDTO> comparator() {
+        return comparator;
+    }
+
+    String keyOf(ProductWithImagesDTO product) {
+        return switch (this) {
+            case PRICE -> product.getPrice() != null ? product.getPrice().toPlainString() : "";
+            case RATING -> product.getAverageRating() != null ? product.getAverageRating().toString() : "";
+            case ID -> "";
+        };
+    }
+
+    ProductWithImagesDTO probe(String key, Long id) {
+        ProductWithImagesDTO probe = new ProductWithImagesDTO();
+        probe.setId(id);
+        if (!key.isEmpty()) {
+            switch (this) {
+                case PRICE -> probe.setPrice(new BigDecimal(key));
+                case RATING -> probe.setAverageRating(Double.valueOf(key));
+                case ID -> { }
+            }
+        }
+        return probe;
+    }
+
+    static ProductSort from(String value) {
+        if (value == null || value.isBlank()) {
+            return ID;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Unsupported sort: " + value);
+        }
+    }
+}
\ No newline at end of file
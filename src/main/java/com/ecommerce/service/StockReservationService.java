@@ -0,0 +1,334 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.event.ProductChangedEvent;
+import com.ecommerce.exception.ConflictException;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.smallrye.mutiny.subscription.Cancellable;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.hibernate.Session;
+
+/**
+ * Stock ledger over allotments leased from products.stock_quantity. An instance
+ * takes units off the column with a conditional relative update, so the column
+ * never goes below zero and no two instances can grant the same unit. Each SKU's
+ * allotment is a single atomic word holding its available and held units, so
+ * reservations are granted with one compare-and-set and never wait on the
+ * database; only a SKU whose allotment runs short leases again.
+ *
+ * Restocks, and allotments left untouched for LEASE_IDLE, are added back to the
+ * column as relative updates in one JDBC batch every FLUSH_INTERVAL. While
+ * leased, units are missing from stock_quantity, so readers of the column count
+ * them as sold until they are returned.
+ */
+@ApplicationScoped
+public class StockReservationService {
+    
+    private static final int SHARDS = 16;
+    private static final Duration FLUSH_INTERVAL = Duration.ofMillis(250);
+    private static final long LEASE_IDLE_NANOS = Duration.ofSeconds(2).toNanos();
+    // Leased beyond the shortfall only while as many units are left for other instances
+    static final int LEASE_UNITS = 50;
+    private static final int BATCH_SIZE = 500;
+    
+    // Bumping the version makes an entity edit that read the old stock fail instead of overwriting it
+    private static final String TAKE_STOCK =
+        "UPDATE products SET stock_quantity = stock_quantity - ?, version = COALESCE(version, 0) + 1 " +
+        "WHERE id = ? AND stock_quantity >= ? RETURNING stock_quantity";
+    private static final String RETURN_STOCK =
+        "UPDATE products SET stock_quantity = stock_quantity + ?, version = COALESCE(version, 0) + 1 WHERE id = ?";
+    private static final String SET_STOCK =
+        "UPDATE products SET stock_quantity = ?, version = COALESCE(version, 0) + 1 WHERE id = ?";
+    
+    @Inject
+    EntityManager entityManager;
+    
+    @Inject
+    Event<ProductChangedEvent> productChanged;
+    
+    private final Shard[] shards = new Shard[SHARDS];
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    private volatile Cancellable flusher;
+    
+    public StockReservationService() {
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new Shard();
+        }
+    }
+    
+    void onStart(@Observes StartupEvent event) {
+        flusher = Multi.createFrom().ticks().every(FLUSH_INTERVAL)
+            .emitOn(Infrastructure.getDefaultWorkerPool())
+            .subscribe().with(tick -> flush(false), Throwable::printStackTrace);
+    }
+    
+    // Every allotment goes back, so no units stay missing from the column
+    void onStop(@Observes ShutdownEvent event) {
+        if (flusher != null) {
+            flusher.cancel();
+        }
+        flush(true);
+    }
+    
+    /**
+     * Holds units from this instance's allotment without touching the database;
+     * false when the allotment is too small and {@link #reserve} has to lease.
+     */
+    public boolean tryReserve(Long productId, int quantity) {
+        Sku sku = sku(productId);
+        while (true) {
+            long state = sku.state.get();
+            int available = available(state);
+            if (available < quantity) {
+                return false;
+            }
+            if (sku.state.compareAndSet(state, pack(available - quantity, held(state) + quantity))) {
+                sku.usedAt = System.nanoTime();
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * Holds units for a later confirm or release, leasing more from the column
+     * when the allotment is short. Blocking; throws ConflictException when the
+     * column cannot cover the shortfall either.
+     */
+    public void reserve(Long productId, int quantity) {
+        Sku sku = sku(productId);
+        while (!tryReserve(productId, quantity)) {
+            // One lease per SKU at a time; the others retry against what it brought in
+            synchronized (sku) {
+                int shortfall = quantity - available(sku.state.get());
+                if (shortfall > 0) {
+                    sku.state.addAndGet(pack(lease(productId, sku, shortfall), 0));
+                }
+            }
+        }
+    }
+    
+    // Held units are sold; they already left the column when leased
+    public void confirm(Long productId, int quantity) {
+        settle(sku(productId), quantity, 0);
+    }
+    
+    public void release(Long productId, int quantity) {
+        settle(sku(productId), quantity, quantity);
+    }
+    
+    // Incoming units go to the column on the next flush, for every instance to lease
+    public void restock(Long productId, int quantity) {
+        Sku sku = sku(productId);
+        sku.unreturned.addAndGet(quantity);
+        shard(productId).dirty.add(productId);
+    }
+    
+    /**
+     * Sets the units on hand, e.g. after a stock count. This instance's allotment
+     * and queued restocks are superseded by the count; units held for reservations
+     * still in flight are left out of it. Units other instances hold come back on
+     * top of the count if they go unsold. Blocking.
+     */
+    public void adjustTo(Long productId, int onHand) {
+        Sku sku = sku(productId);
+        synchronized (sku) {
+            long state;
+            do {
+                state = sku.state.get();
+            } while (!sku.state.compareAndSet(state, pack(0, held(state))));
+            sku.unreturned.set(0);
+            int stock = Math.max(onHand - held(state), 0);
+            QuarkusTransaction.requiringNew().run(() -> {
+                entityManager.unwrap(Session.class).doWork(connection -> {
+                    try (PreparedStatement statement = connection.prepareStatement(SET_STOCK)) {
+                        statement.setInt(1, stock);
+                        statement.setLong(2, productId);
+                        statement.executeUpdate();
+                    }
+                });
+                productChanged.fire(ProductChangedEvent.unversioned(productId));
+            });
+        }
+    }
+    
+    /**
+     * Takes the shortfall off the column, plus LEASE_UNITS more while the column
+     * would keep as many for other instances. Called with the SKU locked.
+     */
+    private int lease(Long productId, Sku sku, int shortfall) {
+        // Not returned as idle before the reservation that asked for it is granted
+        sku.usedAt = System.nanoTime();
+        int extra = shortfall + LEASE_UNITS;
+        Integer left = take(productId, extra, extra + LEASE_UNITS);
+        int leased = extra;
+        if (left == null) {
+            left = take(productId, shortfall, shortfall);
+            leased = shortfall;
+        }
+        if (left == null) {
+            throw new ConflictException("Insufficient stock");
+        }
+        return leased;
+    }
+    
+    // Leases the units if at least minimum are in the column and returns what is left there
+    Integer take(Long productId, int units, int minimum) {
+        return QuarkusTransaction.requiringNew().call(() -> {
+            Integer left = entityManager.unwrap(Session.class).doReturningWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(TAKE_STOCK)) {
+                    statement.setInt(1, units);
+                    statement.setLong(2, productId);
+                    statement.setInt(3, minimum);
+                    try (ResultSet result = statement.executeQuery()) {
+                        return result.next() ? result.getInt(1) : null;
+                    }
+                }
+            });
+            if (left != null) {
+                // Observed after commit, like the entity listener's events
+                productChanged.fire(ProductChangedEvent.unversioned(productId));
+            }
+            return left;
+        });
+    }
+    
+    /**
+     * Returns restocks and idle allotments (every allotment when all is set) to the
+     * column. Failed batches are put back and retried on the next tick, so no unit
+     * is lost and none is returned twice.
+     */
+    void flush(boolean all) {
+        if (!flushing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Map<Long, Integer> returns = drain(all, System.nanoTime());
+            if (returns.isEmpty()) {
+                return;
+            }
+            try {
+                write(returns);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                returns.forEach((productId, units) -> restock(productId, units));
+            }
+        } finally {
+            flushing.set(false);
+        }
+    }
+    
+    // productId -> units to add to stock_quantity
+    Map<Long, Integer> drain(boolean all, long now) {
+        Map<Long, Integer> returns = new HashMap<>();
+        for (Shard shard : shards) {
+            shard.skus.forEach((productId, sku) -> {
+                if (all || now - sku.usedAt > LEASE_IDLE_NANOS) {
+                    // Held units stay, so a reservation in flight can still be settled
+                    long state;
+                    do {
+                        state = sku.state.get();
+                    } while (!sku.state.compareAndSet(state, pack(0, held(state))));
+                    if (available(state) > 0) {
+                        sku.unreturned.addAndGet(available(state));
+                        shard.dirty.add(productId);
+                    }
+                }
+            });
+            shard.dirty.removeIf(productId -> {
+                // Unmark before taking the units: a concurrent restock marks the SKU again
+                int units = shard.skus.get(productId).unreturned.getAndSet(0);
+                if (units != 0) {
+                    returns.put(productId, units);
+                }
+                return true;
+            });
+        }
+        return returns;
+    }
+    
+    private void write(Map<Long, Integer> returns) {
+        QuarkusTransaction.requiringNew().run(() -> {
+            entityManager.unwrap(Session.class).doWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(RETURN_STOCK)) {
+                    int batched = 0;
+                    for (Map.Entry<Long, Integer> units : returns.entrySet()) {
+                        statement.setInt(1, units.getValue());
+                        statement.setLong(2, units.getKey());
+                        statement.addBatch();
+                        if (++batched % BATCH_SIZE == 0) {
+                            statement.executeBatch();
+                        }
+                    }
+                    statement.executeBatch();
+                }
+            });
+            returns.keySet().forEach(productId -> productChanged.fire(ProductChangedEvent.unversioned(productId)));
+        });
+    }
+    
+    // Takes units off the held count and returns the given number of them to available
+    private static void settle(Sku sku, int quantity, int returned) {
+        while (true) {
+            long state = sku.state.get();
+            int held = held(state);
+            if (held < quantity) {
+                throw new IllegalStateException("Not enough reserved stock");
+            }
+            if (sku.state.compareAndSet(state, pack(available(state) + returned, held - quantity))) {
+                sku.usedAt = System.nanoTime();
+                return;
+            }
+        }
+    }
+    
+    private Sku sku(Long productId) {
+        return shard(productId).skus.computeIfAbsent(productId, id -> new Sku());
+    }
+    
+    private Shard shard(Long productId) {
+        return shards[(int) (productId & (SHARDS - 1))];
+    }
+    
+    // Available units in the high word, held units (never negative) in the low word
+    private static long pack(int available, int held) {
+        return ((long) available << 32) + held;
+    }
+    
+    private static int available(long state) {
+        return (int) (state >> 32);
+    }
+    
+    private static int held(long state) {
+        return (int) state;
+    }
+    
+    private static final class Shard {
+        private final Map<Long, Sku> skus = new ConcurrentHashMap<>();
+        private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    }
+    
+    private static final class Sku {
+        // Leased units: available in the high word, held in the low word
+        private final AtomicLong state = new AtomicLong();
+        // Units to add back to stock_quantity on the next flush
+        private final AtomicInteger unreturned = new AtomicInteger();
+        private volatile long usedAt = System.nanoTime();
+    }
+}
\ No newline at end of file
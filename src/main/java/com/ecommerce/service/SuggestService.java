@@ -0,0 +1,127 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.dto.ProductWithImagesDTO;
+import com.ecommerce.domain.dto.SuggestionDTO;
+import com.ecommerce.domain.event.CategoryChangedEvent;
+import com.ecommerce.domain.event.ProductChangedEvent;
+import com.ecommerce.domain.model.Category;
+import com.ecommerce.domain.repository.CategoryRepository;
+import com.ecommerce.domain.repository.InventoryAnalyticsRepository;
+import com.ecommerce.exception.BadRequestException;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@ApplicationScoped
+public class SuggestService {
+    
+    private static final int SALES_WINDOW_DAYS = 90;
+    private static final double SALES_WEIGHT = 2.0;
+    private static final double CATEGORY_WEIGHT = 3.0;
+    // Sales move without any catalog write, so the trie is also refreshed on age
+    private static final Duration MAX_AGE = Duration.ofMinutes(15);
+    
+    @Inject
+    ProductService productService;
+    
+    @Inject
+    CategoryRepository categoryRepository;
+    
+    @Inject
+    InventoryAnalyticsRepository analyticsRepository;
+    
+    private volatile SuggestTrie trie;
+    private volatile Instant builtAt = Instant.MIN;
+    private final AtomicBoolean stale = new AtomicBoolean(true);
+    // The rebuild in progress, shared by every caller; null when none runs
+    private volatile Uni<SuggestTrie> rebuilding;
+    
+    public Uni<List<SuggestionDTO>> suggest(String query, int limit) {
+        if (limit < 1) {
+            return Uni.createFrom().failure(new BadRequestException("Limit must be positive"));
+        }
+        
+        SuggestTrie current = trie;
+        if (current == null) {
+            return sharedRebuild().map(built -> built.suggest(query, limit));
+        }
+        
+        // Serve the current trie while a replacement is built in the background
+        boolean expired = builtAt.plus(MAX_AGE).isBefore(Instant.now());
+        if ((stale.get() || expired) && rebuilding == null) {
+            sharedRebuild();
+        }
+        return Uni.createFrom().item(current.suggest(query, limit));
+    }
+    
+    void onProductChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) ProductChangedEvent event) {
+        stale.set(true);
+    }
+    
+    void onCategoryChanged(@Observes CategoryChangedEvent event) {
+        stale.set(true);
+    }
+    
+    // The first caller starts the rebuild, so it runs to completion even if that request goes away
+    private synchronized Uni<SuggestTrie> sharedRebuild() {
+        Uni<SuggestTrie> running = rebuilding;
+        if (running == null) {
+            running = rebuild().eventually(this::rebuilt).memoize().indefinitely();
+            rebuilding = running;
+            running.subscribe().with(built -> { }, Throwable::printStackTrace);
+        }
+        return running;
+    }
+    
+    private synchronized void rebuilt() {
+        rebuilding = null;
+    }
+    
+    private Uni<SuggestTrie> rebuild() {
+        // Changes arriving while the build runs mark the new trie stale again
+        stale.set(false);
+        LocalDate since = LocalDate.now().minusDays(SALES_WINDOW_DAYS);
+        return categoryRepository.findActive()
+            .chain(categories -> analyticsRepository.sumSalesByProductSince(since)
+                .emitOn(Infrastructure.getDefaultWorkerPool())
+                .map(sales -> build(productService.getAllActiveProducts(), categories, sales)))
+            .invoke(built -> {
+                trie = built;
+                builtAt = Instant.now();
+            });
+    }
+    
+    private SuggestTrie build(List<ProductWithImagesDTO> products, List<Category> categories,
+                              Map<Long, Long> sales) {
+        SuggestTrie.Builder builder = SuggestTrie.builder();
+        Map<Long, Double> categoryPopularity = new HashMap<>();
+        
+        for (ProductWithImagesDTO product : products) {
+            long sold = sales.getOrDefault(product.getId(), 0L);
+            double rating = product.getAverageRating() != null ? product.getAverageRating() : 0.0;
+            builder.add(new SuggestionDTO(product.getName(), "PRODUCT", product.getId()),
+                rating + Math.log1p(sold) * SALES_WEIGHT);
+            if (product.getCategoryId() != null) {
+                categoryPopularity.merge(product.getCategoryId(), 1 + Math.log1p(sold), Double::sum);
+            }
+        }
+        
+        for (Category category : categories) {
+            double popularity = categoryPopularity.getOrDefault(category.getId(), 0.0);
+            builder.add(new SuggestionDTO(category.getName(), "CATEGORY", category.getId()),
+                Math.log1p(popularity) * CATEGORY_WEIGHT);
+        }
+        
+        return builder.build();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,241 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.dto.SuggestionDTO;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable prefix trie flattened into primitive arrays. Every node stores the
+ * indices of its best entries, so a lookup walks the query characters and copies
+ * at most MAX_SUGGESTIONS precomputed results; nothing else is allocated.
+ */
+final class SuggestTrie {
+
+    static final int MAX_SUGGESTIONS = 10;
+
+    // Queries longer than this resolve to the node at this depth
+    private static final int MAX_KEY_LENGTH = 32;
+    // Each entry is also reachable from its first few inner words ("chair" -> "Office Chair")
+    private static final int MAX_WORD_STARTS = 4;
+
+    private static final char[] FOLD = new char[0x250];
+
+    static {
+        for (char c = 0; c < FOLD.length; c++) {
+            char base = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD).charAt(0);
+            FOLD[c] = Character.isLetterOrDigit(base) ? Character.toLowerCase(base) : ' ';
+        }
+    }
+
+    // Edges of node n are edgeChar/edgeTarget[childStart[n] .. childStart[n + 1]), sorted by char
+    private final int[] childStart;
+    private final char[] edgeChar;
+    private final int[] edgeTarget;
+    // Best entries of node n are top[topStart[n] .. topStart[n + 1]), best first
+    private final int[] topStart;
+    private final int[] top;
+    private final SuggestionDTO[] entries;
+
+    private SuggestTrie(int[] childStart, char[] edgeChar, int[] edgeTarget,
+                        int[] topStart, int[] top, SuggestionDTO[] entries) {
+        this.childStart = childStart;
+        this.edgeChar = edgeChar;
+        this.edgeTarget = edgeTarget;
+        this.topStart = topStart;
+        this.top = top;
+        this.entries = entries;
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    List<SuggestionDTO> suggest(CharSequence query, int limit) {
+        if (query == null) {
+            return List.of();
+        }
+
+        int node = 0;
+        int depth = 0;
+        boolean pendingSpace = false;
+        for (int i = 0; i < query.length() && depth < MAX_KEY_LENGTH; i++) {
+            char c = fold(query.charAt(i));
+            if (c == ' ') {
+                pendingSpace = depth > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                node = child(node, ' ');
+                depth++;
+                pendingSpace = false;
+                if (node < 0 || depth >= MAX_KEY_LENGTH) {
+                    break;
+                }
+            }
+            node = child(node, c);
+            depth++;
+            if (node < 0) {
+                break;
+            }
+        }
+        if (node <= 0) {
+            return List.of();
+        }
+
+        int from = topStart[node];
+        int count = Math.min(Math.min(limit, MAX_SUGGESTIONS), topStart[node + 1] - from);
+        SuggestionDTO[] result = new SuggestionDTO[Math.max(count, 0)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = entries[top[from + i]];
+        }
+        return Arrays.asList(result);
+    }
+
+    int size() {
+        return entries.length;
+    }
+
+    private int child(int node, char c) {
+        int low = childStart[node];
+        int high = childStart[node + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (edgeChar[mid] < c) {
+                low = mid + 1;
+            } else if (edgeChar[mid] > c) {
+                high = mid - 1;
+            } else {
+                return edgeTarget[mid];
+            }
+        }
+        return -1;
+    }
+
+    static char fold(char c) {
+        if (c < FOLD.length) {
+            return FOLD[c];
+        }
+        return Character.isLetterOrDigit(c) ? Character.toLowerCase(c) : ' ';
+    }
+
+    static final class Builder {
+
+        private final List<SuggestionDTO> suggestions = new ArrayList<>();
+        private final List<Double> weights = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        Builder add(SuggestionDTO suggestion, double weight) {
+            if (suggestion.getText() != null && !suggestion.getText().isBlank()) {
+                suggestions.add(suggestion);
+                weights.add(weight);
+            }
+            return this;
+        }
+
+        SuggestTrie build() {
+            // Entries are ranked up front, so a smaller index is always the better entry
+            Integer[] order = new Integer[suggestions.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.<Integer>comparingDouble(i -> -weights.get(i))
+                .thenComparing(i -> suggestions.get(i).getText()));
+            SuggestionDTO[] entries = new SuggestionDTO[order.length];
+            for (int rank = 0; rank < order.length; rank++) {
+                entries[rank] = suggestions.get(order[rank]);
+            }
+
+            List<Map<Character, Integer>> children = new ArrayList<>();
+            List<int[]> best = new ArrayList<>();
+            children.add(new TreeMap<>());
+            best.add(new int[0]);
+            for (int entry = 0; entry < entries.length; entry++) {
+                String key = normalize(entries[entry].getText());
+                int starts = 0;
+                for (int start = 0; start < key.length() && starts < MAX_WORD_STARTS; start++) {
+                    if (start == 0 || key.charAt(start - 1) == ' ') {
+                        insert(key, start, entry, children, best);
+                        starts++;
+                    }
+                }
+            }
+
+            int nodes = children.size();
+            int[] childStart = new int[nodes + 1];
+            int[] topStart = new int[nodes + 1];
+            for (int node = 0; node < nodes; node++) {
+                childStart[node + 1] = childStart[node] + children.get(node).size();
+                topStart[node + 1] = topStart[node] + best.get(node).length;
+            }
+            char[] edgeChar = new char[childStart[nodes]];
+            int[] edgeTarget = new int[childStart[nodes]];
+            int[] top = new int[topStart[nodes]];
+            for (int node = 0; node < nodes; node++) {
+                int edge = childStart[node];
+                for (Map.Entry<Character, Integer> child : children.get(node).entrySet()) {
+                    edgeChar[edge] = child.getKey();
+                    edgeTarget[edge] = child.getValue();
+                    edge++;
+                }
+                System.arraycopy(best.get(node), 0, top, topStart[node], best.get(node).length);
+            }
+            return new SuggestTrie(childStart, edgeChar, edgeTarget, topStart, top, entries);
+        }
+
+        private static void insert(String key, int start, int entry,
+                                   List<Map<Character, Integer>> children, List<int[]> best) {
+            int node = 0;
+            int end = Math.min(key.length(), start + MAX_KEY_LENGTH);
+            for (int i = start; i < end; i++) {
+                Integer next = children.get(node).get(key.charAt(i));
+                if (next == null) {
+                    next = children.size();
+                    children.get(node).put(key.charAt(i), next);
+                    children.add(new TreeMap<>());
+                    best.add(new int[0]);
+                }
+                node = next;
+                best.set(node, offer(best.get(node), entry));
+            }
+        }
+
+        // Keeps the MAX_SUGGESTIONS smallest distinct entry indices in ascending order
+        private static int[] offer(int[] current, int entry) {
+            int position = Arrays.binarySearch(current, entry);
+            if (position >= 0) {
+                return current;
+            }
+            position = -position - 1;
+            if (position >= MAX_SUGGESTIONS) {
+                return current;
+            }
+            int length = Math.min(current.length + 1, MAX_SUGGESTIONS);
+            int[] next = new int[length];
+            System.arraycopy(current, 0, next, 0, position);
+            next[position] = entry;
+            System.arraycopy(current, position, next, position + 1, length - position - 1);
+            return next;
+        }
+
+        private static String normalize(String text) {
+            StringBuilder key = new StringBuilder(text.length());
+            for (int i = 0; i < text.length(); i++) {
+                char c = fold(text.charAt(i));
+                if (c != ' ') {
+                    key.append(c);
+                } else if (key.length() > 0 && key.charAt(key.length() - 1) != ' ') {
+                    key.append(' ');
+                }
+            }
+            int end = key.length();
+            return end > 0 && key.charAt(end - 1) == ' ' ? key.substring(0, end - 1) : key.toString();
+        }
+    }
+}
\ No newline at end of file
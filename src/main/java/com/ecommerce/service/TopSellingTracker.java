@@ -0,0 +1,297 @@
+package com.ecommerce.service;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.smallrye.mutiny.subscription.Cancellable;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.hibernate.Session;
+
+/**
+ * Sales per product over the last 7, 30 and 90 days, ranked as they change.
+ * Every window keeps its totals in a sorted set, so a sale moves one entry and
+ * the top K are read straight off the front without grouping anything. Days that
+ * leave a window are subtracted from their daily bucket when the date changes.
+ *
+ * Read from inventory_analytics, which every instance's pipeline writes, so all
+ * instances rank the same sales. Every RESYNC_INTERVAL the most recent days are
+ * read again and replace their buckets; everything is reloaded every
+ * FULL_RELOAD_INTERVAL, in case an older day was written. A sale is ranked once
+ * the pipeline that recorded it has flushed and the next resync has run.
+ */
+@ApplicationScoped
+public class TopSellingTracker {
+    
+    static final int[] WINDOWS = {7, 30, 90};
+    static final int DEFAULT_WINDOW = 30;
+    private static final int HISTORY_DAYS = 90;
+    // Days, counting back from today, the pipelines still write to
+    private static final int RECENT_DAYS = 2;
+    private static final Duration RESYNC_INTERVAL = Duration.ofMinutes(1);
+    private static final Duration FULL_RELOAD_INTERVAL = Duration.ofHours(1);
+    
+    private static final String LOAD_SALES =
+        "SELECT product_id, date, sales_count FROM inventory_analytics WHERE date > ? AND sales_count > 0";
+    
+    @Inject
+    EntityManager entityManager;
+    
+    // Sales per product for each day still inside the longest window
+    private Map<LocalDate, Map<Long, Integer>> days = new HashMap<>();
+    private Window[] windows = new Window[WINDOWS.length];
+    private LocalDate today;
+    
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile Instant loadedAt = Instant.MIN;
+    private volatile Cancellable refresher;
+    
+    public TopSellingTracker() {
+        for (int i = 0; i < WINDOWS.length; i++) {
+            windows[i] = new Window(WINDOWS[i]);
+        }
+    }
+    
+    void onStart(@Observes StartupEvent event) {
+        refresh();
+        refresher = Multi.createFrom().ticks().every(RESYNC_INTERVAL)
+            .emitOn(Infrastructure.getDefaultWorkerPool())
+            .subscribe().with(tick -> refresh(), Throwable::printStackTrace);
+    }
+    
+    void onStop(@Observes ShutdownEvent event) {
+        if (refresher != null) {
+            refresher.cancel();
+        }
+    }
+    
+    void refresh() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            LocalDate now = LocalDate.now();
+            if (loadedAt.plus(FULL_RELOAD_INTERVAL).isBefore(Instant.now())) {
+                Instant started = Instant.now();
+                load(now);
+                loadedAt = started;
+            } else {
+                resync(now);
+            }
+        } catch (RuntimeException e) {
+            // Logged so the ticker keeps running; the next tick reads the sales again
+            e.printStackTrace();
+        } finally {
+            refreshing.set(false);
+        }
+    }
+    
+    // Built aside and swapped in, so rankings are never read half loaded
+    private void load(LocalDate now) {
+        TopSellingTracker loaded = new TopSellingTracker();
+        readSales(now.minusDays(HISTORY_DAYS), (productId, date, sales) -> loaded.record(productId, date, sales, now));
+        synchronized (this) {
+            days = loaded.days;
+            windows = loaded.windows;
+            today = loaded.today;
+        }
+    }
+    
+    private void resync(LocalDate now) {
+        LocalDate since = now.minusDays(RECENT_DAYS);
+        Map<LocalDate, Map<Long, Integer>> recent = new HashMap<>();
+        for (int age = 0; age < RECENT_DAYS; age++) {
+            recent.put(now.minusDays(age), new HashMap<>());
+        }
+        readSales(since, (productId, date, sales) -> {
+            Map<Long, Integer> day = recent.get(date);
+            if (day != null) {
+                day.put(productId, sales);
+            }
+        });
+        recent.forEach((date, sales) -> replaceDay(date, sales, now));
+    }
+    
+    private void readSales(LocalDate after, SalesRow row) {
+        QuarkusTransaction.requiringNew().run(() ->
+            entityManager.unwrap(Session.class).doWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(LOAD_SALES)) {
+                    statement.setDate(1, Date.valueOf(after));
+                    try (ResultSet result = statement.executeQuery()) {
+                        while (result.next()) {
+                            row.accept(result.getLong(1), result.getDate(2).toLocalDate(), result.getInt(3));
+                        }
+                    }
+                }
+            }));
+    }
+    
+    /**
+     * The window a date range asks for, or 0 when it is not one of the tracked
+     * windows ending today. No range at all means the default window.
+     */
+    static int windowFor(LocalDate startDate, LocalDate endDate, LocalDate today) {
+        if (startDate == null && endDate == null) {
+            return DEFAULT_WINDOW;
+        }
+        if (startDate == null || endDate == null || endDate.isBefore(today)) {
+            return 0;
+        }
+        for (int window : WINDOWS) {
+            if (startDate.equals(today.minusDays(window - 1))) {
+                return window;
+            }
+        }
+        return 0;
+    }
+    
+    // productId and total sales of the best sellers, best first
+    public List<long[]> top(int window, int limit) {
+        return top(window, limit, LocalDate.now());
+    }
+    
+    synchronized void record(long productId, LocalDate date, int sales, LocalDate now) {
+        advance(now);
+        if (date.isAfter(today)) {
+            date = today;
+        }
+        long age = today.toEpochDay() - date.toEpochDay();
+        if (age >= HISTORY_DAYS) {
+            return;
+        }
+        days.computeIfAbsent(date, day -> new HashMap<>()).merge(productId, sales, Integer::sum);
+        for (Window window : windows) {
+            if (age < window.days) {
+                window.add(productId, sales);
+            }
+        }
+    }
+    
+    // Replaces the sales counted for one day with what the table holds for it now
+    synchronized void replaceDay(LocalDate date, Map<Long, Integer> sales, LocalDate now) {
+        advance(now);
+        long age = today.toEpochDay() - date.toEpochDay();
+        if (age < 0 || age >= HISTORY_DAYS) {
+            return;
+        }
+        Map<Long, Integer> previous = days.remove(date);
+        for (Window window : windows) {
+            if (age < window.days) {
+                if (previous != null) {
+                    previous.forEach((productId, count) -> window.add(productId, -count));
+                }
+                sales.forEach(window::add);
+            }
+        }
+        if (!sales.isEmpty()) {
+            days.put(date, new HashMap<>(sales));
+        }
+    }
+    
+    synchronized List<long[]> top(int window, int limit, LocalDate now) {
+        advance(now);
+        List<long[]> top = new ArrayList<>(limit);
+        Iterator<Ranked> ranking = windowOf(window).ranking.iterator();
+        while (top.size() < limit && ranking.hasNext()) {
+            Ranked ranked = ranking.next();
+            top.add(new long[] {ranked.productId, ranked.total});
+        }
+        return top;
+    }
+    
+    // Moves to a new day, taking the days that fell out of each window off its totals
+    private void advance(LocalDate now) {
+        if (today == null) {
+            today = now;
+            return;
+        }
+        if (now.toEpochDay() - today.toEpochDay() >= HISTORY_DAYS) {
+            // Every day has expired
+            days.clear();
+            for (Window window : windows) {
+                window.totals.clear();
+                window.ranking.clear();
+            }
+            today = now;
+            return;
+        }
+        while (today.isBefore(now)) {
+            today = today.plusDays(1);
+            for (Window window : windows) {
+                Map<Long, Integer> expired = days.get(today.minusDays(window.days));
+                if (expired != null) {
+                    expired.forEach((productId, sales) -> window.add(productId, -sales));
+                }
+            }
+            days.remove(today.minusDays(HISTORY_DAYS));
+        }
+    }
+    
+    private Window windowOf(int days) {
+        for (Window window : windows) {
+            if (window.days == days) {
+                return window;
+            }
+        }
+        throw new IllegalArgumentException("Untracked window: " + days);
+    }
+    
+    private static final class Window {
+        private final int days;
+        private final Map<Long, Ranked> totals = new HashMap<>();
+        private final TreeSet<Ranked> ranking = new TreeSet<>(Comparator
+            .comparingLong((Ranked ranked) -> -ranked.total)
+            .thenComparingLong(ranked -> ranked.productId));
+        
+        private Window(int days) {
+            this.days = days;
+        }
+        
+        private void add(long productId, long sales) {
+            Ranked current = totals.remove(productId);
+            long total = sales;
+            if (current != null) {
+                ranking.remove(current);
+                total += current.total;
+            }
+            if (total > 0) {
+                Ranked updated = new Ranked(productId, total);
+                totals.put(productId, updated);
+                ranking.add(updated);
+            }
+        }
+    }
+    
+    @FunctionalInterface
+    private interface SalesRow {
+        void accept(long productId, LocalDate date, int sales);
+    }
+    
+    private static final class Ranked {
+        private final long productId;
+        private final long total;
+        
+        private Ranked(long productId, long total) {
+            this.productId = productId;
+            this.total = total;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,2 @@
+-- Lets each instance poll the products other instances changed
+CREATE INDEX idx_products_updated_at ON products(updated_at);
\ No newline at end of file
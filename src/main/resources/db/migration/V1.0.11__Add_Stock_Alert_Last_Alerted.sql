@@ -0,0 +1,8 @@
+-- Set when an alert goes out in a digest and cleared once stock recovers, so a
+-- crossing is mailed once whichever instance sends the digest
+ALTER TABLE stock_alerts ADD COLUMN last_alerted_at TIMESTAMP;
+
+-- Alerts already under their threshold were mailed before and stay quiet
+UPDATE stock_alerts a SET last_alerted_at = CURRENT_TIMESTAMP
+FROM products p
+WHERE p.id = a.product_id AND a.active AND p.stock_quantity <= a.threshold;
\ No newline at end of file
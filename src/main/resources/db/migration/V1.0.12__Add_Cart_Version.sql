@@ -0,0 +1,10 @@
+-- One cart per user: keep the newest, which is the one carts were read from
+DELETE FROM cart_items WHERE cart_id IN (
+    SELECT id FROM carts c WHERE id < (SELECT MAX(id) FROM carts WHERE user_id = c.user_id)
+);
+DELETE FROM carts c WHERE id < (SELECT MAX(id) FROM carts WHERE user_id = c.user_id);
+
+ALTER TABLE carts ADD CONSTRAINT uk_carts_user UNIQUE (user_id);
+
+-- Bumped by every write, so a write from an outdated copy of the cart matches nothing
+ALTER TABLE carts ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
\ No newline at end of file
@@ -0,0 +1,14 @@
+-- Analytics are aggregated from committed inventory_transactions rather than a
+-- per-instance write-ahead log
+DROP TABLE IF EXISTS inventory_analytics_checkpoints;
+
+-- Last transaction counted into inventory_analytics; one row, claimed by one instance at a time
+CREATE TABLE inventory_analytics_watermark (
+    id INTEGER PRIMARY KEY,
+    last_transaction_id BIGINT NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Earlier transactions were counted by the log this replaces
+INSERT INTO inventory_analytics_watermark (id, last_transaction_id)
+SELECT 1, COALESCE(MAX(id), 0) FROM inventory_transactions;
\ No newline at end of file
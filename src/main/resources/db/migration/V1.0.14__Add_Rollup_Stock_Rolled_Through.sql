@@ -0,0 +1,12 @@
+-- Last day rolled up with each product's stock, so the days after it can be
+-- marked out of stock while the stock stays at or below zero
+ALTER TABLE inventory_rollup_stock ADD COLUMN rolled_through DATE;
+
+UPDATE inventory_rollup_stock SET rolled_through = (
+    SELECT MAX(date) FROM inventory_analytics
+    WHERE inventory_analytics.product_id = inventory_rollup_stock.product_id
+    AND inventory_analytics.starting_stock IS NOT NULL
+);
+
+-- Found on every caught-up rollup run
+CREATE INDEX idx_inventory_rollup_stock_out_of_stock ON inventory_rollup_stock(rolled_through) WHERE stock <= 0;
\ No newline at end of file
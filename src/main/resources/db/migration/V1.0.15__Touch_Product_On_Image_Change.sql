@@ -0,0 +1,21 @@
+-- An image added, changed or removed bumps its product's version, and through
+-- update_product_updated_at its updated_at, so every instance's change feed
+-- reloads the product; bulk statements and edits made in SQL are covered too.
+-- An entity delete of a product has to load it after removing its images.
+CREATE OR REPLACE FUNCTION touch_product_of_image()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP <> 'INSERT' THEN
+        UPDATE products SET version = COALESCE(version, 0) + 1 WHERE id = OLD.product_id;
+    END IF;
+    IF TG_OP = 'INSERT' OR (TG_OP = 'UPDATE' AND NEW.product_id IS DISTINCT FROM OLD.product_id) THEN
+        UPDATE products SET version = COALESCE(version, 0) + 1 WHERE id = NEW.product_id;
+    END IF;
+    RETURN NULL;
+END;
+$$ language 'plpgsql';
+
+CREATE TRIGGER touch_product_of_image
+    AFTER INSERT OR UPDATE OR DELETE ON product_images
+    FOR EACH ROW
+    EXECUTE FUNCTION touch_product_of_image();
\ No newline at end of file
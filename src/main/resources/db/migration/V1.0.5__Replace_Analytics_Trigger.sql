@@ -0,0 +1,13 @@
+-- Analytics are aggregated by the application and upserted in batches
+DROP TRIGGER IF EXISTS inventory_transaction_analytics ON inventory_transactions;
+DROP FUNCTION IF EXISTS update_inventory_analytics();
+
+-- Conflict target for the batched upserts
+CREATE UNIQUE INDEX idx_inventory_analytics_product_date ON inventory_analytics(product_id, date);
+
+-- Last write-ahead log segment each log has written to inventory_analytics
+CREATE TABLE inventory_analytics_checkpoints (
+    log_id VARCHAR(64) PRIMARY KEY,
+    segment BIGINT NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
\ No newline at end of file
@@ -0,0 +1,16 @@
+-- Units sold per day, the numerator of the turnover rate
+ALTER TABLE inventory_analytics ADD COLUMN units_sold INTEGER;
+
+-- Last inventory transaction rolled up, per product partition
+CREATE TABLE inventory_rollup_watermarks (
+    partition_id INTEGER PRIMARY KEY,
+    last_transaction_id BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Stock of each product as of its partition's watermark
+CREATE TABLE inventory_rollup_stock (
+    product_id BIGINT PRIMARY KEY,
+    stock INTEGER NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
\ No newline at end of file
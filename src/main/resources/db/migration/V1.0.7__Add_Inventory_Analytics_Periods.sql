@@ -0,0 +1,33 @@
+-- Weekly and monthly sums of inventory_analytics
+CREATE TABLE inventory_analytics_periods (
+    id BIGSERIAL PRIMARY KEY,
+    granularity VARCHAR(10) NOT NULL,
+    product_id BIGINT REFERENCES products(id),
+    period_start DATE NOT NULL,
+    period_end DATE NOT NULL,
+    starting_stock INTEGER,
+    ending_stock INTEGER,
+    sales_count INTEGER,
+    units_sold INTEGER,
+    restock_count INTEGER,
+    returns_count INTEGER,
+    days_out_of_stock INTEGER,
+    low_stock_incidents INTEGER,
+    turnover_days INTEGER,
+    turnover_sum DOUBLE PRECISION,
+    min_turnover DOUBLE PRECISION,
+    max_turnover DOUBLE PRECISION,
+    CONSTRAINT uk_inventory_analytics_periods UNIQUE (granularity, product_id, period_start)
+);
+
+-- Daily rows written since the periods were last summed
+CREATE TABLE inventory_analytics_changes (
+    product_id BIGINT NOT NULL,
+    date DATE NOT NULL,
+    changed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (product_id, date)
+);
+
+-- The first refresh sums every existing day
+INSERT INTO inventory_analytics_changes (product_id, date)
+SELECT DISTINCT product_id, date FROM inventory_analytics WHERE product_id IS NOT NULL;
\ No newline at end of file
@@ -0,0 +1,12 @@
+-- One row per checkout Idempotency-Key, written with the order it created
+CREATE TABLE checkout_requests (
+    id BIGSERIAL PRIMARY KEY,
+    user_id VARCHAR(255) NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    order_id BIGINT REFERENCES orders(id),
+    status VARCHAR(20) NOT NULL,
+    payment_intent_id VARCHAR(255),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_checkout_requests_key UNIQUE (user_id, idempotency_key)
+);
\ No newline at end of file
@@ -0,0 +1,9 @@
+-- Lets each instance re-read only the daily rows written since it last looked
+ALTER TABLE inventory_analytics ADD COLUMN updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+
+CREATE INDEX idx_inventory_analytics_updated_at ON inventory_analytics(updated_at);
+
+CREATE TRIGGER update_inventory_analytics_updated_at
+    BEFORE UPDATE ON inventory_analytics
+    FOR EACH ROW
+    EXECUTE FUNCTION update_updated_at_column();
\ No newline at end of file
@@ -0,0 +1,110 @@
+package com.ecommerce.domain.model;
+
+import net.jqwik.api.Arbitraries;
+import net.jqwik.api.Arbitrary;
+import net.jqwik.api.Combinators;
+import net.jqwik.api.Example;
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.Provide;
+import net.jqwik.api.Tuple;
+import net.jqwik.api.Tuple.Tuple2;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    // Anything a DECIMAL(10,2) column holds
+    private static final long MAX_CENTS = 9_999_999_999L;
+
+    @Property
+    void lineTotals_MatchBigDecimal(@ForAll("lines") List<Tuple2<BigDecimal, Integer>> lines) {
+        BigDecimal expected = BigDecimal.ZERO;
+        Money total = Money.zero(Money.DEFAULT_CURRENCY);
+        for (Tuple2<BigDecimal, Integer> line : lines) {
+            BigDecimal subtotal = line.get1().multiply(BigDecimal.valueOf(line.get2()));
+            Money money = Money.of(line.get1()).times(line.get2());
+            assertEquals(0, subtotal.compareTo(money.toBigDecimal()));
+            expected = expected.add(subtotal);
+            total = total.plus(money);
+        }
+
+        assertEquals(0, expected.compareTo(total.toBigDecimal()));
+        assertEquals(2, total.toBigDecimal().scale());
+    }
+
+    @Property
+    void percent_MatchesBigDecimalRoundedHalfUp(
+            @ForAll("amounts") BigDecimal amount, @ForAll("percentages") BigDecimal percent) {
+        BigDecimal expected = amount.multiply(percent.divide(new BigDecimal("100")))
+            .setScale(2, RoundingMode.HALF_UP);
+
+        assertEquals(expected, Money.of(amount).percent(percent).toBigDecimal());
+    }
+
+    @Property
+    void minus_UndoesPlus(@ForAll("amounts") BigDecimal a, @ForAll("amounts") BigDecimal b) {
+        Money sum = Money.of(a).plus(Money.of(b));
+
+        assertEquals(Money.of(a), sum.minus(Money.of(b)));
+        assertEquals(0, a.add(b).compareTo(sum.toBigDecimal()));
+    }
+
+    @Property
+    void compareTo_MatchesBigDecimal(@ForAll("amounts") BigDecimal a, @ForAll("amounts") BigDecimal b) {
+        assertEquals(Integer.signum(a.compareTo(b)), Integer.signum(Money.of(a).compareTo(Money.of(b))));
+    }
+
+    @Example
+    void percent_HalfCentRoundsAwayFromZero() {
+        assertEquals(new BigDecimal("0.01"), Money.of(new BigDecimal("0.10")).percent(new BigDecimal("5")).toBigDecimal());
+        assertEquals(new BigDecimal("-0.01"), Money.of(new BigDecimal("-0.10")).percent(new BigDecimal("5")).toBigDecimal());
+        assertEquals(new BigDecimal("0.00"), Money.of(new BigDecimal("0.10")).percent(new BigDecimal("4.99")).toBigDecimal());
+    }
+
+    @Example
+    void of_FractionOfMinorUnit_Rejected() {
+        assertThrows(IllegalArgumentException.class, () -> Money.of(new BigDecimal("1.005")));
+        assertEquals(Money.ofMinor(100, Money.DEFAULT_CURRENCY), Money.of(new BigDecimal("1.0000")));
+    }
+
+    @Example
+    void plus_DifferentCurrencies_Rejected() {
+        Money dollars = Money.of(BigDecimal.ONE);
+        Money euros = Money.of(BigDecimal.ONE, Currency.getInstance("EUR"));
+
+        assertThrows(IllegalArgumentException.class, () -> dollars.plus(euros));
+    }
+
+    @Example
+    void times_Overflow_Throws() {
+        Money large = Money.ofMinor(Long.MAX_VALUE / 2, Money.DEFAULT_CURRENCY);
+
+        assertThrows(ArithmeticException.class, () -> large.times(3));
+    }
+
+    @Provide
+    Arbitrary<BigDecimal> amounts() {
+        return Arbitraries.longs().between(-MAX_CENTS, MAX_CENTS).map(cents -> BigDecimal.valueOf(cents, 2));
+    }
+
+    // Up to 100%, with as many decimals as the tests care to try
+    @Provide
+    Arbitrary<BigDecimal> percentages() {
+        return Combinators.combine(Arbitraries.integers().between(0, 4), Arbitraries.longs().between(0, 1_000_000))
+            .as((scale, unscaled) -> BigDecimal.valueOf(unscaled % (100 * (long) Math.pow(10, scale) + 1), scale));
+    }
+
+    @Provide
+    Arbitrary<List<Tuple2<BigDecimal, Integer>>> lines() {
+        Arbitrary<BigDecimal> prices = Arbitraries.longs().between(0, 99_999_999L).map(cents -> BigDecimal.valueOf(cents, 2));
+        return Combinators.combine(prices, Arbitraries.integers().between(1, 1_000))
+            .as(Tuple::of)
+            .list().ofMaxSize(50);
+    }
+}
\ No newline at end of file
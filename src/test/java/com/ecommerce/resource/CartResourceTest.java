@@ -1,5 +1,6 @@
 package com.ecommerce.resource;
 
+import com.ecommerce.domain.dto.CartOperationDTO;
 import com.ecommerce.domain.model.Cart;
 import com.ecommerce.service.CartService;
 import io.smallrye.mutiny.Uni;
@@ -12,6 +13,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -61,4 +63,17 @@ class CartResourceTest {
         assertEquals(testCart, response.getEntity());
         verify(cartService).addToCart(userId, 1L, 2);
     }
+
+    @Test
+    void updateCart_Operations_ReturnsCart() {
+        List<CartOperationDTO> operations = List.of(new CartOperationDTO());
+        when(cartService.updateCart(userId, operations)).thenReturn(Uni.createFrom().item(testCart));
+
+        Response response = cartResource.updateCart(userId, operations)
+            .await().indefinitely();
+
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertEquals(testCart, response.getEntity());
+        verify(cartService).updateCart(userId, operations);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.ecommerce.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalyticsRangePlanTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 6, 1);
+
+    @Test
+    void of_OneYear_UsesMonthsAndWeeksBetweenDailyEdges() {
+        // Act
+        AnalyticsRangePlan plan = AnalyticsRangePlan.of(LocalDate.of(2024, 1, 15), LocalDate.of(2025, 1, 14), TODAY);
+
+        // Assert
+        assertEquals(11, plan.getMonths().size());
+        assertEquals(LocalDate.of(2024, 2, 1), plan.getMonths().get(0));
+        assertEquals(LocalDate.of(2024, 12, 1), plan.getMonths().get(10));
+        assertEquals(List.of(LocalDate.of(2024, 1, 15), LocalDate.of(2024, 1, 22), LocalDate.of(2025, 1, 6)),
+            plan.getWeeks());
+        assertEquals(10, plan.getDays().size());
+        assertEquals(LocalDate.of(2024, 1, 29), plan.getDays().get(0));
+        assertEquals(LocalDate.of(2025, 1, 14), plan.getDays().get(9));
+    }
+
+    @Test
+    void of_RangeReachingToday_ReadsUnfinishedPeriodsByDay() {
+        // Act
+        AnalyticsRangePlan plan = AnalyticsRangePlan.of(LocalDate.of(2025, 5, 1), LocalDate.of(2025, 6, 30), TODAY);
+
+        // Assert
+        assertEquals(List.of(LocalDate.of(2025, 5, 1)), plan.getMonths());
+        assertTrue(plan.getWeeks().isEmpty());
+        assertEquals(30, plan.getDays().size());
+        assertEquals(TODAY, plan.getDays().get(0));
+    }
+}
\ No newline at end of file
@@ -1,130 +1,208 @@
 package com.ecommerce.service;
 
+import com.ecommerce.domain.dto.CartOperationDTO;
 import com.ecommerce.domain.model.Cart;
 import com.ecommerce.domain.model.CartItem;
-import com.ecommerce.domain.model.Product;
-import com.ecommerce.domain.repository.CartRepository;
-import com.ecommerce.domain.repository.ProductRepository;
+import com.ecommerce.exception.BadRequestException;
 import com.ecommerce.exception.ResourceNotFoundException;
-import io.smallrye.mutiny.Uni;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class CartServiceTest {
 
     @Mock
-    private CartRepository cartRepository;
+    private ProductPriceCache priceCache;
 
-    @Mock
-    private ProductRepository productRepository;
+    @Spy
+    private CartStore cartStore = new CartStore();
 
     @InjectMocks
     private CartService cartService;
 
-    private Cart testCart;
-    private Product testProduct;
+    private PriceTable prices;
     private String userId = "test-user";
 
     @BeforeEach
     void setUp() {
-        testCart = new Cart();
-        testCart.setId(1L);
-        testCart.setUserId(userId);
-        testCart.setTotalAmount(BigDecimal.ZERO);
-
-        testProduct = new Product();
-        testProduct.setId(1L);
-        testProduct.setName("Test Product");
-        testProduct.setPrice(new BigDecimal("99.99"));
-        testProduct.setStockQuantity(10);
-    }
-
-    @Test
-    void getCart_ExistingCart_ReturnsCart() {
-        when(cartRepository.findByUserId(userId)).thenReturn(Uni.createFrom().item(testCart));
-
-        Cart result = cartService.getCart(userId)
-            .await().indefinitely();
-
-        assertNotNull(result);
-        assertEquals(userId, result.getUserId());
-        verify(cartRepository).findByUserId(userId);
+        prices = new PriceTable(2);
+        prices.put(1L, "Test Product", 9_999, true, 1);
+        prices.put(2L, "Other Product", 500, true, 1);
+        lenient().when(priceCache.lookup(anyCollection())).thenReturn(prices);
+
+        cartStore.flushDelay = Duration.ZERO;
+        lenient().doAnswer(invocation -> new CartStore.CartState(invocation.getArgument(0)))
+            .when(cartStore).load(anyString());
+        lenient().doReturn(null).when(cartStore).storedVersion(anyString());
     }
 
     @Test
-    void getCart_NonExistingCart_CreatesNewCart() {
-        when(cartRepository.findByUserId(userId)).thenReturn(Uni.createFrom().nullItem());
-        when(cartRepository.persist(any(Cart.class))).thenReturn(Uni.createFrom().item(testCart));
-
+    void getCart_NonExistingCart_ReturnsEmptyCartWithoutWriting() {
         Cart result = cartService.getCart(userId)
             .await().indefinitely();
 
         assertNotNull(result);
         assertEquals(userId, result.getUserId());
-        verify(cartRepository).findByUserId(userId);
-        verify(cartRepository).persist(any(Cart.class));
+        assertNull(result.getId());
+        assertTrue(result.getItems().isEmpty());
+        cartStore.flushDue();
+        verify(cartStore, never()).store(anyList());
     }
 
     @Test
     void addToCart_ValidProduct_AddsToCart() {
-        when(cartRepository.findByUserId(userId)).thenReturn(Uni.createFrom().item(testCart));
-        when(productRepository.findById(1L)).thenReturn(Uni.createFrom().item(testProduct));
-        when(cartRepository.persist(any(Cart.class))).thenReturn(Uni.createFrom().item(testCart));
 
         Cart result = cartService.addToCart(userId, 1L, 2)
             .await().indefinitely();
 
         assertNotNull(result);
-        verify(cartRepository).findByUserId(userId);
-        verify(productRepository).findById(1L);
-        verify(cartRepository).persist(any(Cart.class));
+        assertEquals(1, result.getItems().size());
+        assertEquals(new BigDecimal("199.98"), result.getTotalAmount());
+        verify(priceCache).lookup(Set.of(1L));
     }
 
     @Test
     void addToCart_NonExistingProduct_ThrowsException() {
-        when(cartRepository.findByUserId(userId)).thenReturn(Uni.createFrom().item(testCart));
-        when(productRepository.findById(99L)).thenReturn(Uni.createFrom().nullItem());
 
         assertThrows(ResourceNotFoundException.class, () -> {
             cartService.addToCart(userId, 99L, 1)
                 .await().indefinitely();
         });
 
-        verify(cartRepository).findByUserId(userId);
-        verify(productRepository).findById(99L);
-        verify(cartRepository, never()).persist(any(Cart.class));
+        verify(priceCache).lookup(Set.of(99L));
+        verify(cartStore, never()).update(anyString(), any());
     }
 
     @Test
     void addToCart_ExistingCartItem_UpdatesQuantity() {
-        CartItem existingItem = new CartItem();
-        existingItem.setProduct(testProduct);
-        existingItem.setQuantity(1);
-        existingItem.setPrice(testProduct.getPrice());
-        existingItem.setSubtotal(testProduct.getPrice());
-        testCart.getItems().add(existingItem);
-
-        when(cartRepository.findByUserId(userId)).thenReturn(Uni.createFrom().item(testCart));
-        when(productRepository.findById(1L)).thenReturn(Uni.createFrom().item(testProduct));
-        when(cartRepository.persist(any(Cart.class))).thenReturn(Uni.createFrom().item(testCart));
+        cartService.addToCart(userId, 1L, 1).await().indefinitely();
 
         Cart result = cartService.addToCart(userId, 1L, 1)
             .await().indefinitely();
 
         assertNotNull(result);
         assertEquals(1, result.getItems().size());
-        assertEquals(2, result.getItems().iterator().next().getQuantity());
-        verify(cartRepository).persist(any(Cart.class));
+        CartItem item = result.getItems().iterator().next();
+        assertEquals(2, item.getQuantity());
+        assertEquals(new BigDecimal("199.98"), item.getSubtotal());
+    }
+
+    @Test
+    void addToCart_SeveralChanges_WrittenOnceTogether() {
+        doReturn(List.of()).when(cartStore).store(anyList());
+        cartService.addToCart(userId, 1L, 1).await().indefinitely();
+        cartService.addToCart(userId, 1L, 2).await().indefinitely();
+        cartService.addToCart("other-user", 1L, 1).await().indefinitely();
+
+        cartStore.flushDue();
+        cartStore.flushDue();
+
+        verify(cartStore, times(1)).store(argThat(due -> due.size() == 2));
+        assertEquals(3, cartService.getCart(userId).await().indefinitely()
+            .getItems().get(0).getQuantity());
+    }
+
+    @Test
+    void updateCart_SeveralOperations_OneLookupAndOneWrite() {
+        doReturn(List.of()).when(cartStore).store(anyList());
+
+        Cart result = cartService.updateCart(userId, List.of(
+                operation(CartOperationDTO.Type.ADD, 1L, 1),
+                operation(CartOperationDTO.Type.ADD, 2L, 4),
+                operation(CartOperationDTO.Type.UPDATE_QUANTITY, 1L, 3),
+                operation(CartOperationDTO.Type.REMOVE, 2L, null)))
+            .await().indefinitely();
+        cartStore.flushDue();
+
+        assertEquals(1, result.getItems().size());
+        assertEquals(3, result.getItems().get(0).getQuantity());
+        assertEquals(new BigDecimal("299.97"), result.getTotalAmount());
+        verify(priceCache, times(1)).lookup(Set.of(1L, 2L));
+        verify(cartStore, times(1)).update(eq(userId), any());
+        verify(cartStore, times(1)).store(argThat(due -> due.size() == 1));
+    }
+
+    @Test
+    void flush_CartWrittenElsewhere_ReadsItAgainAndReplaysChanges() {
+        doAnswer(invocation -> invocation.getArgument(0)).doReturn(List.of())
+            .when(cartStore).store(anyList());
+        cartService.addToCart(userId, 1L, 2).await().indefinitely();
+
+        cartStore.flush(userId);
+
+        verify(cartStore, times(2)).store(argThat(due -> due.size() == 1));
+        verify(cartStore, times(2)).load(userId);
+        assertEquals(2, cartService.getCart(userId).await().indefinitely()
+            .getItems().get(0).getQuantity());
+    }
+
+    @Test
+    void updateCart_UnknownProduct_AppliesNothing() {
+        assertThrows(ResourceNotFoundException.class, () -> {
+            cartService.updateCart(userId, List.of(
+                    operation(CartOperationDTO.Type.ADD, 1L, 1),
+                    operation(CartOperationDTO.Type.ADD, 99L, 1)))
+                .await().indefinitely();
+        });
+
+        verify(cartStore, never()).update(anyString(), any());
+    }
+
+    @Test
+    void updateCart_InvalidQuantity_ThrowsException() {
+        assertThrows(BadRequestException.class, () -> {
+            cartService.updateCart(userId, List.of(operation(CartOperationDTO.Type.ADD, 1L, 0)))
+                .await().indefinitely();
+        });
+
+        verify(priceCache, never()).lookup(anyCollection());
+        verify(cartStore, never()).update(anyString(), any());
+    }
+
+    @Test
+    void updateCart_UnavailableProduct_AppliesNothing() {
+        prices.put(3L, "Sold Out", 1_000, false, 1);
+
+        assertThrows(BadRequestException.class, () -> {
+            cartService.updateCart(userId, List.of(operation(CartOperationDTO.Type.ADD, 3L, 1)))
+                .await().indefinitely();
+        });
+
+        verify(cartStore, never()).update(anyString(), any());
+    }
+
+    @Test
+    void updateCart_QuantityZero_RemovesWithoutLookup() {
+        cartService.addToCart(userId, 1L, 2).await().indefinitely();
+
+        Cart result = cartService.updateCart(userId, List.of(operation(CartOperationDTO.Type.UPDATE_QUANTITY, 1L, 0)))
+            .await().indefinitely();
+
+        assertTrue(result.getItems().isEmpty());
+        verify(priceCache, times(1)).lookup(anyCollection());
+    }
+
+    private static CartOperationDTO operation(CartOperationDTO.Type type, Long productId, Integer quantity) {
+        CartOperationDTO operation = new CartOperationDTO();
+        operation.setType(type);
+        operation.setProductId(productId);
+        operation.setQuantity(quantity);
+        return operation;
     }
 }
\ No newline at end of file
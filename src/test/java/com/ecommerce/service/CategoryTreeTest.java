@@ -0,0 +1,60 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.dto.CategoryDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CategoryTreeTest {
+
+    private CategoryTree tree;
+
+    @BeforeEach
+    void setUp() {
+        CategoryDTO home = category(1L, "Home", null);
+        CategoryDTO furniture = category(2L, "Furniture", 1L);
+        CategoryDTO chairs = category(3L, "Chairs", 2L);
+        CategoryDTO kitchen = category(4L, "Kitchen", 1L);
+        CategoryDTO garden = category(5L, "Garden", null);
+        tree = CategoryTree.of(Arrays.asList(chairs, kitchen, garden, furniture, home));
+    }
+
+    @Test
+    void getPath_NestedCategory_ReturnsRootFirst() {
+        assertEquals(Arrays.asList("Home", "Furniture", "Chairs"), names(tree.getPath(3L)));
+        assertEquals(Arrays.asList("Garden"), names(tree.getPath(5L)));
+    }
+
+    @Test
+    void getSubtreeIds_IncludesAllDescendants() {
+        assertEquals(Set.of(1L, 2L, 3L, 4L), tree.getSubtreeIds(1L));
+        assertEquals(Set.of(3L), tree.getSubtreeIds(3L));
+        assertTrue(tree.getSubtreeIds(99L).isEmpty());
+    }
+
+    @Test
+    void getRootsAndChildren_ReturnsDirectMembers() {
+        assertEquals(Arrays.asList("Home", "Garden"), names(tree.getRoots()));
+        assertEquals(Arrays.asList("Furniture", "Kitchen"), names(tree.getChildren(1L)));
+        assertTrue(tree.getChildren(3L).isEmpty());
+    }
+
+    private CategoryDTO category(Long id, String name, Long parentId) {
+        CategoryDTO category = new CategoryDTO();
+        category.setId(id);
+        category.setName(name);
+        category.setParentId(parentId);
+        return category;
+    }
+
+    private List<String> names(List<CategoryDTO> categories) {
+        List<String> names = new ArrayList<>();
+        categories.forEach(category -> names.add(category.getName()));
+        return names;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,193 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.dto.PaymentResponseDTO;
+import com.ecommerce.domain.model.CheckoutRequest;
+import com.ecommerce.domain.model.CheckoutStatus;
+import com.ecommerce.domain.model.Order;
+import com.ecommerce.domain.model.ShippingAddress;
+import com.ecommerce.domain.repository.CheckoutRequestRepository;
+import com.ecommerce.exception.BadRequestException;
+import com.ecommerce.exception.ConflictException;
+import com.ecommerce.exception.PaymentException;
+import io.smallrye.mutiny.Uni;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CheckoutServiceTest {
+
+    @Mock
+    private OrderService orderService;
+
+    @Mock
+    private PaymentService paymentService;
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private CheckoutRequestRepository checkoutRequestRepository;
+
+    @InjectMocks
+    private CheckoutService checkoutService;
+
+    private final String userId = "test-user";
+    private final ShippingAddress shippingAddress = new ShippingAddress();
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        order = new Order();
+        order.setId(1L);
+        order.setUserId(userId);
+    }
+
+    private void givenNewKey() {
+        when(checkoutRequestRepository.findByKey(userId, "key-1")).thenReturn(Uni.createFrom().nullItem());
+        when(checkoutRequestRepository.persist(any(CheckoutRequest.class)))
+            .thenAnswer(invocation -> Uni.createFrom().item(invocation.getArgument(0)));
+        when(orderService.createOrder(userId, shippingAddress)).thenReturn(Uni.createFrom().item(order));
+    }
+
+    private void givenPaymentSucceeds() {
+        when(paymentService.createPaymentIntent(order))
+            .thenReturn(Uni.createFrom().item(new PaymentResponseDTO("secret", "pi_1", "requires_payment_method")));
+        when(checkoutRequestRepository.markPaymentCreated(userId, "key-1", "pi_1"))
+            .thenReturn(Uni.createFrom().item(1));
+        when(orderService.recordPaymentIntent(1L, "pi_1")).thenAnswer(invocation -> {
+            order.setPaymentIntentId("pi_1");
+            return Uni.createFrom().item(order);
+        });
+    }
+
+    @Test
+    void initiateCheckout_NewKey_PlacesOrderThenCreatesAndRecordsPayment() {
+        givenNewKey();
+        givenPaymentSucceeds();
+
+        Order result = checkoutService.initiateCheckout(userId, "key-1", shippingAddress)
+            .await().indefinitely();
+
+        assertEquals("pi_1", result.getPaymentIntentId());
+        verify(checkoutRequestRepository).persist(argThat((CheckoutRequest request) ->
+            "key-1".equals(request.getIdempotencyKey()) && request.getStatus() == CheckoutStatus.ORDER_CREATED));
+        verify(orderService).createOrder(userId, shippingAddress);
+        verify(paymentService).createPaymentIntent(order);
+        verify(checkoutRequestRepository).markPaymentCreated(userId, "key-1", "pi_1");
+    }
+
+    @Test
+    void initiateCheckout_SameKeyTwice_PlacesOneOrder() {
+        givenNewKey();
+        givenPaymentSucceeds();
+
+        Order first = checkoutService.initiateCheckout(userId, "key-1", shippingAddress).await().indefinitely();
+        Order second = checkoutService.initiateCheckout(userId, "key-1", shippingAddress).await().indefinitely();
+
+        assertSame(first, second);
+        verify(orderService, times(1)).createOrder(any(), any());
+        verify(paymentService, times(1)).createPaymentIntent(any());
+    }
+
+    @Test
+    void initiateCheckout_OrderPlacedByEarlierAttempt_ResumesAtPayment() {
+        CheckoutRequest request = new CheckoutRequest();
+        request.setOrderId(1L);
+        request.setStatus(CheckoutStatus.ORDER_CREATED);
+        when(checkoutRequestRepository.findByKey(userId, "key-1")).thenReturn(Uni.createFrom().item(request));
+        when(orderService.getOrder(1L)).thenReturn(Uni.createFrom().item(order));
+        givenPaymentSucceeds();
+
+        Order result = checkoutService.initiateCheckout(userId, "key-1", shippingAddress)
+            .await().indefinitely();
+
+        assertEquals("pi_1", result.getPaymentIntentId());
+        verify(orderService, never()).createOrder(any(), any());
+    }
+
+    @Test
+    void initiateCheckout_PaymentAlreadyRecorded_SkipsPayment() {
+        CheckoutRequest request = new CheckoutRequest();
+        request.setOrderId(1L);
+        request.setStatus(CheckoutStatus.PAYMENT_CREATED);
+        order.setPaymentIntentId("pi_1");
+        when(checkoutRequestRepository.findByKey(userId, "key-1")).thenReturn(Uni.createFrom().item(request));
+        when(orderService.getOrder(1L)).thenReturn(Uni.createFrom().item(order));
+
+        Order result = checkoutService.initiateCheckout(userId, "key-1", shippingAddress)
+            .await().indefinitely();
+
+        assertSame(order, result);
+        verify(paymentService, never()).createPaymentIntent(any());
+        verify(checkoutRequestRepository, never()).markPaymentCreated(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void initiateCheckout_PaymentFails_RetryResumesAtPayment() {
+        givenNewKey();
+        CheckoutRequest placed = new CheckoutRequest();
+        placed.setOrderId(1L);
+        placed.setStatus(CheckoutStatus.ORDER_CREATED);
+        when(checkoutRequestRepository.findByKey(userId, "key-1"))
+            .thenReturn(Uni.createFrom().nullItem())
+            .thenReturn(Uni.createFrom().item(placed));
+        when(orderService.getOrder(1L)).thenReturn(Uni.createFrom().item(order));
+        when(paymentService.createPaymentIntent(order))
+            .thenReturn(Uni.createFrom().failure(new PaymentException("Payment provider unavailable")))
+            .thenReturn(Uni.createFrom().item(new PaymentResponseDTO("secret", "pi_1", "requires_payment_method")));
+        when(checkoutRequestRepository.markPaymentCreated(userId, "key-1", "pi_1"))
+            .thenReturn(Uni.createFrom().item(1));
+        when(orderService.recordPaymentIntent(1L, "pi_1")).thenReturn(Uni.createFrom().item(order));
+
+        assertThrows(PaymentException.class, () ->
+            checkoutService.initiateCheckout(userId, "key-1", shippingAddress).await().indefinitely());
+        checkoutService.initiateCheckout(userId, "key-1", shippingAddress).await().indefinitely();
+
+        verify(orderService, times(1)).createOrder(any(), any());
+        verify(paymentService, times(2)).createPaymentIntent(order);
+    }
+
+    @Test
+    void initiateCheckout_KeyClaimedConcurrently_ThrowsConflict() {
+        givenKeyInsertFails("uk_checkout_requests_key");
+
+        assertThrows(ConflictException.class, () ->
+            checkoutService.initiateCheckout(userId, "key-1", shippingAddress).await().indefinitely());
+        verify(orderService, never()).createOrder(any(), any());
+    }
+
+    @Test
+    void initiateCheckout_OtherConstraintViolated_NotAConflict() {
+        givenKeyInsertFails("fk_checkout_requests_user");
+
+        assertThrows(ConstraintViolationException.class, () ->
+            checkoutService.initiateCheckout(userId, "key-1", shippingAddress).await().indefinitely());
+    }
+
+    private void givenKeyInsertFails(String constraint) {
+        when(checkoutRequestRepository.findByKey(userId, "key-1")).thenReturn(Uni.createFrom().nullItem());
+        when(checkoutRequestRepository.persist(any(CheckoutRequest.class))).thenReturn(Uni.createFrom().failure(
+            new ConstraintViolationException("could not execute statement", new SQLException(), constraint)));
+    }
+
+    @Test
+    void initiateCheckout_InvalidKey_ThrowsException() {
+        assertThrows(BadRequestException.class, () ->
+            checkoutService.initiateCheckout(userId, " ", shippingAddress).await().indefinitely());
+        assertThrows(BadRequestException.class, () ->
+            checkoutService.initiateCheckout(userId, "k".repeat(256), shippingAddress).await().indefinitely());
+        verifyNoInteractions(checkoutRequestRepository, orderService, paymentService);
+    }
+}
\ No newline at end of file
@@ -6,6 +6,11 @@ import com.ecommerce.domain.model.DiscountType;
 import com.ecommerce.domain.repository.CouponRepository;
 import com.ecommerce.exception.ResourceNotFoundException;
 import io.smallrye.mutiny.Uni;
+import net.jqwik.api.Arbitraries;
+import net.jqwik.api.Arbitrary;
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.Provide;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -14,6 +19,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
@@ -149,4 +155,33 @@ class CouponServiceTest {
         assertEquals(BigDecimal.ZERO, result);
         verify(couponRepository).findByCode("TEST123");
     }
+
+    // The BigDecimal calculation this replaced, rounded as the cents it is stored and shown as
+    @Property
+    void calculateApplicableDiscount_MatchesBigDecimal(
+            @ForAll("cents") BigDecimal cartTotal,
+            @ForAll("cents") BigDecimal discountValue,
+            @ForAll("cents") BigDecimal maximumDiscount,
+            @ForAll boolean percentage,
+            @ForAll boolean capped) {
+        Coupon coupon = new Coupon();
+        coupon.setDiscountType(percentage ? DiscountType.PERCENTAGE : DiscountType.FIXED_AMOUNT);
+        coupon.setDiscountValue(percentage ? discountValue.remainder(new BigDecimal("100.01")) : discountValue);
+        coupon.setMaximumDiscount(capped ? maximumDiscount : null);
+
+        BigDecimal expected = percentage
+            ? cartTotal.multiply(coupon.getDiscountValue().divide(new BigDecimal("100")))
+            : coupon.getDiscountValue();
+        if (capped && expected.compareTo(maximumDiscount) > 0) {
+            expected = maximumDiscount;
+        }
+
+        assertEquals(expected.setScale(2, RoundingMode.HALF_UP),
+            CouponService.calculateApplicableDiscount(coupon, cartTotal, List.of()));
+    }
+
+    @Provide
+    Arbitrary<BigDecimal> cents() {
+        return Arbitraries.longs().between(0, 9_999_999_999L).map(cents -> BigDecimal.valueOf(cents, 2));
+    }
 }
\ No newline at end of file
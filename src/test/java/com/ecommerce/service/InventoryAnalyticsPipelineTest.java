@@ -0,0 +1,50 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.model.TransactionType;
+import com.ecommerce.service.InventoryAnalyticsPipeline.DailyCounts;
+import com.ecommerce.service.InventoryRollupService.DayRollup;
+import com.ecommerce.service.InventoryRollupService.TransactionRow;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventoryAnalyticsPipelineTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2024, 3, 4);
+    private static final LocalDate TUESDAY = MONDAY.plusDays(1);
+
+    @Test
+    void fold_TransactionsOverTwoDays_CountsEachTypePerDay() {
+        // Arrange
+        List<TransactionRow> rows = List.of(
+            new TransactionRow(1, 1L, TransactionType.SALE, 4, MONDAY),
+            new TransactionRow(2, 1L, TransactionType.SALE, 6, MONDAY),
+            new TransactionRow(3, 1L, TransactionType.RESTOCK, 20, MONDAY),
+            new TransactionRow(4, 2L, TransactionType.RETURN, 1, MONDAY),
+            new TransactionRow(5, 1L, TransactionType.DAMAGED, 2, TUESDAY),
+            new TransactionRow(6, 1L, TransactionType.SALE, 3, TUESDAY));
+
+        // Act
+        Map<Long, DailyCounts> days = InventoryAnalyticsPipeline.fold(rows);
+
+        // Assert
+        assertEquals(3, days.size());
+
+        DailyCounts monday = days.get(DayRollup.key(1L, MONDAY));
+        assertEquals(2, monday.sales);
+        assertEquals(1, monday.restocks);
+        assertEquals(0, monday.returns);
+
+        DailyCounts returned = days.get(DayRollup.key(2L, MONDAY));
+        assertEquals(0, returned.sales);
+        assertEquals(1, returned.returns);
+
+        DailyCounts tuesday = days.get(DayRollup.key(1L, TUESDAY));
+        assertEquals(1, tuesday.sales);
+        assertEquals(0, tuesday.restocks);
+    }
+}
\ No newline at end of file
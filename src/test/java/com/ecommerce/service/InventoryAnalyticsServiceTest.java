@@ -0,0 +1,57 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.model.AnalyticsGranularity;
+import com.ecommerce.domain.model.InventoryAnalytics;
+import com.ecommerce.domain.model.InventoryAnalyticsPeriod;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventoryAnalyticsServiceTest {
+
+    @Test
+    void summarizeProductAnalytics_CubePeriods_KeptOutOfDailyTrends() {
+        // Arrange
+        LocalDate january = LocalDate.of(2024, 1, 1);
+        LocalDate week = LocalDate.of(2024, 2, 5);
+        LocalDate day = LocalDate.of(2024, 2, 12);
+        List<InventoryAnalyticsPeriod> periods = List.of(
+            period(AnalyticsGranularity.MONTH, january, 310, 40),
+            period(AnalyticsGranularity.WEEK, week, 70, 30));
+
+        // Act
+        Map<String, Object> summary = InventoryAnalyticsService.summarizeProductAnalytics(
+            List.of(day(day, 10, 20)), periods);
+
+        // Assert
+        assertEquals(390, summary.get("totalSales"));
+        assertEquals(Map.of(day, 10), summary.get("salesTrend"));
+        assertEquals(Map.of(day, 20), summary.get("stockLevels"));
+        assertEquals(Map.of(week, 70), summary.get("weeklySalesTrend"));
+        assertEquals(Map.of(week, 30), summary.get("weeklyStockLevels"));
+        assertEquals(Map.of(january, 310), summary.get("monthlySalesTrend"));
+        assertEquals(Map.of(january, 40), summary.get("monthlyStockLevels"));
+    }
+
+    private InventoryAnalytics day(LocalDate date, int sales, int endingStock) {
+        InventoryAnalytics day = new InventoryAnalytics();
+        day.setDate(date);
+        day.setSalesCount(sales);
+        day.setEndingStock(endingStock);
+        return day;
+    }
+
+    private InventoryAnalyticsPeriod period(AnalyticsGranularity granularity, LocalDate start,
+                                            int sales, int endingStock) {
+        InventoryAnalyticsPeriod period = new InventoryAnalyticsPeriod();
+        period.setGranularity(granularity);
+        period.setPeriodStart(start);
+        period.setSalesCount(sales);
+        period.setEndingStock(endingStock);
+        return period;
+    }
+}
\ No newline at end of file
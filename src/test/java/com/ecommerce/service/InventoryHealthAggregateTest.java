@@ -0,0 +1,50 @@
+package com.ecommerce.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventoryHealthAggregateTest {
+
+    private final InventoryHealthAggregate aggregate = new InventoryHealthAggregate();
+
+    @Test
+    void update_ChangedProducts_ReplaceTheirContribution() {
+        // Arrange
+        aggregate.update(1L, new BigDecimal("19.99"), 3, 10);
+        aggregate.update(2L, new BigDecimal("0.10"), 0, 5);
+        aggregate.update(3L, new BigDecimal("5.00"), 50, 10);
+
+        // Act
+        aggregate.update(1L, new BigDecimal("19.99"), 20, 10);
+        aggregate.update(3L, new BigDecimal("5.05"), 50, 10);
+        aggregate.remove(2L);
+
+        // Assert
+        InventoryHealthAggregate.Health health = aggregate.getHealth();
+        assertEquals(2, health.getTotalProducts());
+        assertEquals(0, health.getLowStockProducts());
+        assertEquals(0, health.getOutOfStockProducts());
+        assertEquals(new BigDecimal("652.30"), health.getTotalValue());
+    }
+
+    @Test
+    void update_StockDroppingToZero_CountsLowAndOutOfStock() {
+        // Arrange
+        aggregate.update(1L, new BigDecimal("0.10"), 10, 10);
+        aggregate.update(2L, new BigDecimal("0.20"), 11, 10);
+
+        // Act
+        aggregate.update(2L, new BigDecimal("0.20"), 0, 10);
+
+        // Assert
+        InventoryHealthAggregate.Health health = aggregate.getHealth();
+        assertEquals(2, health.getTotalProducts());
+        assertEquals(2, health.getLowStockProducts());
+        assertEquals(1, health.getOutOfStockProducts());
+        assertEquals(0, new BigDecimal("1.00").compareTo(health.getTotalValue()));
+        assertEquals(new InventoryHealthAggregate.Health(2, 2, 1, new BigDecimal("1.0")), health);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,101 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.model.TransactionType;
+import com.ecommerce.service.InventoryRollupService.DayRollup;
+import com.ecommerce.service.InventoryRollupService.RolledStock;
+import com.ecommerce.service.InventoryRollupService.TransactionRow;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventoryRollupServiceTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2024, 3, 4);
+    private static final LocalDate TUESDAY = MONDAY.plusDays(1);
+
+    @Test
+    void fold_TransactionsOverTwoDays_CarriesStockAcrossDays() {
+        // Arrange
+        Map<Long, RolledStock> stock = new HashMap<>(Map.of(1L, new RolledStock(10, MONDAY.minusDays(1))));
+        List<TransactionRow> rows = List.of(
+            new TransactionRow(1, 1L, TransactionType.SALE, 4, MONDAY),
+            new TransactionRow(2, 1L, TransactionType.SALE, 6, MONDAY),
+            new TransactionRow(3, 1L, TransactionType.RESTOCK, 20, MONDAY),
+            new TransactionRow(4, 1L, TransactionType.DAMAGED, 2, TUESDAY),
+            new TransactionRow(5, 1L, TransactionType.ADJUSTMENT, 15, TUESDAY));
+
+        // Act
+        Map<Long, DayRollup> days = InventoryRollupService.fold(rows, stock, Map.of(1L, 5));
+
+        // Assert
+        DayRollup monday = days.get(DayRollup.key(1L, MONDAY));
+        assertEquals(10, monday.startingStock);
+        assertEquals(20, monday.closingStock);
+        assertEquals(10, monday.unitsSold);
+        assertTrue(monday.outOfStock);
+        assertEquals(1, monday.lowStockIncidents);
+        assertEquals(10 / 15.0, monday.turnoverRate(), 1e-9);
+
+        DayRollup tuesday = days.get(DayRollup.key(1L, TUESDAY));
+        assertEquals(20, tuesday.startingStock);
+        assertEquals(15, tuesday.closingStock);
+        assertEquals(0, tuesday.unitsSold);
+        assertFalse(tuesday.outOfStock);
+        assertEquals(0, tuesday.lowStockIncidents);
+        assertEquals(0.0, tuesday.turnoverRate());
+        assertEquals(15, stock.get(1L).units);
+        assertEquals(TUESDAY, stock.get(1L).through);
+    }
+
+    @Test
+    void fold_DaysWithoutTransactions_MarkedOutOfStockWhileAtZero() {
+        // Arrange
+        LocalDate thursday = MONDAY.plusDays(3);
+        LocalDate saturday = MONDAY.plusDays(5);
+        Map<Long, RolledStock> stock = new HashMap<>(Map.of(
+            1L, new RolledStock(4, MONDAY.minusDays(1)),
+            2L, new RolledStock(0, MONDAY)));
+        List<TransactionRow> rows = List.of(
+            new TransactionRow(1, 1L, TransactionType.SALE, 4, MONDAY),
+            new TransactionRow(2, 1L, TransactionType.RESTOCK, 10, thursday));
+
+        // Act
+        Map<Long, DayRollup> days = InventoryRollupService.fold(rows, stock, Map.of());
+        InventoryRollupService.carryForward(days, stock, saturday);
+
+        // Assert
+        for (LocalDate gap : List.of(TUESDAY, MONDAY.plusDays(2))) {
+            DayRollup day = days.get(DayRollup.key(1L, gap));
+            assertTrue(day.outOfStock);
+            assertEquals(0, day.startingStock);
+            assertEquals(0, day.closingStock);
+            assertEquals(0, day.unitsSold);
+        }
+        assertTrue(days.get(DayRollup.key(1L, thursday)).outOfStock);
+        // Back in stock from Thursday, so nothing is carried past it
+        assertNull(days.get(DayRollup.key(1L, MONDAY.plusDays(4))));
+        assertEquals(thursday, stock.get(1L).through);
+
+        // No transactions at all, but out of stock every day through today
+        for (LocalDate date = TUESDAY; !date.isAfter(saturday); date = date.plusDays(1)) {
+            assertTrue(days.get(DayRollup.key(2L, date)).outOfStock);
+        }
+        assertNull(days.get(DayRollup.key(2L, MONDAY)));
+        assertEquals(saturday, stock.get(2L).through);
+    }
+
+    @Test
+    void unwind_ReversesApply_ExceptForAdjustments() {
+        for (TransactionType type : List.of(TransactionType.SALE, TransactionType.DAMAGED,
+                TransactionType.PURCHASE, TransactionType.RESTOCK, TransactionType.RETURN)) {
+            assertEquals(7, InventoryRollupService.unwind(InventoryRollupService.apply(7, type, 3), type, 3));
+        }
+        assertEquals(3, InventoryRollupService.unwind(InventoryRollupService.apply(7, TransactionType.ADJUSTMENT, 3),
+            TransactionType.ADJUSTMENT, 3));
+    }
+}
\ No newline at end of file
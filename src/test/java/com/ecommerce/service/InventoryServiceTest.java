@@ -0,0 +1,124 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.dto.InventoryBatchResultDTO;
+import com.ecommerce.domain.dto.InventoryLineResultDTO;
+import com.ecommerce.domain.dto.InventoryTransactionDTO;
+import com.ecommerce.domain.model.TransactionType;
+import com.ecommerce.domain.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InventoryServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private Validator validator;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    @InjectMocks
+    private InventoryService inventoryService;
+
+    // The product row the batch was applied to
+    private InventoryService.StockLevel level;
+
+    @Test
+    void recordTransactions_Ndjson_ReportsEachRejectedLine() {
+        // Arrange
+        String body = String.join("\n",
+            "{\"productId\": 1, \"quantity\": 8, \"type\": \"SALE\"}",
+            "{not json",
+            "",
+            "{\"productId\": 2, \"quantity\": 5, \"type\": \"RESTOCK\"}");
+        when(validator.validate(any())).thenReturn(Collections.emptySet());
+        givenStock(1L, 5);
+
+        // Act
+        InventoryBatchResultDTO result = inventoryService.recordTransactions(body)
+            .await().atMost(Duration.ofSeconds(5));
+
+        // Assert
+        assertEquals(0, result.getAccepted());
+        assertEquals(3, result.getRejected());
+        List<InventoryLineResultDTO> lines = result.getLines();
+        assertEquals(List.of(1, 2, 4), lines.stream().map(InventoryLineResultDTO::getLine).toList());
+        assertEquals("Insufficient stock", lines.get(0).getError());
+        assertEquals("Malformed JSON", lines.get(1).getError());
+        assertEquals("Product not found", lines.get(2).getError());
+        assertEquals(5, level.stock());
+    }
+
+    @Test
+    void recordTransactions_AcceptedLines_ApplyInSubmissionOrder() {
+        // Arrange
+        when(validator.validate(any())).thenReturn(Collections.emptySet());
+        givenStock(1L, 12);
+
+        // Act
+        InventoryBatchResultDTO result = inventoryService.recordTransactions(List.of(
+                transaction(TransactionType.SALE, 4),
+                transaction(TransactionType.RESTOCK, 3)))
+            .await().atMost(Duration.ofSeconds(5));
+
+        // Assert
+        assertEquals(2, result.getAccepted());
+        assertEquals(11, level.stock());
+    }
+
+    @Test
+    void recordTransactions_RejectedLine_LeavesStockForLaterLines() {
+        // Arrange
+        when(validator.validate(any())).thenReturn(Collections.emptySet());
+        givenStock(1L, 5);
+
+        // Act
+        InventoryBatchResultDTO result = inventoryService.recordTransactions(List.of(
+                transaction(TransactionType.SALE, 8),
+                transaction(TransactionType.SALE, 5),
+                transaction(TransactionType.RESTOCK, 1)))
+            .await().atMost(Duration.ofSeconds(5));
+
+        // Assert
+        assertEquals(2, result.getAccepted());
+        assertEquals("Insufficient stock", result.getLines().get(0).getError());
+        assertEquals(1, level.stock());
+    }
+
+    // Applies the lines against the given row as the locked read would have returned it
+    private void givenStock(Long productId, int stockQuantity) {
+        level = new InventoryService.StockLevel(stockQuantity);
+        doAnswer(invocation -> InventoryService.applyLines(invocation.getArgument(0),
+                new HashMap<>(Map.of(productId, level))))
+            .when(inventoryService).applyBatch(anyMap());
+    }
+
+    private static InventoryTransactionDTO transaction(TransactionType type, int quantity) {
+        InventoryTransactionDTO transaction = new InventoryTransactionDTO();
+        transaction.setProductId(1L);
+        transaction.setType(type);
+        transaction.setQuantity(quantity);
+        return transaction;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,85 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.dto.StockLevelEventDTO;
+import io.smallrye.mutiny.helpers.test.AssertSubscriber;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventoryStreamServiceTest {
+
+    private final InventoryStreamService streamService = new InventoryStreamService();
+
+    @Test
+    void subscribe_SlowSubscriber_GetsLatestChangePerProduct() {
+        // Arrange
+        streamService.publish(1L, 20, 10);
+        AssertSubscriber<StockLevelEventDTO> subscriber = streamService.subscribe()
+            .subscribe().withSubscriber(AssertSubscriber.create(0));
+
+        // Act
+        streamService.publish(1L, 9, 10);
+        streamService.publish(2L, 50, 10);
+        streamService.publish(1L, 2, 10);
+        subscriber.request(10);
+
+        // Assert
+        List<StockLevelEventDTO> events = subscriber.awaitItems(2, Duration.ofSeconds(5)).getItems();
+        StockLevelEventDTO first = events.get(0);
+        assertEquals(1L, first.getProductId());
+        assertEquals(2, first.getStockQuantity());
+        assertEquals("CRITICAL", first.getRiskLevel());
+        // Conflated from NONE through LOW to CRITICAL
+        assertEquals("NONE", first.getPreviousRiskLevel());
+        StockLevelEventDTO second = events.get(1);
+        assertEquals(2L, second.getProductId());
+        assertEquals("NONE", second.getRiskLevel());
+        assertNull(second.getPreviousRiskLevel());
+
+        // A subscriber that keeps up gets each change as it is published
+        streamService.publish(1L, 8, 10);
+        StockLevelEventDTO later = subscriber.awaitItems(3, Duration.ofSeconds(5)).getItems().get(2);
+        assertEquals(8, later.getStockQuantity());
+        assertEquals("CRITICAL", later.getPreviousRiskLevel());
+        assertEquals("LOW", later.getRiskLevel());
+        subscriber.cancel();
+    }
+
+    @Test
+    void publish_RowWithSameStockAndThreshold_IsSkipped() {
+        // Arrange
+        streamService.publish(1L, 20, 10);
+        AssertSubscriber<StockLevelEventDTO> subscriber = streamService.subscribe()
+            .subscribe().withSubscriber(AssertSubscriber.create(10));
+
+        // Act: a price edit reads the row again, then the threshold is raised
+        streamService.publish(1L, 20, 10);
+        streamService.publish(1L, 20, 25);
+
+        // Assert
+        List<StockLevelEventDTO> events = subscriber.awaitItems(1, Duration.ofSeconds(5)).getItems();
+        assertEquals(1, events.size());
+        assertEquals(25, events.get(0).getThreshold());
+        assertEquals("NONE", events.get(0).getPreviousRiskLevel());
+        subscriber.cancel();
+    }
+
+    @Test
+    void subscribe_SubscriberTooFarBehind_IsDisconnected() {
+        // Arrange
+        AssertSubscriber<StockLevelEventDTO> subscriber = streamService.subscribe()
+            .subscribe().withSubscriber(AssertSubscriber.create(0));
+
+        // Act
+        for (long productId = 0; productId <= InventoryStreamService.MAX_PENDING; productId++) {
+            streamService.publish(productId, 1, 10);
+        }
+        subscriber.request(1);
+
+        // Assert
+        subscriber.awaitFailure(Duration.ofSeconds(5)).assertFailedWith(IllegalStateException.class);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.ecommerce.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventoryTimeSeriesStoreTest {
+
+    private final InventoryTimeSeriesStore store = new InventoryTimeSeriesStore();
+
+    @Test
+    void summarize_ResyncedRows_AggregatesRangeAndWritesTrendsByDay() throws Exception {
+        // Arrange
+        LocalDate today = LocalDate.now();
+        for (int age = 300; age > 0; age -= 3) {
+            store.put(1L, today.minusDays(age), 1, 0, 0, age, 0.0, 0, age < 5 ? 1 : 0);
+        }
+        store.put(1L, today, 1, 0, 0, 0, 0.0, 0, 1);
+        // Read again once the restock and the rollup have updated the row
+        store.put(1L, today, 1, 1, 0, 99, 0.5, 1, 1);
+
+        // Act
+        Map<String, Object> lastTenDays = store.summarize(1L, today.minusDays(10), today);
+        Map<String, Object> allDays = store.summarize(1L, today.minusDays(399), today);
+
+        // Assert
+        assertEquals(4, lastTenDays.get("totalSales"));
+        assertEquals(1, lastTenDays.get("totalRestocks"));
+        assertEquals(1, lastTenDays.get("daysOutOfStock"));
+        assertEquals(2, lastTenDays.get("lowStockIncidents"));
+        assertEquals(0.5, lastTenDays.get("maxTurnover"));
+        assertEquals(0.125, lastTenDays.get("averageTurnover"));
+        assertEquals("{\"" + today.minusDays(9) + "\":9,\"" + today.minusDays(6) + "\":6,\""
+                + today.minusDays(3) + "\":3,\"" + today + "\":99}",
+            new ObjectMapper().writeValueAsString(lastTenDays.get("stockLevels")));
+        assertEquals(101, allDays.get("totalSales"));
+        assertEquals(0, store.summarize(2L, today, today).get("totalSales"));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,82 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.dto.LowStockAlertDTO;
+import jakarta.mail.MessagingException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LowStockAlertDispatcherTest {
+
+    @Mock
+    private EmailService emailService;
+
+    @Spy
+    @InjectMocks
+    private LowStockAlertDispatcher dispatcher;
+
+    @Test
+    void mailClaimed_DueAlerts_MailsThemInOneDigest() throws MessagingException {
+        // Arrange
+        List<LowStockAlertDTO> alerts = List.of(
+            new LowStockAlertDTO(1L, "Widget", 3, 10, LocalDateTime.now()),
+            new LowStockAlertDTO(2L, "Gadget", 4, 5, LocalDateTime.now()));
+        doReturn(alerts).when(dispatcher).claim();
+
+        // Act
+        int mailed = dispatcher.mailClaimed();
+
+        // Assert
+        assertEquals(2, mailed);
+        verify(emailService).sendLowStockDigest(alerts);
+    }
+
+    @Test
+    void mailClaimed_NothingDue_SendsNothing() throws MessagingException {
+        // Arrange
+        doReturn(List.of()).when(dispatcher).claim();
+
+        // Act
+        int mailed = dispatcher.mailClaimed();
+
+        // Assert
+        assertEquals(0, mailed);
+        verifyNoInteractions(emailService);
+    }
+
+    @Test
+    void mailClaimed_MailFails_UnclaimsTheAlerts() throws MessagingException {
+        // Arrange
+        List<LowStockAlertDTO> alerts = List.of(new LowStockAlertDTO(1L, "Widget", 3, 10, LocalDateTime.now()));
+        doReturn(alerts).when(dispatcher).claim();
+        doNothing().when(dispatcher).unclaim(anyList());
+        doThrow(new MessagingException("SMTP down")).when(emailService).sendLowStockDigest(anyList());
+
+        // Act & Assert
+        assertThrows(MessagingException.class, () -> dispatcher.mailClaimed());
+        verify(dispatcher).unclaim(alerts);
+    }
+
+    @Test
+    void mailClaimed_Mailed_KeepsTheClaim() throws MessagingException {
+        // Arrange
+        doReturn(List.of(new LowStockAlertDTO(1L, "Widget", 3, 10, LocalDateTime.now()))).when(dispatcher).claim();
+
+        // Act
+        dispatcher.mailClaimed();
+
+        // Assert
+        verify(dispatcher, never()).unclaim(anyList());
+    }
+}
\ No newline at end of file
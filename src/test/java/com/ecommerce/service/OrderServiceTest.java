@@ -1,13 +1,16 @@
 package com.ecommerce.service;
 
+import com.ecommerce.domain.dto.OrderDTO;
 import com.ecommerce.domain.model.*;
 import com.ecommerce.domain.repository.CartRepository;
 import com.ecommerce.domain.repository.OrderRepository;
+import com.ecommerce.exception.BadRequestException;
 import com.ecommerce.exception.ResourceNotFoundException;
 import io.smallrye.mutiny.Uni;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -15,10 +18,12 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,6 +35,12 @@ class OrderServiceTest {
     @Mock
     private CartRepository cartRepository;
 
+    @Mock
+    private CartStore cartStore;
+
+    @Mock
+    private ProductPriceCache priceCache;
+
     @InjectMocks
     private OrderService orderService;
 
@@ -85,6 +96,30 @@ class OrderServiceTest {
         verify(orderRepository).findByUserId(userId);
     }
 
+    @Test
+    void streamUserOrders_EmitsEveryBatchInOrder() {
+        Order secondOrder = new Order();
+        secondOrder.setId(2L);
+        secondOrder.setUserId(userId);
+        secondOrder.setStatus(OrderStatus.DELIVERED);
+        when(orderRepository.findIdsByUserIdAfter(userId, 0L, 200))
+            .thenReturn(Uni.createFrom().item(Arrays.asList(1L, 2L)));
+        when(orderRepository.findIdsByUserIdAfter(userId, 2L, 200))
+            .thenReturn(Uni.createFrom().item(Collections.emptyList()));
+        when(orderRepository.findWithItemsByIds(Arrays.asList(1L, 2L)))
+            .thenReturn(Uni.createFrom().item(Arrays.asList(testOrder, secondOrder)));
+        when(orderRepository.detachAll()).thenReturn(Uni.createFrom().voidItem());
+
+        List<OrderDTO> result = orderService.streamUserOrders(userId)
+            .collect().asList()
+            .await().indefinitely();
+
+        assertEquals(2, result.size());
+        assertEquals(1L, result.get(0).getId());
+        assertEquals(OrderStatus.DELIVERED, result.get(1).getStatus());
+        verify(orderRepository).detachAll();
+    }
+
     @Test
     void getOrder_ExistingOrder_ReturnsOrder() {
         when(orderRepository.findById(1L)).thenReturn(Uni.createFrom().item(testOrder));
@@ -109,7 +144,10 @@ class OrderServiceTest {
 
     @Test
     void createOrder_ValidCart_CreatesOrder() {
+        PriceTable prices = new PriceTable(1);
+        prices.put(1L, "Test Product", 9_999, true, 1);
         when(cartRepository.findByUserId(userId)).thenReturn(Uni.createFrom().item(testCart));
+        when(priceCache.lookup(List.of(1L))).thenReturn(prices);
         when(orderRepository.persist(any(Order.class))).thenReturn(Uni.createFrom().item(testOrder));
 
         Order result = orderService.createOrder(userId, shippingAddress)
@@ -119,10 +157,53 @@ class OrderServiceTest {
         assertEquals(userId, result.getUserId());
         assertEquals(OrderStatus.PENDING, result.getStatus());
         assertEquals(testCart.getTotalAmount(), result.getTotalAmount());
+        verify(cartStore).flush(userId);
         verify(cartRepository).findByUserId(userId);
         verify(orderRepository).persist(any(Order.class));
     }
 
+    @Test
+    void createOrder_ManyLines_PricedWithOneLookup() {
+        Cart cart = new Cart();
+        cart.setUserId(userId);
+        PriceTable prices = new PriceTable(50);
+        for (long id = 1; id <= 50; id++) {
+            Product product = new Product();
+            product.setId(id);
+            CartItem cartItem = new CartItem();
+            cartItem.setProduct(product);
+            cartItem.setQuantity(2);
+            cart.getItems().add(cartItem);
+            prices.put(id, "Product " + id, 150, true, 1);
+        }
+        when(cartRepository.findByUserId(userId)).thenReturn(Uni.createFrom().item(cart));
+        when(priceCache.lookup(anyList())).thenReturn(prices);
+        when(orderRepository.persist(any(Order.class))).thenReturn(Uni.createFrom().item(testOrder));
+
+        orderService.createOrder(userId, shippingAddress).await().indefinitely();
+
+        ArgumentCaptor<Order> order = ArgumentCaptor.forClass(Order.class);
+        verify(orderRepository).persist(order.capture());
+        verify(priceCache, times(1)).lookup(argThat(ids -> ids.size() == 50));
+        assertEquals(50, order.getValue().getItems().size());
+        assertEquals(new BigDecimal("3.00"), order.getValue().getItems().get(0).getSubtotal());
+        assertEquals(new BigDecimal("150.00"), order.getValue().getTotalAmount());
+    }
+
+    @Test
+    void createOrder_UnavailableProduct_ThrowsException() {
+        PriceTable prices = new PriceTable(1);
+        prices.put(1L, "Test Product", 9_999, false, 1);
+        when(cartRepository.findByUserId(userId)).thenReturn(Uni.createFrom().item(testCart));
+        when(priceCache.lookup(List.of(1L))).thenReturn(prices);
+
+        assertThrows(BadRequestException.class, () -> {
+            orderService.createOrder(userId, shippingAddress)
+                .await().indefinitely();
+        });
+        verify(orderRepository, never()).persist(any(Order.class));
+    }
+
     @Test
     void createOrder_NonExistingCart_ThrowsException() {
         when(cartRepository.findByUserId(userId)).thenReturn(Uni.createFrom().nullItem());
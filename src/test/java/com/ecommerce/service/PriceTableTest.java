@@ -0,0 +1,56 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.model.Money;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceTableTest {
+
+    @Test
+    void put_PacksPriceAndAvailability() {
+        PriceTable table = new PriceTable(0);
+        table.put(7L, "Widget", 1_999, true, 3);
+        table.put(8L, "Gadget", 0, false, 1);
+
+        assertEquals(Money.ofMinor(1_999, Money.DEFAULT_CURRENCY), table.price(7L));
+        assertTrue(table.available(7L));
+        assertEquals("Widget", table.name(7L));
+        assertEquals(3, table.version(7L));
+        assertFalse(table.available(8L));
+        assertEquals(-1, table.version(9L));
+        assertThrows(IllegalArgumentException.class, () -> table.price(9L));
+    }
+
+    @Test
+    void putAndRemove_RandomOperations_MatchHashMap() {
+        PriceTable table = new PriceTable(4);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            long productId = 1 + random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                table.remove(productId);
+                expected.remove(productId);
+            } else {
+                long cents = random.nextInt(1_000_000);
+                table.put(productId, null, cents, true, i);
+                expected.put(productId, cents);
+            }
+        }
+
+        assertEquals(expected.size(), table.size());
+        for (long productId = 1; productId <= 2_000; productId++) {
+            Long cents = expected.get(productId);
+            assertEquals(cents != null, table.contains(productId));
+            if (cents != null) {
+                assertEquals(cents, table.price(productId).getMinorUnits());
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,130 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.event.ProductChangedEvent;
+import com.ecommerce.domain.model.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductPriceCacheTest {
+
+    @Spy
+    private ProductPriceCache priceCache = new ProductPriceCache();
+
+    @BeforeEach
+    void setUp() {
+        lenient().doAnswer(invocation -> {
+            PriceTable loaded = new PriceTable(2);
+            for (Long productId : invocation.<Collection<Long>>getArgument(0)) {
+                if (productId < 100) {
+                    loaded.put(productId, "Product " + productId, productId * 100, true, 1);
+                }
+            }
+            return loaded;
+        }).when(priceCache).load(anyCollection());
+        lenient().doAnswer(invocation -> {
+            Map<Long, Long> versions = new HashMap<>();
+            for (Long productId : invocation.<Collection<Long>>getArgument(0)) {
+                if (productId < 100) {
+                    versions.put(productId, 1L);
+                }
+            }
+            return versions;
+        }).when(priceCache).versions(anyCollection());
+    }
+
+    @Test
+    void lookup_LoadsOnlyMissesInOneQuery() {
+        priceCache.lookup(List.of(1L, 2L));
+
+        PriceTable prices = priceCache.lookup(List.of(1L, 2L, 3L, 4L));
+
+        assertEquals(4, prices.size());
+        assertEquals(Money.ofMinor(300, Money.DEFAULT_CURRENCY), prices.price(3L));
+        assertEquals("Product 4", prices.name(4L));
+        assertTrue(prices.available(1L));
+        verify(priceCache).load(List.of(1L, 2L));
+        verify(priceCache).load(List.of(3L, 4L));
+    }
+
+    @Test
+    void lookup_ChangedOnAnotherInstance_Reloads() {
+        priceCache.lookup(List.of(1L, 2L));
+        doReturn(Map.of(1L, 1L, 2L, 2L)).when(priceCache).versions(List.of(1L, 2L));
+
+        priceCache.lookup(List.of(1L, 2L));
+
+        verify(priceCache).load(List.of(2L));
+    }
+
+    @Test
+    void lookup_DeletedOnAnotherInstance_LeftOut() {
+        priceCache.lookup(List.of(1L, 2L));
+        doReturn(Map.of(1L, 1L)).when(priceCache).versions(List.of(1L, 2L));
+
+        PriceTable prices = priceCache.lookup(List.of(1L, 2L));
+
+        assertTrue(prices.contains(1L));
+        assertFalse(prices.contains(2L));
+        verify(priceCache, times(1)).load(anyCollection());
+    }
+
+    @Test
+    void lookup_UnknownProduct_LeftOut() {
+        PriceTable prices = priceCache.lookup(List.of(1L, 100L));
+
+        assertTrue(prices.contains(1L));
+        assertFalse(prices.contains(100L));
+    }
+
+    @Test
+    void onProductChanged_NewerVersion_Reloads() {
+        priceCache.lookup(List.of(1L));
+
+        priceCache.onProductChanged(new ProductChangedEvent(1L, 1));
+        priceCache.lookup(List.of(1L));
+        priceCache.onProductChanged(new ProductChangedEvent(1L, 2));
+        priceCache.lookup(List.of(1L));
+
+        // The event for the version already held is a duplicate
+        verify(priceCache, times(2)).load(List.of(1L));
+    }
+
+    @Test
+    void onProductChanged_Unversioned_Reloads() {
+        priceCache.lookup(List.of(1L));
+
+        priceCache.onProductChanged(ProductChangedEvent.unversioned(1L));
+        priceCache.lookup(List.of(1L));
+
+        verify(priceCache, times(2)).load(List.of(1L));
+    }
+
+    @Test
+    void lookup_ChangeDuringLoad_NotCached() {
+        doAnswer(invocation -> {
+            // Committed while the row was being read
+            priceCache.onProductChanged(ProductChangedEvent.unversioned(1L));
+            PriceTable loaded = new PriceTable(1);
+            loaded.put(1L, "Stale", 100, true, 1);
+            return loaded;
+        }).when(priceCache).load(anyCollection());
+
+        assertEquals("Stale", priceCache.lookup(List.of(1L)).name(1L));
+        priceCache.lookup(List.of(1L));
+
+        verify(priceCache, times(2)).load(List.of(1L));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.dto.ProductWithImagesDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex();
+        index.rebuild(Arrays.asList(
+            product(1L, "Leather Wallet", "Slim wallet with a chair-side pocket", Set.of("leather")),
+            product(2L, "Office Chair", "Ergonomic chair with leather armrests", Set.of("office")),
+            product(3L, "Crème Brûlée Torch", "Kitchen torch", Set.of())));
+    }
+
+    @Test
+    void search_NameMatch_RanksAboveDescriptionMatch() {
+        assertEquals(Arrays.asList(2L, 1L), index.search("chair"));
+        assertEquals(Arrays.asList(1L, 2L), index.search("leather"));
+    }
+
+    @Test
+    void search_PrefixAndTypo_FindsProducts() {
+        assertEquals(List.of(1L), index.search("wall"));
+        assertEquals(List.of(2L), index.search("ergonomc"));
+        assertEquals(List.of(3L), index.search("creme brulee"));
+    }
+
+    @Test
+    void update_RemovedProduct_NoLongerMatches() {
+        index.update(List.of(), List.of(2L));
+
+        assertEquals(List.of(1L), index.search("chair"));
+        assertTrue(index.search("office").isEmpty());
+    }
+
+    private ProductWithImagesDTO product(Long id, String name, String description, Set<String> tags) {
+        ProductWithImagesDTO product = new ProductWithImagesDTO();
+        product.setId(id);
+        product.setName(name);
+        product.setDescription(description);
+        product.setTags(tags);
+        return product;
+    }
+}
\ No newline at end of file
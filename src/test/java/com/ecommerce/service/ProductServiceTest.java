@@ -1,27 +1,35 @@
 package com.ecommerce.service;
 
+import com.ecommerce.domain.dto.FacetCountDTO;
+import com.ecommerce.domain.dto.PageDTO;
+import com.ecommerce.domain.dto.ProductFilterDTO;
+import com.ecommerce.domain.dto.ProductFilterResultDTO;
+import com.ecommerce.domain.dto.ProductSummaryDTO;
 import com.ecommerce.domain.dto.ProductWithImagesDTO;
+import com.ecommerce.domain.event.ProductChangedEvent;
 import com.ecommerce.domain.model.Category;
 import com.ecommerce.domain.model.Product;
 import com.ecommerce.domain.model.ProductImage;
 import com.ecommerce.domain.repository.ProductRepository;
+import com.ecommerce.exception.BadRequestException;
 import com.ecommerce.exception.ResourceNotFoundException;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,6 +38,9 @@ class ProductServiceTest {
     @Mock
     private ProductRepository productRepository;
 
+    @Mock
+    private EntityManager entityManager;
+
     @InjectMocks
     private ProductService productService;
 
@@ -52,6 +63,7 @@ class ProductServiceTest {
         testProduct.setStockQuantity(10);
         testProduct.setCategory(category);
         testProduct.setActive(true);
+        testProduct.setVersion(1L);
 
         coverImage = new ProductImage();
         coverImage.setId(1L);
@@ -83,33 +95,109 @@ class ProductServiceTest {
         verify(productRepository).findAllActiveWithImages();
     }
 
+    @Test
+    void getAllActiveProducts_RepeatedReads_LoadCatalogOnce() {
+        when(productRepository.findAllActiveWithImages())
+            .thenReturn(Arrays.asList(testProduct));
+
+        List<ProductWithImagesDTO> first = productService.getAllActiveProducts();
+        List<ProductWithImagesDTO> second = productService.getAllActiveProducts();
+
+        assertSame(first, second);
+        verify(productRepository, times(1)).findAllActiveWithImages();
+    }
+
     @Test
     void getProductById_ExistingProduct_ReturnsProduct() {
-        when(productRepository.findProductWithImagesById(1L))
-            .thenReturn(Optional.of(testProduct));
+        when(productRepository.findAllActiveWithImages())
+            .thenReturn(Arrays.asList(testProduct));
 
         ProductWithImagesDTO result = productService.getProductById(1L);
 
         assertNotNull(result);
         assertEquals("Test Product", result.getName());
         assertEquals("cover-image-url", result.getCoverImageUrl());
-        verify(productRepository).findProductWithImagesById(1L);
+        verify(productRepository).findAllActiveWithImages();
     }
 
     @Test
     void getProductById_NonExistingProduct_ThrowsException() {
-        when(productRepository.findProductWithImagesById(99L))
-            .thenReturn(Optional.empty());
+        when(productRepository.findAllActiveWithImages())
+            .thenReturn(Arrays.asList(testProduct));
 
         assertThrows(ResourceNotFoundException.class, () -> {
             productService.getProductById(99L);
         });
-        verify(productRepository).findProductWithImagesById(99L);
+        verify(productRepository).findAllActiveWithImages();
+    }
+
+    @Test
+    void getProductsByCategory_ReturnsCategoryMembers() {
+        when(productRepository.findAllActiveWithImages())
+            .thenReturn(Arrays.asList(testProduct));
+
+        List<ProductWithImagesDTO> result = productService.getProductsByCategory(1L);
+
+        assertEquals(1, result.size());
+        assertTrue(productService.getProductsByCategory(2L).isEmpty());
+    }
+
+    @Test
+    void onProductChanged_NewerVersion_RefreshesOnlyChangedProduct() {
+        when(productRepository.findAllActiveWithImages())
+            .thenReturn(Arrays.asList(testProduct));
+        productService.getAllActiveProducts();
+
+        Product updated = new Product();
+        updated.setId(1L);
+        updated.setName("Renamed Product");
+        updated.setPrice(new BigDecimal("89.99"));
+        updated.setStockQuantity(10);
+        updated.setCategory(category);
+        updated.setActive(true);
+        updated.setVersion(2L);
+        when(productRepository.findProductsWithImagesByIds(Set.of(1L)))
+            .thenReturn(Arrays.asList(updated));
+
+        productService.onProductChanged(new ProductChangedEvent(1L, 2L));
+
+        assertEquals("Renamed Product", productService.getProductById(1L).getName());
+        assertEquals("Renamed Product", productService.getProductsByCategory(1L).get(0).getName());
+        verify(productRepository, times(1)).findAllActiveWithImages();
+    }
+
+    @Test
+    void onProductChanged_KnownVersion_SkipsReload() {
+        when(productRepository.findAllActiveWithImages())
+            .thenReturn(Arrays.asList(testProduct));
+        productService.getAllActiveProducts();
+
+        productService.onProductChanged(new ProductChangedEvent(1L, 1L));
+
+        assertEquals("Test Product", productService.getProductById(1L).getName());
+        verify(productRepository, never()).findProductsWithImagesByIds(any());
+    }
+
+    @Test
+    void onProductChanged_DeactivatedProduct_RemovesFromCatalog() {
+        when(productRepository.findAllActiveWithImages())
+            .thenReturn(Arrays.asList(testProduct));
+        productService.getAllActiveProducts();
+
+        testProduct.setActive(false);
+        testProduct.setVersion(2L);
+        when(productRepository.findProductsWithImagesByIds(Set.of(1L)))
+            .thenReturn(Arrays.asList(testProduct));
+
+        productService.onProductChanged(new ProductChangedEvent(1L, 2L));
+
+        assertTrue(productService.getAllActiveProducts().isEmpty());
+        assertTrue(productService.getProductsByCategory(1L).isEmpty());
     }
 
     @Test
     void searchProductsByName_ReturnsMatchingProducts() {
-        when(productRepository.findProductsWithImagesByName("Test"))
+        when(productRepository.findAllActiveWithImages())
             .thenReturn(Arrays.asList(testProduct));
 
         List<ProductWithImagesDTO> result = productService.searchProductsByName("Test");
@@ -117,22 +205,209 @@ class ProductServiceTest {
         assertFalse(result.isEmpty());
         assertEquals(1, result.size());
         assertEquals("Test Product", result.get(0).getName());
-        verify(productRepository).findProductsWithImagesByName("Test");
     }
 
     @Test
-    void getProductsWithCoverImage_ReturnsPagedProducts() {
-        PageRequest pageRequest = PageRequest.of(0, 10);
-        Page<Product> productPage = new PageImpl<>(Arrays.asList(testProduct));
-        
-        when(productRepository.findProductsWithCoverImage(pageRequest))
-            .thenReturn(productPage);
+    void searchProductsPage_UpdatedProduct_ReindexesChangedText() {
+        Product renamed = productsWithPrices("10.00").get(0);
+        renamed.setName("Walnut Desk");
+        renamed.setVersion(2L);
+        when(productRepository.findAllActiveWithImages()).thenReturn(Arrays.asList(testProduct));
+        when(productRepository.findProductsWithImagesByIds(Set.of(1L))).thenReturn(Arrays.asList(renamed));
+        productService.getAllActiveProducts();
 
-        Page<ProductWithImagesDTO> result = productService.getProductsWithCoverImage(pageRequest);
+        productService.onProductChanged(new ProductChangedEvent(1L, 2L));
+
+        assertTrue(productService.searchProductsPage("test", null, 20, "relevance", "asc")
+            .getContent().isEmpty());
+        assertEquals(Arrays.asList(1L),
+            ids(productService.searchProductsPage("walnut", null, 20, "relevance", "asc").getContent()));
+    }
+
+    @Test
+    void getProductsWithCoverImagePage_ReturnsProductsWithCover() {
+        when(productRepository.findAllActiveWithImages())
+            .thenReturn(Arrays.asList(testProduct));
+
+        PageDTO<ProductWithImagesDTO> result = productService.getProductsWithCoverImagePage(null, 10, "id", "asc");
 
-        assertFalse(result.isEmpty());
         assertEquals(1, result.getContent().size());
         assertEquals("Test Product", result.getContent().get(0).getName());
-        verify(productRepository).findProductsWithCoverImage(pageRequest);
+        assertFalse(result.isHasNext());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    void getActiveProductsPage_FollowingCursors_VisitsEveryProductOnce() {
+        when(productRepository.findAllActiveWithImages())
+            .thenReturn(productsWithPrices("5.00", "1.00", "5.00", "3.00", "2.00"));
+
+        List<Long> visited = new ArrayList<>();
+        String cursor = null;
+        do {
+            PageDTO<ProductWithImagesDTO> page = productService.getActiveProductsPage(cursor, 2, "price", "asc");
+            page.getContent().forEach(product -> visited.add(product.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(Arrays.asList(2L, 5L, 4L, 1L, 3L), visited);
+    }
+
+    @Test
+    void getActiveProductsPage_Descending_WalksBackwards() {
+        when(productRepository.findAllActiveWithImages())
+            .thenReturn(productsWithPrices("5.00", "1.00", "5.00", "3.00", "2.00"));
+
+        PageDTO<ProductWithImagesDTO> first = productService.getActiveProductsPage(null, 3, "price", "desc");
+        PageDTO<ProductWithImagesDTO> second = productService.getActiveProductsPage(
+            first.getNextCursor(), 3, "price", "desc");
+
+        assertEquals(Arrays.asList(3L, 1L, 4L), ids(first.getContent()));
+        assertEquals(Arrays.asList(5L, 2L), ids(second.getContent()));
+        assertTrue(second.isHasPrevious());
+        assertFalse(second.isHasNext());
+    }
+
+    @Test
+    void getActiveProductsPage_CursorFromOtherSort_ThrowsException() {
+        when(productRepository.findAllActiveWithImages())
+            .thenReturn(productsWithPrices("5.00", "1.00", "5.00"));
+
+        String cursor = productService.getActiveProductsPage(null, 1, "price", "asc").getNextCursor();
+
+        assertThrows(BadRequestException.class, () ->
+            productService.getActiveProductsPage(cursor, 1, "rating", "asc"));
+        assertThrows(BadRequestException.class, () ->
+            productService.getActiveProductsPage("not-a-cursor", 1, "price", "asc"));
+    }
+
+    @Test
+    void filterProducts_PriceAndTags_ReturnsMatchesWithFacets() {
+        when(productRepository.findAllActiveWithImages())
+            .thenReturn(productsWithPrices("5.00", "1.00", "60.00", "30.00", "600.00"));
+        when(productRepository.findActiveProductTagNames()).thenReturn(Arrays.asList(
+            new Object[] {1L, "sale"},
+            new Object[] {3L, "sale"},
+            new Object[] {3L, "new"},
+            new Object[] {5L, "sale"}));
+
+        ProductFilterDTO filter = new ProductFilterDTO();
+        filter.setMaxPrice(new BigDecimal("100"));
+        filter.setTags(Set.of("sale"));
+        filter.setSortBy("price");
+        filter.setSortDirection("desc");
+
+        ProductFilterResultDTO result = productService.filterProducts(filter);
+
+        assertEquals(Arrays.asList(3L, 1L), summaryIds(result.getProducts().getContent()));
+        assertEquals(2, result.getProducts().getTotalElements());
+        assertEquals(Arrays.asList("Under 25", "50 - 100"), labels(result.getPriceRanges()));
+        assertEquals(Arrays.asList("sale", "new"), labels(result.getTags()));
+        assertEquals(2, result.getTags().get(0).getCount());
+    }
+
+    @Test
+    void filterProducts_MinPriceAboveMaxPrice_ThrowsException() {
+        ProductFilterDTO filter = new ProductFilterDTO();
+        filter.setMinPrice(new BigDecimal("50"));
+        filter.setMaxPrice(new BigDecimal("10"));
+
+        assertThrows(BadRequestException.class, () -> productService.filterProducts(filter));
+        verify(productRepository, never()).findAllActiveWithImages();
+    }
+
+    @Test
+    void summarize_KeepsPagingAndSlimsContent() {
+        when(productRepository.findAllActiveWithImages()).thenReturn(Arrays.asList(testProduct));
+        PageDTO<ProductWithImagesDTO> page = productService.getActiveProductsPage(null, 20, "id", "asc");
+
+        PageDTO<ProductSummaryDTO> summaries = productService.summarize(page);
+
+        assertEquals(page.getTotalElements(), summaries.getTotalElements());
+        assertEquals(page.isHasNext(), summaries.isHasNext());
+        ProductSummaryDTO summary = summaries.getContent().get(0);
+        assertEquals("Test Product", summary.getName());
+        assertEquals("cover-image-url", summary.getCoverImageUrl());
+        assertTrue(summary.isInStock());
+        assertSame(summary, productService.summarize(page).getContent().get(0));
+    }
+
+    @Test
+    void getProductETag_ChangesOnlyWhenProductChanges() {
+        when(productRepository.findAllActiveWithImages()).thenReturn(Arrays.asList(testProduct));
+        String initial = productService.getProductETag(1L);
+
+        assertEquals(initial, productService.getProductETag(1L));
+        assertEquals(initial, productService.getETag(productService.getProductById(1L)));
+        assertNull(productService.getProductETag(2L));
+
+        // An image edit keeps @Version but still changes the representation
+        coverImage.setImageUrl("new-cover-url");
+        when(productRepository.findProductsWithImagesByIds(Set.of(1L))).thenReturn(Arrays.asList(testProduct));
+        productService.onProductChanged(ProductChangedEvent.unversioned(1L));
+
+        assertNotEquals(initial, productService.getProductETag(1L));
+    }
+
+    @Test
+    void productETag_IgnoresImageOrder() {
+        ProductWithImagesDTO product = new ProductWithImagesDTO();
+        product.setId(1L);
+        product.setName("Test Product");
+        product.setImageUrls(Arrays.asList("a-url", "b-url"));
+        String tag = ETags.of(product, 3L);
+
+        product.setImageUrls(Arrays.asList("b-url", "a-url"));
+        assertEquals(tag, ETags.of(product, 3L));
+
+        product.setImageUrls(Arrays.asList("b-url", "c-url"));
+        assertNotEquals(tag, ETags.of(product, 3L));
+    }
+
+    @Test
+    void exportProducts_StreamsAndDetachesEachProduct() {
+        List<Product> products = productsWithPrices("1.00", "2.00");
+        when(productRepository.streamAllWithImages()).thenReturn(products.stream());
+
+        List<ProductWithImagesDTO> exported = new ArrayList<>();
+        productService.exportProducts(exported::add);
+
+        assertEquals(Arrays.asList(1L, 2L), ids(exported));
+        verify(entityManager).detach(products.get(0));
+        verify(entityManager).detach(products.get(1));
+        verify(productRepository, never()).findAllActiveWithImages();
+    }
+
+    private List<Product> productsWithPrices(String... prices) {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < prices.length; i++) {
+            Product product = new Product();
+            product.setId(i + 1L);
+            product.setName("Product " + (i + 1));
+            product.setPrice(new BigDecimal(prices[i]));
+            product.setStockQuantity(1);
+            product.setActive(true);
+            product.setVersion(1L);
+            products.add(product);
+        }
+        return products;
+    }
+
+    private List<Long> ids(List<ProductWithImagesDTO> products) {
+        List<Long> ids = new ArrayList<>();
+        products.forEach(product -> ids.add(product.getId()));
+        return ids;
+    }
+
+    private List<String> labels(List<FacetCountDTO> facets) {
+        List<String> labels = new ArrayList<>();
+        facets.forEach(facet -> labels.add(facet.getLabel()));
+        return labels;
+    }
+
+    private List<Long> summaryIds(List<ProductSummaryDTO> products) {
+        List<Long> ids = new ArrayList<>();
+        products.forEach(product -> ids.add(product.getId()));
+        return ids;
     }
 }
\ No newline at end of file
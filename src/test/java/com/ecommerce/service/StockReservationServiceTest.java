@@ -0,0 +1,117 @@
+package com.ecommerce.service;
+
+import com.ecommerce.exception.ConflictException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StockReservationServiceTest {
+
+    @Spy
+    private StockReservationService stockReservations = new StockReservationService();
+
+    // products.stock_quantity of product 1, as the conditional update sees it
+    private final AtomicInteger column = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        lenient().doAnswer(invocation -> {
+            int units = invocation.getArgument(1);
+            int minimum = invocation.getArgument(2);
+            synchronized (column) {
+                if (column.get() < minimum) {
+                    return null;
+                }
+                return column.addAndGet(-units);
+            }
+        }).when(stockReservations).take(eq(1L), anyInt(), anyInt());
+    }
+
+    @Test
+    void reserve_ConcurrentSalesOnOneSku_NeverOversells() throws Exception {
+        // Arrange
+        column.set(1000);
+        int threads = 8;
+        int attemptsPerThread = 250;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        // Act
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                int sold = 0;
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    try {
+                        stockReservations.reserve(1L, 1);
+                        stockReservations.confirm(1L, 1);
+                        sold++;
+                    } catch (ConflictException e) {
+                        // Sold out
+                    }
+                }
+                return sold;
+            }));
+        }
+        start.countDown();
+        int sold = 0;
+        for (Future<Integer> result : results) {
+            sold += result.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(1000, sold);
+        assertEquals(0, column.get());
+    }
+
+    @Test
+    void reserve_LowColumn_LeasesOnlyTheShortfall() {
+        // Arrange
+        column.set(30);
+
+        // Act & Assert
+        stockReservations.reserve(1L, 4);
+        assertEquals(26, column.get());
+        assertFalse(stockReservations.tryReserve(1L, 1));
+        assertThrows(ConflictException.class, () -> stockReservations.reserve(1L, 27));
+        assertEquals(26, column.get());
+    }
+
+    @Test
+    void drain_ReturnsRestocksAndIdleAllotmentsButKeepsHeldUnits() {
+        // Arrange
+        column.set(200);
+        stockReservations.reserve(1L, 10);
+        stockReservations.confirm(1L, 4);
+        stockReservations.release(1L, 2);
+        stockReservations.restock(1L, 5);
+
+        // Act & Assert
+        assertEquals(Map.of(1L, 5), stockReservations.drain(false, System.nanoTime()));
+        // Held units stay with the reservation still in flight
+        assertEquals(Map.of(1L, 2 + StockReservationService.LEASE_UNITS), stockReservations.drain(true, System.nanoTime()));
+        assertFalse(stockReservations.tryReserve(1L, 1));
+        stockReservations.confirm(1L, 4);
+        assertThrows(IllegalStateException.class, () -> stockReservations.confirm(1L, 1));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,50 @@
+package com.ecommerce.service;
+
+import com.ecommerce.domain.dto.SuggestionDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SuggestTrieTest {
+
+    private SuggestTrie trie;
+
+    @BeforeEach
+    void setUp() {
+        trie = SuggestTrie.builder()
+            .add(new SuggestionDTO("Office Chair", "PRODUCT", 1L), 4.0)
+            .add(new SuggestionDTO("Chair Cushion", "PRODUCT", 2L), 9.0)
+            .add(new SuggestionDTO("Chairs", "CATEGORY", 3L), 6.0)
+            .add(new SuggestionDTO("Crème Brûlée Torch", "PRODUCT", 4L), 1.0)
+            .build();
+    }
+
+    @Test
+    void suggest_Prefix_ReturnsBestWeightedFirst() {
+        assertEquals(Arrays.asList("Chair Cushion", "Chairs", "Office Chair"), texts(trie.suggest("cha", 10)));
+        assertEquals(Arrays.asList("Chair Cushion", "Chairs"), texts(trie.suggest("CHA", 2)));
+    }
+
+    @Test
+    void suggest_InnerWordAndAccents_Match() {
+        assertEquals(Arrays.asList("Crème Brûlée Torch"), texts(trie.suggest("brulee  t", 10)));
+        assertEquals(Arrays.asList("Crème Brûlée Torch"), texts(trie.suggest("crè", 10)));
+    }
+
+    @Test
+    void suggest_UnknownOrBlankPrefix_ReturnsEmpty() {
+        assertTrue(trie.suggest("desk", 10).isEmpty());
+        assertTrue(trie.suggest("  ", 10).isEmpty());
+        assertTrue(trie.suggest(null, 10).isEmpty());
+    }
+
+    private List<String> texts(List<SuggestionDTO> suggestions) {
+        List<String> texts = new ArrayList<>();
+        suggestions.forEach(suggestion -> texts.add(suggestion.getText()));
+        return texts;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.ecommerce.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopSellingTrackerTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 30);
+
+    private final TopSellingTracker tracker = new TopSellingTracker();
+
+    @Test
+    void top_SalesAcrossDays_RanksEachWindowAndExpiresOldDays() {
+        // Arrange
+        tracker.record(1L, TODAY, 3, TODAY);
+        tracker.record(2L, TODAY.minusDays(1), 2, TODAY);
+        tracker.record(3L, TODAY.minusDays(10), 9, TODAY);
+        tracker.record(2L, TODAY, 2, TODAY);
+
+        // Act & Assert
+        assertRanking(List.of(new long[] {2L, 4}, new long[] {1L, 3}), tracker.top(7, 10, TODAY));
+        assertRanking(List.of(new long[] {3L, 9}, new long[] {2L, 4}), tracker.top(30, 2, TODAY));
+
+        // A week on, every sale has left the 7-day window; ties rank by product id
+        LocalDate later = TODAY.plusDays(7);
+        assertRanking(List.of(), tracker.top(7, 10, later));
+        tracker.record(1L, later, 1, later);
+        assertRanking(List.of(new long[] {1L, 1}), tracker.top(7, 10, later));
+        assertRanking(List.of(new long[] {1L, 4}, new long[] {2L, 4}), tracker.top(30, 2, TODAY.plusDays(20)));
+        assertRanking(List.of(), tracker.top(90, 10, TODAY.plusDays(200)));
+    }
+
+    @Test
+    void replaceDay_ResyncedDay_ReplacesItsSalesInEveryWindow() {
+        // Arrange
+        tracker.record(1L, TODAY, 3, TODAY);
+        tracker.record(2L, TODAY.minusDays(8), 5, TODAY);
+
+        // Act: other instances sold more of product 1 today, and product 2 too
+        tracker.replaceDay(TODAY, Map.of(1L, 4, 2L, 1), TODAY);
+        tracker.replaceDay(TODAY.minusDays(8), Map.of(), TODAY);
+
+        // Assert
+        assertRanking(List.of(new long[] {1L, 4}, new long[] {2L, 1}), tracker.top(7, 10, TODAY));
+        assertRanking(List.of(new long[] {1L, 4}, new long[] {2L, 1}), tracker.top(30, 10, TODAY));
+    }
+
+    @Test
+    void windowFor_RangeEndingToday_MatchesTrackedWindowsOnly() {
+        assertEquals(30, TopSellingTracker.windowFor(null, null, TODAY));
+        assertEquals(7, TopSellingTracker.windowFor(TODAY.minusDays(6), TODAY, TODAY));
+        assertEquals(90, TopSellingTracker.windowFor(TODAY.minusDays(89), TODAY.plusDays(1), TODAY));
+        assertEquals(0, TopSellingTracker.windowFor(TODAY.minusDays(6), TODAY.minusDays(1), TODAY));
+        assertEquals(0, TopSellingTracker.windowFor(TODAY.minusDays(13), TODAY, TODAY));
+    }
+
+    private static void assertRanking(List<long[]> expected, List<long[]> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i));
+        }
+    }
+}
\ No newline at end of file